@@ -1,13 +1,52 @@
 package com.demo.batchreport;
 
+import com.demo.batchreport.cli.ReportCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.Banner;
+import org.springframework.boot.DefaultApplicationArguments;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+@Slf4j
 @SpringBootApplication
 public class BatchReportApplication {
 
+    static final String CLI_PROFILE = "cli";
+
     public static void main(String[] args) {
+        if (args.length > 0 && ReportCommand.NAME.equals(args[0])) {
+            System.exit(runReportCommand(Arrays.copyOfRange(args, 1, args.length)));
+        }
         SpringApplication.run(BatchReportApplication.class, args);
     }
 
+    /**
+     * Boot without the web stack and with lazy beans, so only the report service, its repository and mail
+     * are created, run the report once and return the exit code
+     */
+    static int runReportCommand(String[] args) {
+        // Devtools would otherwise relaunch main in a restart class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        SpringApplication application = new SpringApplication(BatchReportApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setLazyInitialization(true);
+        application.setBannerMode(Banner.Mode.OFF);
+        // application-cli.yaml switches off the console, SQL logging and JMX
+        application.setAdditionalProfiles(CLI_PROFILE);
+
+        int exitCode;
+        try (ConfigurableApplicationContext context = application.run(args)) {
+            exitCode = context.getBean(ReportCommand.class).run(new DefaultApplicationArguments(args));
+        }
+
+        log.info("Report command exited with {} after {} ms since JVM start", exitCode,
+                System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+        return exitCode;
+    }
 }
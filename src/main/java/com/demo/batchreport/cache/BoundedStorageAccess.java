@@ -0,0 +1,60 @@
+package com.demo.batchreport.cache;
+
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-process storage for one Hibernate cache region: an LRU map capped at a fixed number of entries.
+ */
+class BoundedStorageAccess implements DomainDataStorageAccess {
+
+    private final int maxEntries;
+    private final Map<Object, Object> entries;
+
+    BoundedStorageAccess(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                return size() > BoundedStorageAccess.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Object getFromCache(Object key, SharedSessionContractImplementor session) {
+        return entries.get(key);
+    }
+
+    @Override
+    public synchronized void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+        entries.put(key, value);
+    }
+
+    @Override
+    public synchronized boolean contains(Object key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public synchronized void evictData() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized void evictData(Object key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public void release() {
+        evictData();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
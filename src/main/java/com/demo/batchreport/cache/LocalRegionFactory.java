@@ -0,0 +1,60 @@
+package com.demo.batchreport.cache;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.util.Map;
+
+/**
+ * Hibernate second-level cache regions held in this JVM, each capped at a number of entries.
+ * <p>
+ * Limits come from {@value #MAX_ENTRIES}{@code .<region>}, falling back to {@value #MAX_ENTRIES}. The update
+ * timestamps region is never bounded: evicting a table's last-write timestamp would let stale query results through.
+ */
+public class LocalRegionFactory extends RegionFactoryTemplate {
+
+    public static final String MAX_ENTRIES = "hibernate.cache.local.max_entries";
+
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private Map<?, ?> configValues = Map.of();
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+        this.configValues = configValues;
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        configValues = Map.of();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return new BoundedStorageAccess(maxEntries(regionConfig.getRegionName()));
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return new BoundedStorageAccess(maxEntries(regionName));
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return new BoundedStorageAccess(Integer.MAX_VALUE);
+    }
+
+    private int maxEntries(String regionName) {
+        Object value = configValues.get(MAX_ENTRIES + "." + regionName);
+        if (value == null) {
+            value = configValues.get(MAX_ENTRIES);
+        }
+        return value == null ? DEFAULT_MAX_ENTRIES : Integer.parseInt(value.toString());
+    }
+}
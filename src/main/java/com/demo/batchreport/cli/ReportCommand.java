@@ -0,0 +1,68 @@
+package com.demo.batchreport.cli;
+
+import com.demo.batchreport.service.BatchReportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One-shot report run for cron: {@code report [--date=yyyy-MM-dd] [--eml=path]}.
+ * Sends the report for the date (default yesterday), or writes it to an .eml file instead of sending.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportCommand {
+
+    public static final String NAME = "report";
+
+    static final int OK = 0;
+    static final int FAILED = 1;
+    static final int USAGE = 2;
+
+    private final BatchReportService batchReportService;
+
+    public int run(ApplicationArguments args) {
+        LocalDate batchDate;
+        try {
+            batchDate = optionValue(args, "date")
+                    .map(LocalDate::parse)
+                    .orElse(LocalDate.now().minusDays(1));
+        } catch (DateTimeParseException e) {
+            log.error("Invalid --date, expected yyyy-MM-dd: {}", e.getParsedString());
+            return USAGE;
+        }
+
+        try {
+            String eml = optionValue(args, "eml").orElse(null);
+            if (eml == null) {
+                batchReportService.sendBatchReport(batchDate);
+            } else {
+                Path target = Path.of(eml);
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    batchReportService.writeBatchReport(batchDate, out);
+                }
+                log.info("Wrote {}", target.toAbsolutePath());
+            }
+            return OK;
+        } catch (IOException | RuntimeException e) {
+            log.error("Report run failed for {}", batchDate, e);
+            return FAILED;
+        }
+    }
+
+    private static Optional<String> optionValue(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? Optional.empty() : Optional.of(values.get(0));
+    }
+}
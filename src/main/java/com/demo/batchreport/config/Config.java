@@ -13,4 +13,21 @@ public class Config {
     String fromAddress;
     String fromName;
     List<String> recipients;
+
+    /**
+     * Maximum encoded HTML size of the email body; lower-priority sections collapse to rollups beyond it.
+     * Gmail clips messages over 102KB. Zero or less disables condensation.
+     */
+    int byteBudget;
+
+    /**
+     * Replace repeated inline styles with generated classes in the head style block. Off by default: clients that
+     * drop head styles (some webmail and mobile apps) would lose the layout, so only enable it for known readers.
+     */
+    boolean dedupeStyles;
+
+    /**
+     * Base URL of the web preview, used to link condensed sections to the full report
+     */
+    String reportBaseUrl;
 }
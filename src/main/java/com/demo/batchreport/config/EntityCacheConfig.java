@@ -0,0 +1,36 @@
+package com.demo.batchreport.config;
+
+import com.demo.batchreport.cache.LocalRegionFactory;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Opt-in Hibernate second-level and query cache ({@code report.entity-cache.enabled}) for historical
+ * {@link BatchRecord} reads, backed by {@link LocalRegionFactory}.
+ * <p>
+ * Hibernate keeps it consistent with writes made through JPA: entity entries are updated in place and every
+ * insert, update or delete on {@code batch_record} invalidates the cached query results for that table.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "report.entity-cache", name = "enabled", havingValue = "true")
+public class EntityCacheConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(ReportConfig reportConfig) {
+        ReportConfig.EntityCache settings = reportConfig.getEntityCache();
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+            properties.put(AvailableSettings.USE_QUERY_CACHE, "true");
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, LocalRegionFactory.class.getName());
+            properties.put(LocalRegionFactory.MAX_ENTRIES + "." + BatchRecord.CACHE_REGION,
+                    String.valueOf(settings.getRecordMaxEntries()));
+            properties.put(LocalRegionFactory.MAX_ENTRIES + "." + BatchQueryRepository.QUERY_CACHE_REGION,
+                    String.valueOf(settings.getQueryMaxEntries()));
+        };
+    }
+}
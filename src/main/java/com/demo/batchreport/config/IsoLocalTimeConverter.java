@@ -0,0 +1,21 @@
+package com.demo.batchreport.config;
+
+import org.springframework.boot.context.properties.ConfigurationPropertiesBinding;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+
+/**
+ * Binds times of day such as {@code 07:00} in configuration properties; the default formatter is
+ * locale-dependent and rejects ISO times.
+ */
+@Component
+@ConfigurationPropertiesBinding
+public class IsoLocalTimeConverter implements Converter<String, LocalTime> {
+
+    @Override
+    public LocalTime convert(String source) {
+        return LocalTime.parse(source.trim());
+    }
+}
@@ -0,0 +1,37 @@
+package com.demo.batchreport.config;
+
+import com.demo.batchreport.repository.BatchRecordPartitions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.time.LocalDate;
+
+/**
+ * Registers the partition maintenance and retention job when {@code report.partitioning.enabled} is set.
+ */
+@Slf4j
+@Configuration
+@EnableScheduling
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "report.partitioning", name = "enabled", havingValue = "true")
+public class PartitioningConfig implements SchedulingConfigurer {
+
+    private final BatchRecordPartitions partitions;
+    private final ReportConfig reportConfig;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addCronTask(() -> {
+            try {
+                partitions.maintain(LocalDate.now());
+            } catch (RuntimeException e) {
+                log.error("Partition maintenance failed", e);
+            }
+        }, reportConfig.getPartitioning().getCron());
+    }
+}
@@ -0,0 +1,424 @@
+package com.demo.batchreport.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Report generation settings (prefix {@code report}).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report")
+public class ReportConfig {
+
+    private Store store = new Store();
+    private Chart chart = new Chart();
+    private Schedule schedule = new Schedule();
+    private Send send = new Send();
+    private Cache cache = new Cache();
+    private EntityCache entityCache = new EntityCache();
+    private Partitioning partitioning = new Partitioning();
+    private Warmup warmup = new Warmup();
+    private Profiling profiling = new Profiling();
+    private Export export = new Export();
+    private Ingest ingest = new Ingest();
+    private Sections sections = new Sections();
+
+    public enum ChartMode {
+        /** JFreeChart raster image, attached inline by Content-ID */
+        PNG,
+        /** Nested tables with coloured cells; renders in every email client without an attachment */
+        HTML,
+        /** Inline SVG; browsers only */
+        SVG
+    }
+
+    public enum Aggregation {
+        /** Summary and scenario rows from the in-process columnar segments */
+        MEMORY,
+        /** Summary and scenario rows from GROUP BY and anti-join queries against the expected_scenario table */
+        DATABASE
+    }
+
+    /**
+     * In-process columnar cache of batch records, one segment per batch date
+     */
+    @Data
+    public static class Store {
+        /**
+         * Maximum number of batch date segments held in memory; oldest dates are dropped first
+         */
+        private int maxSegments = 400;
+
+        /**
+         * How long a segment is trusted before it is reloaded, to pick up rows written by other processes
+         */
+        private Duration refreshAfter = Duration.ofMinutes(10);
+
+        /**
+         * Segments with at least this many rows are aggregated in parallel across row ranges
+         */
+        private int parallelThreshold = 500_000;
+
+        /**
+         * Worker threads for parallel aggregation; 0 uses one per available processor
+         */
+        private int parallelism = 0;
+
+        /**
+         * Days of per-group history behind the summary table trend sparklines
+         */
+        private int trendDays = 30;
+
+        /**
+         * Where the summary table and scenario details are computed. DATABASE transfers only the result rows
+         * instead of loading the day's records; trends, the heatmap and paging still use the segments.
+         */
+        private Aggregation aggregation = Aggregation.MEMORY;
+    }
+
+    /**
+     * How the 120-day status trend is drawn for each output channel
+     */
+    @Data
+    public static class Chart {
+        /**
+         * Mode for the emailed report; SVG is not supported by Gmail or Outlook
+         */
+        private ChartMode emailMode = ChartMode.PNG;
+
+        /**
+         * Mode for the browser previews
+         */
+        private ChartMode webMode = ChartMode.PNG;
+
+        private Png png = new Png();
+
+        /**
+         * Encoding of the PNG mode
+         */
+        @Data
+        public static class Png {
+            /**
+             * Quantise to an indexed palette without alpha; off writes JFreeChart's 32-bit ARGB PNG
+             */
+            private boolean indexed = true;
+
+            /**
+             * Deflate level of the indexed encoder, 0 (none) to 9 (smallest)
+             */
+            private int compressionLevel = 9;
+        }
+    }
+
+    /**
+     * Cutoff-driven sending: the report for a batch date goes out at the cutoff on the following day,
+     * rendered ahead of time once the batch is complete or the checkpoint before the cutoff is reached
+     */
+    @Data
+    public static class Schedule {
+        /**
+         * Run the scheduler in this instance; instances coordinate through the report_dispatch lease table
+         */
+        private boolean enabled = false;
+
+        /**
+         * Zone the cutoff times are expressed in
+         */
+        private ZoneId zone = ZoneId.systemDefault();
+
+        /**
+         * Send time, on the day after the batch date
+         */
+        private LocalTime cutoff = LocalTime.of(7, 0);
+
+        /**
+         * Cutoff overrides keyed by the weekday of the batch date
+         */
+        private Map<DayOfWeek, LocalTime> cutoffByDay = new EnumMap<>(DayOfWeek.class);
+
+        /**
+         * How long before the cutoff the report is rendered even if the batch is still incomplete
+         */
+        private Duration checkpoint = Duration.ofMinutes(30);
+
+        /**
+         * How often the scheduler wakes up to check completeness and the cutoff
+         */
+        private Duration pollInterval = Duration.ofMinutes(1);
+
+        /**
+         * How long a send lease is held before another instance may take it over; the sender extends it
+         * every third of this while a send runs
+         */
+        private Duration leaseTtl = Duration.ofMinutes(5);
+
+        /**
+         * How many days back the scheduler looks for batch dates missed while no instance was running; they are
+         * sent late, oldest first. Only dates after the last one sent are caught up. Zero disables catch-up.
+         */
+        private int catchUpDays = 7;
+    }
+
+    /**
+     * On-demand sends through {@code POST /send-batch-report}
+     */
+    @Data
+    public static class Send {
+        /**
+         * How long an idempotency key is remembered; a repeat within the window is not sent again
+         */
+        private Duration idempotencyWindow = Duration.ofMinutes(15);
+
+        /**
+         * Attach every summary row and scenario detail as an .xlsx workbook
+         */
+        private boolean attachWorkbook = false;
+
+        private Distribution distribution = new Distribution();
+    }
+
+    /**
+     * Bulk mode for large recipient lists: the message is rendered once and sent as many envelopes,
+     * each addressed to a chunk of the recipients, over pooled connections to one or more relays
+     */
+    @Data
+    public static class Distribution {
+        /**
+         * Recipient count above which the report is distributed in bulk instead of one message with every address in To
+         */
+        private int threshold = 50;
+
+        /**
+         * Recipients per envelope (RCPT TO commands per message); most relays accept at most 100
+         */
+        private int envelopeSize = 100;
+
+        /**
+         * To header of bulk messages, which do not list their recipients
+         */
+        private String toHeader = "undisclosed-recipients:;";
+
+        private List<Relay> relays = new ArrayList<>(List.of(new Relay()));
+    }
+
+    /**
+     * An SMTP relay used for bulk distribution. Host, port and credentials default to {@code spring.mail}.
+     */
+    @Data
+    public static class Relay {
+        private String host;
+        private int port;
+
+        /**
+         * Connections kept open to the relay for the duration of a distribution
+         */
+        private int connections = 4;
+
+        /**
+         * Envelopes per second across all connections to the relay; zero or less is unlimited
+         */
+        private double maxMessagesPerSecond;
+    }
+
+    /**
+     * Rendered report artifacts kept for closed batch dates
+     */
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+
+        /**
+         * Total size of cached HTML, EML and chart bytes; least recently used entries are evicted beyond it
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        /**
+         * A batch date is closed, and its reports cacheable, once it is at least this many days old
+         */
+        private int closedAfterDays = 2;
+
+        private Disk disk = new Disk();
+
+        /**
+         * File-backed second tier that keeps rendered artifacts across restarts
+         */
+        @Data
+        public static class Disk {
+            private boolean enabled = false;
+            private String directory = System.getProperty("java.io.tmpdir") + "/batch-report/artifacts";
+
+            /**
+             * Total size of stored blobs; identical artifacts are stored once
+             */
+            private DataSize maxSize = DataSize.ofMegabytes(512);
+        }
+    }
+
+    /**
+     * Hibernate second-level cache for batch records and their date queries
+     */
+    @Data
+    public static class EntityCache {
+        private boolean enabled = false;
+
+        /**
+         * Cached BatchRecord entities; 120 days of a full catalogue is around 60,000
+         */
+        private int recordMaxEntries = 200_000;
+
+        /**
+         * Cached query results (one per distinct date or date range)
+         */
+        private int queryMaxEntries = 2_000;
+    }
+
+    /**
+     * Monthly partitions of the batch_record table, created ahead of time and retired whole by a retention job
+     */
+    @Data
+    public static class Partitioning {
+        private boolean enabled = false;
+
+        /**
+         * Partitions created ahead of the current month, so loads never arrive before their partition exists
+         */
+        private int monthsAhead = 2;
+
+        /**
+         * Whole months kept before the current one; older partitions are retired. Zero keeps everything.
+         * Reports read 120 days back, so anything from 1 to 4 is rejected.
+         */
+        private int retentionMonths = 0;
+
+        /**
+         * Detach retired partitions and keep them as batch_record_archive_* tables instead of dropping them
+         */
+        private boolean archive = false;
+
+        /**
+         * When partitions are created and retired
+         */
+        private String cron = "0 15 1 * * *";
+    }
+
+    /**
+     * Work done at startup, before {@code /readiness} reports ready, so the first real report does not pay for
+     * AWT and font loading, query compilation and a cold JIT
+     */
+    @Data
+    public static class Warmup {
+        private boolean enabled = true;
+
+        /**
+         * Throwaway renders of each report layout with simulated data
+         */
+        private int iterations = 5;
+
+        /**
+         * Ready regardless once warm-up has run this long
+         */
+        private Duration timeout = Duration.ofMinutes(2);
+    }
+
+    /**
+     * Continuous Flight Recorder recording, dumped to disk whenever a report run is slower than the threshold
+     */
+    @Data
+    public static class Profiling {
+        private boolean enabled = false;
+
+        private Duration slowThreshold = Duration.ofSeconds(30);
+
+        private String directory = System.getProperty("java.io.tmpdir") + "/batch-report/jfr";
+
+        /**
+         * JFR settings file, {@code default} (about 1% overhead) or {@code profile} (more detail, about 2%)
+         */
+        private String settings = "profile";
+
+        /**
+         * History kept in the recording, and so in each dump; should exceed the slowest expected run
+         */
+        private Duration maxAge = Duration.ofMinutes(10);
+
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Dumps kept in the directory; the oldest are deleted first
+         */
+        private int maxFiles = 20;
+    }
+
+    /**
+     * Full-data downloads of the report datasets
+     */
+    @Data
+    public static class Export {
+        /**
+         * Deflate level of the .xlsx workbook and the gzip CSV exports, 1 (fastest) to 9 (smallest). Level 6
+         * writes about 45% fewer workbook bytes than level 1 for under 10% fewer rows per second; for CSV it is
+         * about 20% fewer bytes for 30% less throughput.
+         */
+        private int compressionLevel = 6;
+    }
+
+    /**
+     * Group commit of rows pushed to the NDJSON ingest endpoint
+     */
+    @Data
+    public static class Ingest {
+        /**
+         * Most rows written in one transaction
+         */
+        private int batchSize = 1000;
+
+        /**
+         * Rows parsed but not yet written. When it is full, requests stop reading their bodies until the
+         * writer catches up.
+         */
+        private int queueCapacity = 20_000;
+
+        /**
+         * How long the writer waits for more rows before committing a batch smaller than {@code batch-size}
+         */
+        private Duration linger = Duration.ofMillis(5);
+
+        /**
+         * How long a request waits for room in the queue, and then for its rows to commit, before giving up
+         */
+        private Duration timeout = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Where a report is delivered; sections can be switched off per channel
+     */
+    public enum Channel {
+        EMAIL, WEB
+    }
+
+    /**
+     * Report sections switched off per channel, by name: overview, summary, chart, heatmap (web only), details,
+     * backdated, or the name of a custom {@code ReportSection}
+     */
+    @Data
+    public static class Sections {
+        private Map<Channel, Set<String>> disabled = new EnumMap<>(Channel.class);
+
+        public boolean isEnabled(Channel channel, String section) {
+            return !disabled.getOrDefault(channel, Set.of()).contains(section);
+        }
+    }
+}
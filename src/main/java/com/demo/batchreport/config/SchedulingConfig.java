@@ -0,0 +1,27 @@
+package com.demo.batchreport.config;
+
+import com.demo.batchreport.service.ReportScheduler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Registers the report scheduler tick when {@code report.schedule.enabled} is set.
+ */
+@Configuration
+@EnableScheduling
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "report.schedule", name = "enabled", havingValue = "true")
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    private final ReportScheduler reportScheduler;
+    private final ReportConfig reportConfig;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(reportScheduler::tick, reportConfig.getSchedule().getPollInterval().toMillis());
+    }
+}
@@ -0,0 +1,41 @@
+package com.demo.batchreport.config;
+
+import com.demo.batchreport.service.BatchReportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Deletes expired send receipts once per idempotency window, whether or not anything is being sent.
+ * Expired receipts are already ignored by lookups; this only keeps the table small.
+ */
+@Slf4j
+@Configuration
+@EnableScheduling
+@RequiredArgsConstructor
+@ConditionalOnWebApplication
+public class SendReceiptPruningConfig implements SchedulingConfigurer {
+
+    private final BatchReportService batchReportService;
+    private final ReportConfig reportConfig;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::prune, reportConfig.getSend().getIdempotencyWindow().toMillis());
+    }
+
+    private void prune() {
+        try {
+            int deleted = batchReportService.pruneSendReceipts();
+            if (deleted > 0) {
+                log.debug("Pruned {} expired send receipts", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not prune send receipts", e);
+        }
+    }
+}
@@ -162,6 +162,9 @@ public class StyleConfig {
                 "            font-weight: 600;\n" +
                 "            color: #006A4E;\n" +
                 "        }\n" +
+                "        .trend-cell {\n" +
+                "            white-space: nowrap;\n" +
+                "        }\n" +
                 "        .chart-section {\n" +
                 "            text-align: center;\n" +
                 "            background-color: #fafafa;\n" +
@@ -216,6 +219,34 @@ public class StyleConfig {
                 "            color: #666;\n" +
                 "            font-weight: bold;\n" +
                 "        }\n" +
+                "        table.heatmap {\n" +
+                "            width: auto;\n" +
+                "            border-collapse: separate;\n" +
+                "            border-spacing: 1px;\n" +
+                "            box-shadow: none;\n" +
+                "        }\n" +
+                "        table.heatmap td {\n" +
+                "            padding: 0;\n" +
+                "            border: none;\n" +
+                "            width: 6px;\n" +
+                "            height: 12px;\n" +
+                "        }\n" +
+                "        table.heatmap td.heatmap-label {\n" +
+                "            width: auto;\n" +
+                "            padding: 0 10px 0 0;\n" +
+                "            font-size: 11px;\n" +
+                "            white-space: nowrap;\n" +
+                "            background-color: white;\n" +
+                "        }\n" +
+                "        table.heatmap td.heatmap-loaded {\n" +
+                "            background-color: #4caf50;\n" +
+                "        }\n" +
+                "        table.heatmap td.heatmap-missing {\n" +
+                "            background-color: #f44336;\n" +
+                "        }\n" +
+                "        table.heatmap tr:hover td.heatmap-label {\n" +
+                "            background-color: #e8f5f1;\n" +
+                "        }\n" +
                 "        @media (max-width: 768px) {\n" +
                 "            .stats-overview {\n" +
                 "                flex-direction: column;\n" +
@@ -0,0 +1,43 @@
+package com.demo.batchreport.controller;
+
+import com.demo.batchreport.domain.IngestResult;
+import com.demo.batchreport.service.BatchRecordIngestor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Push endpoint for producers: one JSON batch record per line, read as the body arrives. Rows already loaded
+ * for their batch date are counted as duplicates and not written again, so a restated load can be resent whole.
+ */
+@RestController
+@RequiredArgsConstructor
+public class BatchRecordIngestController {
+
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    private final BatchRecordIngestor batchRecordIngestor;
+
+    @PostMapping(value = "/api/records", consumes = {"application/x-ndjson", "application/json"})
+    public ResponseEntity<IngestResult> ingest(InputStream body) throws IOException {
+        IngestResult result = batchRecordIngestor.ingest(body);
+        switch (result.getOutcome()) {
+            case COMMITTED:
+                return ResponseEntity.ok(result);
+            case INVALID:
+                return ResponseEntity.badRequest().body(result);
+            case BUSY:
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                        .body(result);
+            default:
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.demo.batchreport.controller;
+
+import com.demo.batchreport.domain.ReadinessStatus;
+import com.demo.batchreport.service.ReportWarmup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Readiness probe for load balancers and Kubernetes: 200 once the application accepts traffic and the startup
+ * warm-up is over, 503 until then
+ */
+@RestController
+@RequiredArgsConstructor
+public class ReadinessController {
+
+    private final ApplicationAvailability applicationAvailability;
+    private final ReportWarmup reportWarmup;
+
+    @GetMapping("/readiness")
+    public ResponseEntity<ReadinessStatus> readiness() {
+        ReadinessState state = applicationAvailability.getReadinessState();
+        boolean ready = state == ReadinessState.ACCEPTING_TRAFFIC && reportWarmup.isComplete();
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new ReadinessStatus(ready, state.name(), reportWarmup.isComplete(), reportWarmup.getTimings()));
+    }
+}
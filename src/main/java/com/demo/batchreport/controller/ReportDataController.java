@@ -0,0 +1,171 @@
+package com.demo.batchreport.controller;
+
+import com.demo.batchreport.domain.BackdatedScenario;
+import com.demo.batchreport.domain.BatchReport;
+import com.demo.batchreport.domain.BatchStatusCount;
+import com.demo.batchreport.domain.BatchSummary;
+import com.demo.batchreport.domain.ReportCacheStats;
+import com.demo.batchreport.domain.ScenarioDetail;
+import com.demo.batchreport.domain.ScenarioDetailPage;
+import com.demo.batchreport.service.BatchReportService;
+import com.demo.batchreport.service.ReportArtifactCache;
+import com.demo.batchreport.service.ReportCsvExporter;
+import com.demo.batchreport.service.ReportDataVersions;
+import com.demo.batchreport.service.ScenarioDetailPager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * JSON access to the report data, for dashboards and the web preview.
+ * Every response carries a strong ETag derived from the data version of the batch dates behind it;
+ * a matching {@code If-None-Match} is answered with 304 before any aggregation runs.
+ */
+@RestController
+@RequestMapping("/api/reports")
+@RequiredArgsConstructor
+public class ReportDataController {
+
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final BatchReportService batchReportService;
+    private final ScenarioDetailPager scenarioDetailPager;
+    private final ReportDataVersions reportDataVersions;
+    private final ReportArtifactCache reportArtifactCache;
+    private final ReportCsvExporter reportCsvExporter;
+
+    /**
+     * The whole report model: totals, summary, scenario details, backdated scenarios and status counts
+     */
+    @GetMapping("/{batchDate}")
+    public ResponseEntity<BatchReport> report(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate batchDate, WebRequest request) {
+        return conditional(request, reportDataVersions.reportTag(batchDate),
+                () -> batchReportService.buildReport(batchDate));
+    }
+
+    @GetMapping("/{batchDate}/summary")
+    public ResponseEntity<List<BatchSummary>> summary(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate batchDate, WebRequest request) {
+        return conditional(request, reportDataVersions.summaryTag(batchDate),
+                () -> batchReportService.findSummaryData(batchDate));
+    }
+
+    /**
+     * Page through scenario details in (assetClass, product, entity, scenario) order
+     */
+    @GetMapping("/{batchDate}/details")
+    public ResponseEntity<ScenarioDetailPage> scenarioDetails(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate batchDate,
+            @RequestParam(required = false) List<ScenarioDetail.ScenarioStatus> status,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + ScenarioDetailPager.DEFAULT_LIMIT) int limit,
+            WebRequest request) {
+
+        try {
+            return conditional(request, reportDataVersions.detailsTag(batchDate),
+                    () -> scenarioDetailPager.page(batchDate, status, after, limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/{batchDate}/status-counts")
+    public ResponseEntity<List<BatchStatusCount>> statusCounts(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate batchDate, WebRequest request) {
+        return conditional(request, reportDataVersions.statusCountsTag(batchDate),
+                () -> batchReportService.findStatusCountsForLast120Days(batchDate));
+    }
+
+    @GetMapping("/{batchDate}/backdated")
+    public ResponseEntity<List<BackdatedScenario>> backdated(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate batchDate, WebRequest request) {
+        return conditional(request, reportDataVersions.backdatedTag(batchDate),
+                () -> batchReportService.findRecentlyLoadedBackdatedScenarios(batchDate));
+    }
+
+    /**
+     * One dataset (summary, scenarios, status-counts or backdated) as a gzip-compressed CSV file, streamed from a
+     * database cursor as it is read. The gzip is the file itself, not a transfer encoding, so every client
+     * receives the same bytes whatever it sends in Accept-Encoding.
+     */
+    @GetMapping("/{batchDate}/csv/{dataset}")
+    public ResponseEntity<StreamingResponseBody> csv(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate batchDate,
+            @PathVariable String dataset, WebRequest request) {
+
+        ReportCsvExporter.Dataset export;
+        try {
+            export = ReportCsvExporter.Dataset.fromPath(dataset);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        }
+        String etag = csvTag(export, batchDate);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=batch-report-" + batchDate + "-" + export.getPath() + ".csv.gz")
+                .body(out -> reportCsvExporter.write(export, batchDate, out));
+    }
+
+    /**
+     * Hit ratio, evictions and size of the rendered report cache
+     */
+    @GetMapping("/cache-stats")
+    public ReportCacheStats cacheStats() {
+        return reportArtifactCache.stats();
+    }
+
+    /**
+     * The JSON dataset's tag marked as CSV, so the two representations never share a tag
+     */
+    private String csvTag(ReportCsvExporter.Dataset dataset, LocalDate batchDate) {
+        String tag;
+        switch (dataset) {
+            case SUMMARY:
+                tag = reportDataVersions.summaryTag(batchDate);
+                break;
+            case SCENARIOS:
+                tag = reportDataVersions.detailsTag(batchDate);
+                break;
+            case STATUS_COUNTS:
+                tag = reportDataVersions.statusCountsTag(batchDate);
+                break;
+            default:
+                tag = reportDataVersions.backdatedTag(batchDate);
+        }
+        return tag.substring(0, tag.length() - 1) + "-csv\"";
+    }
+
+    private <T> ResponseEntity<T> conditional(WebRequest request, String etag, Supplier<T> body) {
+        if (request.checkNotModified(etag)) {
+            // Status and headers are already set for the 304
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(body.get());
+    }
+}
@@ -4,6 +4,7 @@ package com.demo.batchreport.domain;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.time.LocalDate;
@@ -12,8 +13,23 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@EntityListeners(BatchRecordWriteListener.class)
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"batchDate", "assetClass", "product", "entity", "scenario"}))
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = BatchRecord.CACHE_REGION)
 public class BatchRecord {
 
+    /**
+     * Second-level cache region, used only when {@code report.entity-cache.enabled} is set
+     */
+    public static final String CACHE_REGION = "batchRecord";
+
+    /**
+     * Columns of the unique key: a scenario is loaded at most once per batch date, so a restated load is a
+     * duplicate rather than an extra row
+     */
+    public static final String[] NATURAL_KEY = {"batch_date", "asset_class", "product", "entity", "scenario"};
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE)
     @Column(nullable = false)
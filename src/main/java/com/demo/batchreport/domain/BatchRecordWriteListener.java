@@ -0,0 +1,29 @@
+package com.demo.batchreport.domain;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener that turns {@link BatchRecord} writes into {@link BatchRecordsChangedEvent}s.
+ * Hibernate resolves it through Spring's bean container, so it can take constructor injection.
+ */
+@Component
+@RequiredArgsConstructor
+public class BatchRecordWriteListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(BatchRecord record) {
+        if (record.getBatchDate() != null) {
+            eventPublisher.publishEvent(BatchRecordsChangedEvent.of(record.getBatchDate()));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.demo.batchreport.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Published whenever batch records are inserted, updated or removed.
+ * Carries the batch dates that were touched so caches can invalidate precisely.
+ */
+@Data
+@AllArgsConstructor
+public class BatchRecordsChangedEvent {
+    private Set<LocalDate> batchDates;
+
+    public static BatchRecordsChangedEvent of(LocalDate batchDate) {
+        return new BatchRecordsChangedEvent(Set.of(batchDate));
+    }
+}
@@ -0,0 +1,41 @@
+package com.demo.batchreport.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a report for one batch date shows, computed once. The web HTML, email HTML, EML and JSON
+ * outputs are all rendered from the same instance, so producing several formats does the data work once.
+ * <p>
+ * Immutable; the lists are unmodifiable copies.
+ */
+@Getter
+@AllArgsConstructor
+public class BatchReport {
+    private final LocalDate batchDate;
+    private final long dataFingerprint;
+    private final ReportTotals totals;
+    private final List<BatchSummary> summaryData;
+    private final List<ScenarioDetail> scenarioDetails;
+    private final List<BackdatedScenario> backdatedScenarios;
+    private final List<BatchStatusCount> statusCounts;
+
+    /**
+     * Daily loaded counts per "assetClass|product|entity" group, oldest first, for the summary sparklines
+     */
+    private final Map<String, long[]> groupTrends;
+
+    /**
+     * Bitmap grid for the web heatmap section; not part of the JSON form
+     */
+    @JsonIgnore
+    private final CompletenessHeatmap heatmap;
+
+    private final Instant generatedAt;
+}
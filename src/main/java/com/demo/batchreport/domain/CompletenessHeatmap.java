@@ -0,0 +1,47 @@
+package com.demo.batchreport.domain;
+
+import com.demo.batchreport.config.ExpectedScenariosConfig;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Scenario x day completeness grid for a window of batch dates.
+ * Row i is the history of expected scenario i: bit d is set when it was loaded on {@code dates.get(d)}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompletenessHeatmap {
+    private List<LocalDate> dates;
+    private List<ExpectedScenariosConfig.ExpectedScenario> scenarios;
+    private List<BitSet> loadedDaysByScenario;
+
+    public boolean isLoaded(int scenarioIndex, int dayIndex) {
+        return loadedDaysByScenario.get(scenarioIndex).get(dayIndex);
+    }
+
+    /**
+     * Number of days in the window on which the scenario was loaded
+     */
+    public int getLoadedDayCount(int scenarioIndex) {
+        return loadedDaysByScenario.get(scenarioIndex).cardinality();
+    }
+
+    /**
+     * Number of expected scenarios loaded on a given day of the window
+     */
+    public int getLoadedScenarioCount(int dayIndex) {
+        int count = 0;
+        for (BitSet history : loadedDaysByScenario) {
+            if (history.get(dayIndex)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
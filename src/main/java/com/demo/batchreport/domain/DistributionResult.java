@@ -0,0 +1,32 @@
+package com.demo.batchreport.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a bulk distribution: envelopes are messages as the relays saw them, each carrying a chunk of recipients.
+ */
+@Data
+@AllArgsConstructor
+public class DistributionResult {
+    private int envelopes;
+    private int recipients;
+    private int failedRecipients;
+    private int connections;
+    private Duration elapsed;
+
+    public double getMessagesPerSecond() {
+        return perSecond(envelopes);
+    }
+
+    public double getRecipientsPerSecond() {
+        return perSecond(recipients - failedRecipients);
+    }
+
+    private double perSecond(long count) {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return count * 1_000_000_000d / nanos;
+    }
+}
@@ -0,0 +1,34 @@
+package com.demo.batchreport.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * One row of the expected scenario catalogue, materialised from
+ * {@link com.demo.batchreport.config.ExpectedScenariosConfig} so completeness can be joined in the database
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "expected_scenario",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"assetClass", "product", "entity", "scenario"}))
+public class ExpectedScenarioEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    private String assetClass;
+    private String product;
+    private String entity;
+    private String scenario;
+}
@@ -0,0 +1,46 @@
+package com.demo.batchreport.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of one NDJSON ingest request. Rows read before an error are still written, and writes are
+ * idempotent, so a producer can resend the whole body after fixing it.
+ */
+@Data
+@AllArgsConstructor
+public class IngestResult {
+    private Outcome outcome;
+    /**
+     * Rows parsed and queued for writing
+     */
+    private long received;
+    /**
+     * New rows
+     */
+    private long inserted;
+    /**
+     * Rows already present for the batch date, typically from a restated load
+     */
+    private long duplicates;
+    private String error;
+
+    public enum Outcome {
+        /**
+         * Every row was written
+         */
+        COMMITTED,
+        /**
+         * A line could not be parsed, or a key field is missing or too long; rows before it were written
+         */
+        INVALID,
+        /**
+         * The write queue stayed full or the writes did not finish in time; retry later
+         */
+        BUSY,
+        /**
+         * A write failed
+         */
+        FAILED
+    }
+}
@@ -0,0 +1,18 @@
+package com.demo.batchreport.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Readiness probe body; {@code warmupMillis} holds the time of each warm-up step once warm-up is over
+ */
+@Data
+@AllArgsConstructor
+public class ReadinessStatus {
+    private boolean ready;
+    private String readinessState;
+    private boolean warmupComplete;
+    private Map<String, Long> warmupMillis;
+}
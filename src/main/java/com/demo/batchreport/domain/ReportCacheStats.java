@@ -0,0 +1,25 @@
+package com.demo.batchreport.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Point-in-time counters for the rendered report cache; the disk figures are zero when the disk tier is off
+ */
+@Data
+@AllArgsConstructor
+public class ReportCacheStats {
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long evictions;
+    private long evictedBytes;
+    private long invalidations;
+    private int entries;
+    private long weightBytes;
+    private long maxWeightBytes;
+    private long diskHits;
+    private int diskEntries;
+    private int diskBlobs;
+    private long diskBytes;
+}
@@ -0,0 +1,28 @@
+package com.demo.batchreport.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Send lease for one batch date's report. The instance whose lease is live owns the send;
+ * once {@code sentAt} is set no instance sends that date again.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class ReportDispatch {
+
+    @Id
+    private LocalDate batchDate;
+
+    private String owner;
+    private Instant leaseUntil;
+    private Instant sentAt;
+}
@@ -0,0 +1,39 @@
+package com.demo.batchreport.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A send claimed under an idempotency key, kept for {@code report.send.idempotency-window} so that a repeat with
+ * the same key is acknowledged rather than sent again, on any instance and across restarts. The row is inserted
+ * before sending, with no {@code sentAt}, so the primary key decides which request sends.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = @Index(columnList = "sentAt"))
+public class ReportSendReceipt {
+
+    @Id
+    private String idempotencyKey;
+
+    private LocalDate batchDate;
+    /**
+     * Null while the send is in flight
+     */
+    private Instant sentAt;
+    private Instant claimedAt;
+
+    public SendReceipt toReceipt(boolean replayed) {
+        return new SendReceipt(batchDate, idempotencyKey, sentAt, replayed);
+    }
+}
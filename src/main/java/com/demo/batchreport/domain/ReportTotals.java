@@ -0,0 +1,57 @@
+package com.demo.batchreport.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Headline numbers for a batch date, shown in the overview of every report format
+ */
+@Getter
+@AllArgsConstructor
+public class ReportTotals {
+    private final long totalLoaded;
+    private final long totalExpected;
+    private final long completeSummaries;
+    private final long loadedScenarios;
+    private final long missingScenarios;
+    private final int assetClasses;
+    private final int products;
+    private final int entities;
+
+    /**
+     * Totals over the summary rows in a single pass; scenario counts come from the completeness bitmaps
+     */
+    public static ReportTotals of(List<BatchSummary> summaryData, long loadedScenarios, long missingScenarios) {
+        long totalLoaded = 0;
+        long totalExpected = 0;
+        long completeSummaries = 0;
+        Set<String> assetClasses = new HashSet<>();
+        Set<String> products = new HashSet<>();
+        Set<String> entities = new HashSet<>();
+
+        for (BatchSummary summary : summaryData) {
+            totalLoaded += summary.getLoadCount();
+            totalExpected += summary.getExpectedCount();
+            if (summary.isComplete()) {
+                completeSummaries++;
+            }
+            assetClasses.add(summary.getAssetClass());
+            products.add(summary.getProduct());
+            entities.add(summary.getEntity());
+        }
+
+        return new ReportTotals(totalLoaded, totalExpected, completeSummaries, loadedScenarios, missingScenarios,
+                assetClasses.size(), products.size(), entities.size());
+    }
+
+    /**
+     * Loaded as a percentage of expected, or 0 when nothing is expected
+     */
+    public double getCompletionRate() {
+        return totalExpected > 0 ? (double) totalLoaded / totalExpected * 100 : 0;
+    }
+}
@@ -0,0 +1,21 @@
+package com.demo.batchreport.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One page of scenario details in (assetClass, product, entity, scenario) order.
+ * Pass {@code nextCursor} back as {@code after} to fetch the following page; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScenarioDetailPage {
+    private LocalDate batchDate;
+    private List<ScenarioDetail> items;
+    private String nextCursor;
+}
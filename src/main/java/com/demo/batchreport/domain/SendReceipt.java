@@ -0,0 +1,24 @@
+package com.demo.batchreport.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Outcome of a send request. {@code replayed} is set when the idempotency key matched an earlier send,
+ * in which case nothing was sent this time.
+ */
+@Data
+@AllArgsConstructor
+public class SendReceipt {
+    private LocalDate batchDate;
+    private String idempotencyKey;
+    private Instant sentAt;
+    private boolean replayed;
+
+    public SendReceipt asReplay() {
+        return new SendReceipt(batchDate, idempotencyKey, sentAt, true);
+    }
+}
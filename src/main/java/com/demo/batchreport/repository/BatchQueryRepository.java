@@ -2,16 +2,167 @@ package com.demo.batchreport.repository;
 
 import com.demo.batchreport.domain.BatchRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface BatchQueryRepository extends JpaRepository<BatchRecord, Long> {
+
+    /**
+     * Query cache region for the date lookups below; the hints are inert unless the query cache is enabled
+     */
+    String QUERY_CACHE_REGION = "batchRecordQueries";
+
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
     List<BatchRecord> findAllByBatchDate(LocalDate loadDate);
 
 
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
     List<BatchRecord> findAllByBatchDateBetween(LocalDate startDate, LocalDate endDate);
 
+    boolean existsByBatchDate(LocalDate batchDate);
+
+    /**
+     * Loaded and expected counts per (asset class, product, entity) group: every group in the
+     * {@code expected_scenario} catalogue, then loaded groups the catalogue does not know, with expected 0
+     */
+    String SUMMARY_SQL = "SELECT e.asset_class AS assetClass, e.product AS product, e.entity AS entity, "
+            + "COALESCE(l.loaded, 0) AS loaded, e.expected AS expected "
+            + "FROM (SELECT asset_class, product, entity, COUNT(*) AS expected FROM expected_scenario "
+            + "GROUP BY asset_class, product, entity) e "
+            + "LEFT JOIN (SELECT asset_class, product, entity, COUNT(*) AS loaded FROM batch_record "
+            + "WHERE batch_date = :batchDate GROUP BY asset_class, product, entity) l "
+            + "ON l.asset_class = e.asset_class AND l.product = e.product AND l.entity = e.entity "
+            + "UNION ALL "
+            + "SELECT b.asset_class, b.product, b.entity, COUNT(*), 0 FROM batch_record b "
+            + "WHERE b.batch_date = :batchDate AND NOT EXISTS (SELECT 1 FROM expected_scenario x "
+            + "WHERE x.asset_class = b.asset_class AND x.product = b.product AND x.entity = b.entity) "
+            + "GROUP BY b.asset_class, b.product, b.entity";
+
+    /**
+     * Every catalogue scenario with whether it was loaded, then the distinct loaded scenarios the catalogue
+     * does not know
+     */
+    String SCENARIO_SQL = "SELECT e.asset_class AS assetClass, e.product AS product, e.entity AS entity, e.scenario AS scenario, "
+            + "CASE WHEN l.scenario IS NULL THEN 0 ELSE 1 END AS loaded, 1 AS expected "
+            + "FROM expected_scenario e "
+            + "LEFT JOIN (SELECT DISTINCT asset_class, product, entity, scenario FROM batch_record "
+            + "WHERE batch_date = :batchDate) l "
+            + "ON l.asset_class = e.asset_class AND l.product = e.product AND l.entity = e.entity AND l.scenario = e.scenario "
+            + "UNION ALL "
+            + "SELECT DISTINCT b.asset_class, b.product, b.entity, b.scenario, 1, 0 FROM batch_record b "
+            + "WHERE b.batch_date = :batchDate AND NOT EXISTS (SELECT 1 FROM expected_scenario x "
+            + "WHERE x.asset_class = b.asset_class AND x.product = b.product AND x.entity = b.entity "
+            + "AND x.scenario = b.scenario)";
+
+    /**
+     * Rows fetched per round trip by the streaming queries
+     */
+    String STREAM_FETCH_SIZE = "1000";
+
+    @Query(value = SUMMARY_SQL, nativeQuery = true)
+    List<GroupCounts> summarise(@Param("batchDate") LocalDate batchDate);
+
+    @Query(value = SCENARIO_SQL, nativeQuery = true)
+    List<ScenarioRow> scenarioRows(@Param("batchDate") LocalDate batchDate);
+
+    /**
+     * {@link #summarise} in database order, read from a cursor; call inside a transaction and close the stream
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(value = SUMMARY_SQL + " ORDER BY 1, 2, 3", nativeQuery = true)
+    Stream<GroupCounts> streamSummary(@Param("batchDate") LocalDate batchDate);
+
+    /**
+     * {@link #scenarioRows} in database order, read from a cursor; call inside a transaction and close the stream
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(value = SCENARIO_SQL + " ORDER BY 1, 2, 3, 4", nativeQuery = true)
+    Stream<ScenarioRow> streamScenarioRows(@Param("batchDate") LocalDate batchDate);
+
+    /**
+     * Rows and missing catalogue scenarios per batch date that has any rows, oldest first
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(value = "SELECT d.batch_date AS batchDate, d.loaded AS loaded, "
+            + "(SELECT COUNT(*) FROM expected_scenario e WHERE NOT EXISTS (SELECT 1 FROM batch_record b "
+            + "WHERE b.batch_date = d.batch_date AND b.asset_class = e.asset_class AND b.product = e.product "
+            + "AND b.entity = e.entity AND b.scenario = e.scenario)) AS missing "
+            + "FROM (SELECT batch_date, COUNT(*) AS loaded FROM batch_record "
+            + "WHERE batch_date BETWEEN :startDate AND :endDate GROUP BY batch_date) d "
+            + "ORDER BY d.batch_date",
+            nativeQuery = true)
+    Stream<DateCounts> streamStatusCounts(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    /**
+     * Every row with a batch date in the range, newest date first, as {asset class, product, entity, scenario,
+     * batch date}. Plain arrays rather than a projection: a projection proxy per row costs ten times the read
+     * itself over a million rows. Only the date is ordered; sorting on the four text columns as well
+     * takes several times as long as the read.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(value = "SELECT asset_class, product, entity, scenario, batch_date FROM batch_record "
+            + "WHERE batch_date BETWEEN :startDate AND :endDate ORDER BY batch_date DESC",
+            nativeQuery = true)
+    Stream<Object[]> streamRecords(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT DISTINCT asset_class, product, entity, scenario FROM batch_record "
+            + "WHERE batch_date = :batchDate) l",
+            nativeQuery = true)
+    long countLoadedScenarios(@Param("batchDate") LocalDate batchDate);
+
+    @Query(value = "SELECT COUNT(*) FROM expected_scenario e WHERE NOT EXISTS (SELECT 1 FROM batch_record b "
+            + "WHERE b.batch_date = :batchDate AND b.asset_class = e.asset_class AND b.product = e.product "
+            + "AND b.entity = e.entity AND b.scenario = e.scenario)",
+            nativeQuery = true)
+    long countMissingScenarios(@Param("batchDate") LocalDate batchDate);
+
+    /**
+     * Row of {@link #summarise}
+     */
+    interface GroupCounts {
+        String getAssetClass();
+        String getProduct();
+        String getEntity();
+        long getLoaded();
+        long getExpected();
+    }
+
+    /**
+     * Row of {@link #streamStatusCounts}
+     */
+    interface DateCounts {
+        LocalDate getBatchDate();
+        long getLoaded();
+        long getMissing();
+    }
+
+    /**
+     * Row of {@link #scenarioRows}; the flags are 0 or 1
+     */
+    interface ScenarioRow {
+        String getAssetClass();
+        String getProduct();
+        String getEntity();
+        String getScenario();
+        int getLoaded();
+        int getExpected();
+    }
 }
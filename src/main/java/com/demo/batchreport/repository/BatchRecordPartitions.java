@@ -0,0 +1,220 @@
+package com.demo.batchreport.repository;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.domain.BatchRecordsChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly range partitions of {@code batch_record} on {@code batch_date}, and their retention.
+ * <p>
+ * On PostgreSQL the table is natively partitioned, one partition per month. The repository queries need no
+ * change: every lookup filters on {@code batch_date}, so the planner prunes to the months in range. Retention
+ * drops or detaches whole partitions, which is a catalogue change rather than a row-by-row DELETE.
+ * <p>
+ * Other databases (the in-memory H2 used in development) have no declarative partitioning. There, retention
+ * falls back to one set-based DELETE of everything before the cutoff.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "report.partitioning", name = "enabled", havingValue = "true")
+public class BatchRecordPartitions {
+
+    static final String TABLE = "batch_record";
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_y(\\d{4})m(\\d{2})");
+    private static final int MIN_RETENTION_MONTHS = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReportConfig.Partitioning settings;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+    private final boolean nativePartitioning;
+
+    @Autowired
+    public BatchRecordPartitions(JdbcTemplate jdbcTemplate, ReportConfig reportConfig, ApplicationEventPublisher eventPublisher,
+                                 EntityManagerFactory entityManagerFactory) {
+        this(jdbcTemplate, reportConfig, eventPublisher, entityManagerFactory,
+                jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+
+    BatchRecordPartitions(JdbcTemplate jdbcTemplate, ReportConfig reportConfig, ApplicationEventPublisher eventPublisher,
+                          EntityManagerFactory entityManagerFactory, String databaseProduct) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.settings = reportConfig.getPartitioning();
+        this.eventPublisher = eventPublisher;
+        this.entityManagerFactory = entityManagerFactory;
+
+        int retention = settings.getRetentionMonths();
+        if (retention > 0 && retention < MIN_RETENTION_MONTHS) {
+            throw new IllegalStateException("report.partitioning.retention-months must be 0 or at least "
+                    + MIN_RETENTION_MONTHS + " to cover the 120-day report window, not " + retention);
+        }
+
+        this.nativePartitioning = "PostgreSQL".equalsIgnoreCase(databaseProduct) && createPartitionedTable();
+        if (nativePartitioning) {
+            // Loads can start before the first scheduled run
+            createAhead(YearMonth.now());
+        } else {
+            log.info("{} has no native partitioning for {}; retention deletes rows before the cutoff instead",
+                    databaseProduct, TABLE);
+        }
+    }
+
+    public boolean isNativePartitioning() {
+        return nativePartitioning;
+    }
+
+    /**
+     * Months that currently have a partition, oldest first
+     */
+    public List<YearMonth> partitions() {
+        if (!nativePartitioning) {
+            return List.of();
+        }
+        TreeSet<YearMonth> months = new TreeSet<>();
+        for (String name : jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = '" + TABLE + "'", String.class)) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                months.add(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+            }
+        }
+        return new ArrayList<>(months);
+    }
+
+    /**
+     * Create the partitions from the current month to {@code months-ahead} later, and retire those older than
+     * {@code retention-months}. Runs on {@code report.partitioning.cron}; safe to repeat.
+     */
+    public void maintain(LocalDate today) {
+        YearMonth current = YearMonth.from(today);
+        if (nativePartitioning) {
+            createAhead(current);
+        }
+        if (settings.getRetentionMonths() > 0) {
+            retireBefore(current.minusMonths(settings.getRetentionMonths()));
+        }
+    }
+
+    /**
+     * Create the partition for a month, for loads or backfills outside the maintained range
+     */
+    public void createPartition(YearMonth month) {
+        if (!nativePartitioning) {
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        log.info("Created partition {} for {}", partitionName(month), month);
+    }
+
+    private void createAhead(YearMonth current) {
+        Set<YearMonth> existing = new HashSet<>(partitions());
+        for (int ahead = 0; ahead <= settings.getMonthsAhead(); ahead++) {
+            YearMonth month = current.plusMonths(ahead);
+            if (!existing.contains(month)) {
+                createPartition(month);
+            }
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("%s_y%04dm%02d", TABLE, month.getYear(), month.getMonthValue());
+    }
+
+    private void retireBefore(YearMonth firstKept) {
+        if (nativePartitioning) {
+            for (YearMonth month : partitions()) {
+                if (month.isBefore(firstKept)) {
+                    retire(month);
+                    publishRemoved(month.atDay(1), month.atEndOfMonth());
+                }
+            }
+            return;
+        }
+
+        LocalDate cutoff = firstKept.atDay(1);
+        LocalDate oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(batch_date) FROM " + TABLE + " WHERE batch_date < ?", LocalDate.class, Date.valueOf(cutoff));
+        if (oldest != null) {
+            int removed = jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE batch_date < ?", Date.valueOf(cutoff));
+            log.info("Deleted {} batch records before {}", removed, cutoff);
+            publishRemoved(oldest, cutoff.minusDays(1));
+        }
+    }
+
+    private void retire(YearMonth month) {
+        String partition = partitionName(month);
+        if (settings.isArchive()) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+            jdbcTemplate.execute("ALTER TABLE " + partition + " RENAME TO " + partition.replace(TABLE, TABLE + "_archive"));
+            log.info("Archived partition {}", partition);
+        } else {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            log.info("Dropped partition {}", partition);
+        }
+    }
+
+    /**
+     * Retired rows bypass JPA, so evict them from the second-level cache and tell the report caches
+     * the same way an entity write would
+     */
+    private void publishRemoved(LocalDate from, LocalDate to) {
+        entityManagerFactory.getCache().evict(BatchRecord.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion(BatchQueryRepository.QUERY_CACHE_REGION);
+
+        Set<LocalDate> dates = new HashSet<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            dates.add(date);
+        }
+        eventPublisher.publishEvent(new BatchRecordsChangedEvent(dates));
+    }
+
+    /**
+     * Create the partitioned parent table if it is absent. An existing unpartitioned table fails startup rather
+     * than leaving partitioning silently off: it is usually one Hibernate created first under
+     * {@code ddl-auto: create} or {@code update}, and converting a real one means copying every row.
+     */
+    private boolean createPartitionedTable() {
+        List<String> kind = jdbcTemplate.queryForList(
+                "SELECT c.relkind::text FROM pg_class c WHERE c.relname = '" + TABLE + "' AND pg_table_is_visible(c.oid)",
+                String.class);
+        if (kind.isEmpty()) {
+            // The partition key has to be part of the primary and unique keys
+            jdbcTemplate.execute("CREATE TABLE " + TABLE + " (id BIGINT NOT NULL, asset_class VARCHAR(255), "
+                    + "product VARCHAR(255), scenario VARCHAR(255), entity VARCHAR(255), batch_date DATE NOT NULL, "
+                    + "PRIMARY KEY (id, batch_date), UNIQUE (batch_date, asset_class, product, entity, scenario)) "
+                    + "PARTITION BY RANGE (batch_date)");
+            jdbcTemplate.execute("CREATE INDEX " + TABLE + "_batch_date_idx ON " + TABLE + " (batch_date)");
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS hibernate_sequence");
+            log.info("Created partitioned table {}", TABLE);
+            return true;
+        }
+        if (!"p".equals(kind.get(0))) {
+            throw new IllegalStateException(TABLE + " exists but is not partitioned, so report.partitioning.enabled "
+                    + "would have no effect. Set spring.jpa.hibernate.ddl-auto to none so Hibernate does not create it, "
+                    + "or migrate the existing table to PARTITION BY RANGE (batch_date)");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,62 @@
+package com.demo.batchreport.repository;
+
+import com.demo.batchreport.config.ExpectedScenariosConfig;
+import com.demo.batchreport.domain.ExpectedScenarioEntry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the {@code expected_scenario} table in line with {@link ExpectedScenariosConfig}, so the summary and
+ * scenario queries in {@link BatchQueryRepository} can join against it. Synced at startup; the catalogue
+ * only changes with a release.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExpectedScenarioCatalogue {
+
+    private final ExpectedScenarioRepository expectedScenarioRepository;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void onStartup() {
+        sync();
+    }
+
+    /**
+     * Insert configured scenarios that are absent and delete rows no longer configured
+     */
+    @Transactional
+    public void sync() {
+        Map<String, ExpectedScenarioEntry> stored = new HashMap<>();
+        for (ExpectedScenarioEntry entry : expectedScenarioRepository.findAll()) {
+            stored.put(fullKey(entry), entry);
+        }
+
+        List<ExpectedScenarioEntry> added = new ArrayList<>();
+        for (ExpectedScenariosConfig.ExpectedScenario expected : ExpectedScenariosConfig.getAllExpectedScenarios()) {
+            if (stored.remove(expected.getFullKey()) == null) {
+                added.add(new ExpectedScenarioEntry(null, expected.getAssetClass(), expected.getProduct(),
+                        expected.getEntity(), expected.getScenario()));
+            }
+        }
+
+        if (!added.isEmpty() || !stored.isEmpty()) {
+            expectedScenarioRepository.deleteAllInBatch(stored.values());
+            expectedScenarioRepository.saveAll(added);
+            log.info("Expected scenario catalogue synced: {} added, {} removed", added.size(), stored.size());
+        }
+    }
+
+    private static String fullKey(ExpectedScenarioEntry entry) {
+        return String.format("%s|%s|%s|%s", entry.getAssetClass(), entry.getProduct(), entry.getEntity(), entry.getScenario());
+    }
+}
@@ -0,0 +1,9 @@
+package com.demo.batchreport.repository;
+
+import com.demo.batchreport.domain.ExpectedScenarioEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ExpectedScenarioRepository extends JpaRepository<ExpectedScenarioEntry, Long> {
+}
@@ -0,0 +1,56 @@
+package com.demo.batchreport.repository;
+
+import com.demo.batchreport.domain.ReportDispatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface ReportDispatchRepository extends JpaRepository<ReportDispatch, LocalDate> {
+
+    Optional<ReportDispatch> findFirstBySentAtIsNotNullOrderByBatchDateDesc();
+
+    /**
+     * Create the lease row; fails with a constraint violation if another instance created it first
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into report_dispatch (batch_date, owner, lease_until) values (:batchDate, :owner, :leaseUntil)",
+            nativeQuery = true)
+    int insertLease(@Param("batchDate") LocalDate batchDate, @Param("owner") String owner,
+                    @Param("leaseUntil") Instant leaseUntil);
+
+    /**
+     * Take over an expired or released lease, or extend our own, unless the report has already been sent.
+     * A null expiry is a lease released before releases expired it instead.
+     */
+    @Transactional
+    @Modifying
+    @Query("update ReportDispatch d set d.owner = :owner, d.leaseUntil = :leaseUntil " +
+            "where d.batchDate = :batchDate and d.sentAt is null " +
+            "and (d.owner = :owner or d.leaseUntil is null or d.leaseUntil <= :now)")
+    int renewLease(@Param("batchDate") LocalDate batchDate, @Param("owner") String owner,
+                   @Param("leaseUntil") Instant leaseUntil, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("update ReportDispatch d set d.sentAt = :sentAt, d.leaseUntil = null " +
+            "where d.batchDate = :batchDate and d.owner = :owner")
+    int markSent(@Param("batchDate") LocalDate batchDate, @Param("owner") String owner, @Param("sentAt") Instant sentAt);
+
+    /**
+     * Expire our lease now, so {@link #renewLease} lets any instance take it over
+     */
+    @Transactional
+    @Modifying
+    @Query("update ReportDispatch d set d.leaseUntil = :now " +
+            "where d.batchDate = :batchDate and d.owner = :owner and d.sentAt is null")
+    int releaseLease(@Param("batchDate") LocalDate batchDate, @Param("owner") String owner, @Param("now") Instant now);
+}
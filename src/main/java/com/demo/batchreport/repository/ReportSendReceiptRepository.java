@@ -0,0 +1,58 @@
+package com.demo.batchreport.repository;
+
+import com.demo.batchreport.domain.ReportSendReceipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Repository
+public interface ReportSendReceiptRepository extends JpaRepository<ReportSendReceipt, String> {
+
+    /**
+     * Claim a key for a send; fails with a constraint violation if another request claimed it first
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into report_send_receipt (idempotency_key, batch_date, claimed_at) "
+            + "values (:idempotencyKey, :batchDate, :claimedAt)", nativeQuery = true)
+    int insertClaim(@Param("idempotencyKey") String idempotencyKey, @Param("batchDate") LocalDate batchDate,
+                    @Param("claimedAt") Instant claimedAt);
+
+    /**
+     * Claim a key whose send or claim is older than {@code expiredBefore}
+     */
+    @Transactional
+    @Modifying
+    @Query("update ReportSendReceipt r set r.batchDate = :batchDate, r.claimedAt = :claimedAt, r.sentAt = null "
+            + "where r.idempotencyKey = :idempotencyKey and ((r.sentAt is not null and r.sentAt <= :expiredBefore) "
+            + "or (r.sentAt is null and r.claimedAt <= :expiredBefore))")
+    int reclaim(@Param("idempotencyKey") String idempotencyKey, @Param("batchDate") LocalDate batchDate,
+                @Param("claimedAt") Instant claimedAt, @Param("expiredBefore") Instant expiredBefore);
+
+    @Transactional
+    @Modifying
+    @Query("update ReportSendReceipt r set r.sentAt = :sentAt where r.idempotencyKey = :idempotencyKey and r.sentAt is null")
+    int markSent(@Param("idempotencyKey") String idempotencyKey, @Param("sentAt") Instant sentAt);
+
+    /**
+     * Drop the claim of a send that failed, so it can be retried straight away
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from ReportSendReceipt r where r.idempotencyKey = :idempotencyKey and r.sentAt is null")
+    int releaseClaim(@Param("idempotencyKey") String idempotencyKey);
+
+    /**
+     * Delete receipts sent, and claims abandoned, before {@code sentBefore}
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from ReportSendReceipt r where r.sentAt < :sentBefore or (r.sentAt is null and r.claimedAt < :sentBefore)")
+    int deleteSentBefore(@Param("sentBefore") Instant sentBefore);
+}
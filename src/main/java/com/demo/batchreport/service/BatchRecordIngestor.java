@@ -0,0 +1,386 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.domain.BatchRecordsChangedEvent;
+import com.demo.batchreport.domain.IngestResult;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams NDJSON {@link BatchRecord}s into {@code batch_record} with idempotent inserts and group commit.
+ * <p>
+ * Request threads parse their body one line at a time and put each row on a bounded queue. A single writer
+ * drains the queue, up to {@code batch-size} rows or {@code linger} at a time, and writes each batch as one
+ * JDBC batch in one transaction. Rows that match an existing row on the unique key are skipped rather than
+ * failing the batch, so a restated load counts once. If a batch still fails, its rows are retried one at a
+ * time so only the requests with a bad row fail. When the queue is full, request threads block and stop
+ * reading, which pushes back on producers through TCP flow control.
+ */
+@Slf4j
+@Component
+public class BatchRecordIngestor {
+
+    private static final String KEY_COLUMNS = String.join(", ", BatchRecord.NATURAL_KEY);
+
+    /**
+     * Length of the key columns, which Hibernate creates as VARCHAR(255)
+     */
+    static final int MAX_LENGTH = 255;
+
+    /**
+     * Unique indexes on batch_record over exactly the key columns; ON CONFLICT needs one to name
+     */
+    private static final String POSTGRES_KEY_INDEXES = "SELECT COUNT(*) FROM pg_index i JOIN pg_class c ON c.oid = i.indrelid "
+            + "WHERE c.relname = 'batch_record' AND pg_table_is_visible(c.oid) AND i.indisunique AND i.indpred IS NULL "
+            + "AND (SELECT array_agg(a.attname::text ORDER BY a.attname::text) FROM pg_attribute a "
+            + "WHERE a.attrelid = c.oid AND a.attnum = ANY(i.indkey)) = ARRAY['"
+            + String.join("', '", Arrays.stream(BatchRecord.NATURAL_KEY).sorted().toArray(String[]::new)) + "']";
+
+    private static final String NATURAL_KEY_MIGRATION = "db/postgresql/batch_record_natural_key.sql";
+
+    private static final String POSTGRES_UPSERT = "INSERT INTO batch_record (id, " + KEY_COLUMNS + ") "
+            + "VALUES (nextval('hibernate_sequence'), ?, ?, ?, ?, ?) ON CONFLICT (" + KEY_COLUMNS + ") DO NOTHING";
+
+    private static final String MERGE_UPSERT = "MERGE INTO batch_record t USING (VALUES (CAST(? AS DATE), "
+            + "CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)))) "
+            + "s (" + KEY_COLUMNS + ") ON t.batch_date = s.batch_date AND t.asset_class = s.asset_class "
+            + "AND t.product = s.product AND t.entity = s.entity AND t.scenario = s.scenario "
+            + "WHEN NOT MATCHED THEN INSERT (id, " + KEY_COLUMNS + ") VALUES (NEXT VALUE FOR hibernate_sequence, "
+            + "s.batch_date, s.asset_class, s.product, s.entity, s.scenario)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectReader reader;
+    private final ReportConfig.Ingest settings;
+    private final String upsert;
+    private final BlockingQueue<Pending> queue;
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    public BatchRecordIngestor(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               ApplicationEventPublisher eventPublisher, EntityManagerFactory entityManagerFactory,
+                               ObjectMapper objectMapper, ReportConfig reportConfig) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.entityManagerFactory = entityManagerFactory;
+        this.reader = objectMapper.readerFor(BatchRecord.class);
+        this.settings = reportConfig.getIngest();
+        String databaseProduct = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        boolean postgres = "PostgreSQL".equalsIgnoreCase(databaseProduct);
+        if (postgres) {
+            requireNaturalKey();
+        }
+        this.upsert = postgres ? POSTGRES_UPSERT : MERGE_UPSERT;
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+
+        this.writer = new Thread(this::drain, "record-ingest");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Read NDJSON rows from a request body until it ends or a line is invalid, and wait for every row read
+     * to be written
+     */
+    public IngestResult ingest(InputStream body) throws IOException {
+        Ticket ticket = new Ticket();
+        long received = 0;
+        IngestResult.Outcome outcome = IngestResult.Outcome.COMMITTED;
+        String error = null;
+
+        try (MappingIterator<BatchRecord> rows = reader.readValues(body)) {
+            while (rows.hasNextValue()) {
+                BatchRecord record = rows.nextValue();
+                String invalid = invalidKey(record);
+                if (invalid != null) {
+                    outcome = IngestResult.Outcome.INVALID;
+                    error = "Line " + rows.getCurrentLocation().getLineNr() + ": " + invalid;
+                    break;
+                }
+                if (!queue.offer(new Pending(record, ticket), settings.getTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                    outcome = IngestResult.Outcome.BUSY;
+                    error = "Write queue still full after " + settings.getTimeout().toMillis() + " ms";
+                    break;
+                }
+                received++;
+            }
+        } catch (JsonProcessingException e) {
+            JsonLocation location = e.getLocation();
+            outcome = IngestResult.Outcome.INVALID;
+            error = (location != null ? "Line " + location.getLineNr() + ": " : "") + e.getOriginalMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ticket.result(received, IngestResult.Outcome.BUSY, "Interrupted while queueing rows");
+        }
+
+        try {
+            return ticket.await(received, outcome, error, settings.getTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ticket.result(received, IngestResult.Outcome.BUSY, "Interrupted while waiting for rows to be written");
+        }
+    }
+
+    /**
+     * Rows parsed but not yet written
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * Stop taking rows once the queue has been written out
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(settings.getTimeout().toMillis());
+    }
+
+    /**
+     * Fail startup rather than every write: ON CONFLICT without a matching unique index is an error, which a
+     * table created before the key was added to the entity does not have
+     */
+    private void requireNaturalKey() {
+        Long indexes = jdbcTemplate.queryForObject(POSTGRES_KEY_INDEXES, Long.class);
+        if (indexes == null || indexes == 0) {
+            throw new IllegalStateException("batch_record has no unique key on (" + KEY_COLUMNS + "), which ingest "
+                    + "needs to skip duplicate rows; remove duplicates and add it with " + NATURAL_KEY_MIGRATION);
+        }
+    }
+
+    /**
+     * Why a row cannot be written, or null if it can. Rejecting it here keeps it out of a batch shared with
+     * other requests.
+     */
+    private static String invalidKey(BatchRecord record) {
+        // NULLs never collide in a unique key, so a row without one could never be deduplicated
+        if (record.getBatchDate() == null) {
+            return "batchDate is required";
+        }
+        String[][] columns = {{"assetClass", record.getAssetClass()}, {"product", record.getProduct()},
+                {"entity", record.getEntity()}, {"scenario", record.getScenario()}};
+        for (String[] column : columns) {
+            if (column[1] == null) {
+                return column[0] + " is required";
+            }
+            if (column[1].codePointCount(0, column[1].length()) > MAX_LENGTH) {
+                return column[0] + " is longer than " + MAX_LENGTH + " characters";
+            }
+        }
+        return null;
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(settings.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + settings.getLinger().toNanos();
+                while (batch.size() < settings.getBatchSize()) {
+                    if (queue.drainTo(batch, settings.getBatchSize() - batch.size()) > 0) {
+                        continue;
+                    }
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        int[] counts;
+        try {
+            counts = upsert(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.error("Could not write ingested batch record {}", batch.get(0).record, e);
+                batch.get(0).ticket.failed(e.getMessage());
+            } else {
+                log.warn("Could not write {} ingested batch records together; retrying them one at a time", batch.size(), e);
+                writeOneAtATime(batch);
+            }
+            return;
+        }
+
+        Set<LocalDate> changed = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (counts[i] != 0) {
+                changed.add(batch.get(i).record.getBatchDate());
+            }
+        }
+        published(changed);
+        for (int i = 0; i < batch.size(); i++) {
+            // A driver may report SUCCESS_NO_INFO (-2) for batched statements; count those as inserted
+            batch.get(i).ticket.written(counts[i] != 0);
+        }
+    }
+
+    /**
+     * One bad row must not fail the other requests that shared its batch
+     */
+    private void writeOneAtATime(List<Pending> batch) {
+        Set<LocalDate> changed = new HashSet<>();
+        boolean[] inserted = new boolean[batch.size()];
+        String[] failures = new String[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                inserted[i] = upsert(batch.subList(i, i + 1))[0] != 0;
+                if (inserted[i]) {
+                    changed.add(batch.get(i).record.getBatchDate());
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not write ingested batch record {}", batch.get(i).record, e);
+                failures[i] = e.getMessage();
+            }
+        }
+        published(changed);
+        for (int i = 0; i < batch.size(); i++) {
+            if (failures[i] != null) {
+                batch.get(i).ticket.failed(failures[i]);
+            } else {
+                batch.get(i).ticket.written(inserted[i]);
+            }
+        }
+    }
+
+    /**
+     * Upsert rows as one JDBC batch in one transaction
+     *
+     * @return update count per row
+     */
+    private int[] upsert(List<Pending> rows) {
+        return transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(upsert, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                BatchRecord record = rows.get(i).record;
+                statement.setDate(1, Date.valueOf(record.getBatchDate()));
+                statement.setString(2, record.getAssetClass());
+                statement.setString(3, record.getProduct());
+                statement.setString(4, record.getEntity());
+                statement.setString(5, record.getScenario());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        }));
+    }
+
+    /**
+     * Invalidate the caches before any producer hears its rows are in
+     */
+    private void published(Set<LocalDate> changed) {
+        if (!changed.isEmpty()) {
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion(BatchQueryRepository.QUERY_CACHE_REGION);
+            eventPublisher.publishEvent(new BatchRecordsChangedEvent(changed));
+        }
+    }
+
+    private static final class Pending {
+        private final BatchRecord record;
+        private final Ticket ticket;
+
+        private Pending(BatchRecord record, Ticket ticket) {
+            this.record = record;
+            this.ticket = ticket;
+        }
+    }
+
+    /**
+     * Progress of one request's rows, updated by the writer
+     */
+    private static final class Ticket {
+        private long written;
+        private long inserted;
+        private long failed;
+        private String failure;
+
+        synchronized void written(boolean insertedRow) {
+            written++;
+            if (insertedRow) {
+                inserted++;
+            }
+            notifyAll();
+        }
+
+        synchronized void failed(String message) {
+            written++;
+            failed++;
+            failure = message;
+            notifyAll();
+        }
+
+        synchronized IngestResult await(long received, IngestResult.Outcome outcome, String error, Duration timeout)
+                throws InterruptedException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (written < received) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return result(received, IngestResult.Outcome.BUSY,
+                            (received - written) + " rows still being written after " + timeout.toMillis() + " ms");
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            if (failure != null) {
+                return result(received, IngestResult.Outcome.FAILED, failed + " rows not written: " + failure);
+            }
+            return result(received, outcome, error);
+        }
+
+        synchronized IngestResult result(long received, IngestResult.Outcome outcome, String error) {
+            return new IngestResult(outcome, received, inserted, written - inserted - failed, error);
+        }
+    }
+}
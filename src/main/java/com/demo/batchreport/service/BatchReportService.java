@@ -2,33 +2,37 @@ package com.demo.batchreport.service;
 
 import com.demo.batchreport.config.Config;
 import com.demo.batchreport.config.ExpectedScenariosConfig;
+import com.demo.batchreport.config.ReportConfig;
 import com.demo.batchreport.config.StyleConfig;
 import com.demo.batchreport.domain.*;
 import com.demo.batchreport.repository.BatchQueryRepository;
+import com.demo.batchreport.repository.ReportSendReceiptRepository;
+import com.demo.batchreport.store.ColumnDictionaries;
+import com.demo.batchreport.store.ColumnarBatchStore;
+import com.demo.batchreport.store.CompletenessEngine;
+import com.demo.batchreport.store.DateSegment;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
-import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartUtils;
-import org.jfree.chart.JFreeChart;
-import org.jfree.chart.plot.CategoryPlot;
-import org.jfree.chart.renderer.category.StackedBarRenderer;
-import org.jfree.data.category.DefaultCategoryDataset;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
-import java.awt.*;
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -36,42 +40,373 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class BatchReportService {
 
+    private static final String CHART_CID_SRC = "src=\"cid:statusChart\"";
+
+    private static final Map<String, String> NAVIGATION_LINKS = navigationLinks();
+
+    // Sorted in Java rather than by ORDER BY, so database collation cannot reorder the rows; null dimensions sort first
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<BatchSummary> SUMMARY_ORDER = Comparator.comparing(BatchSummary::getAssetClass, NULLS_FIRST)
+            .thenComparing(BatchSummary::getProduct, NULLS_FIRST)
+            .thenComparing(BatchSummary::getEntity, NULLS_FIRST);
+    static final Comparator<ScenarioDetail> DETAIL_ORDER = Comparator.comparing(ScenarioDetail::getAssetClass, NULLS_FIRST)
+            .thenComparing(ScenarioDetail::getProduct, NULLS_FIRST)
+            .thenComparing(ScenarioDetail::getEntity, NULLS_FIRST)
+            .thenComparing(ScenarioDetail::getScenario, NULLS_FIRST);
+
     private final JavaMailSender mailSender;
     private final Config config;
     private final BatchQueryRepository batchQueryRepository;
+    private final ColumnarBatchStore batchStore;
+    private final CompletenessEngine completenessEngine;
+    private final StatusChartRenderer chartRenderer;
+    private final ReportConfig reportConfig;
+    private final ReportArtifactCache artifactCache;
+    private final ReportDistributor distributor;
+    private final ReportProfiler profiler;
+    private final ReportSendReceiptRepository sendReceiptRepository;
+    private final List<ReportSection> customSections;
+
+    private final SingleFlight<ReportFlightKey, String> htmlFlights = new SingleFlight<>();
+    private final SingleFlight<LocalDate, byte[]> emlFlights = new SingleFlight<>();
+    private final SingleFlight<String, SendReceipt> sendFlights = new SingleFlight<>();
+
+    private enum OutputType {
+        WEB_PREVIEW, EMAIL_PREVIEW
+    }
+
+    @Value
+    private static class ReportFlightKey {
+        LocalDate batchDate;
+        OutputType outputType;
+    }
 
     public void sendBatchReport(LocalDate batchDate) {
-        try {
-            List<BatchRecord> batchRecords = batchQueryRepository.findAllByBatchDate(batchDate);
+        try (ReportProfiler.Run run = profiler.start("send", batchDate)) {
+            send(prepareBatchReport(batchDate));
 
-            // Add simulated data if no real data exists (for demo purposes)
-            if (batchRecords.isEmpty()) {
-                batchRecords = generateSimulatedBatchRecords(batchDate);
+            log.info("Batch report sent successfully for date: {}", batchDate);
+
+        } catch (Exception e) {
+            log.error("Failed to send batch report for date: {}", batchDate, e);
+            throw new RuntimeException("Batch report generation failed", e);
+        }
+    }
+
+    /**
+     * Send the report at most once per idempotency key within {@code report.send.idempotency-window}.
+     * Without a key the batch date and its data version are used, so a repeated request for unchanged data
+     * is answered from the first send; a deliberate resend of unchanged data needs a new key. The key is claimed
+     * in the database before sending, so of concurrent requests on any instance only one sends; the others get
+     * the receipt once it is sent, or an {@link IllegalStateException} while it is in flight. Concurrent requests
+     * with the same key on one instance share one send.
+     */
+    public SendReceipt sendBatchReport(LocalDate batchDate, String idempotencyKey) {
+        String key = idempotencyKey != null && !idempotencyKey.isBlank()
+                ? idempotencyKey
+                : batchDate + ":" + Long.toHexString(dataFingerprint(batchDate));
+
+        return sendFlights.execute(key, () -> {
+            if (!claimSend(key, batchDate)) {
+                ReportSendReceipt previous = sendReceiptRepository.findById(key)
+                        .orElseThrow(() -> new IllegalStateException("Send for idempotency key " + key + " was just released; retry"));
+                if (!previous.getBatchDate().equals(batchDate)) {
+                    throw new IllegalArgumentException("Idempotency key " + key + " was already used for " + previous.getBatchDate());
+                }
+                if (previous.getSentAt() == null) {
+                    throw new IllegalStateException("Batch report for " + batchDate + " is already being sent under idempotency key "
+                            + key + " since " + previous.getClaimedAt());
+                }
+                log.info("Skipping duplicate send for {} (idempotency key {}, sent {})", batchDate, key, previous.getSentAt());
+                return previous.toReceipt(true);
             }
 
-            List<BatchSummary> summaryData = generateSummaryDataWithExpectations(batchRecords);
-            List<ScenarioDetail> scenarioDetails = generateScenarioDetails(batchRecords);
-            List<BatchStatusCount> statusCounts = findStatusCountsForLast120Days(batchDate);
-            List<BackdatedScenario> backdatedScenarios = findRecentlyLoadedBackdatedScenarios(batchDate);
+            try {
+                sendBatchReport(batchDate);
+            } catch (RuntimeException e) {
+                sendReceiptRepository.releaseClaim(key);
+                throw e;
+            }
+            Instant sentAt = Instant.now();
+            sendReceiptRepository.markSent(key, sentAt);
+            return new SendReceipt(batchDate, key, sentAt, false);
+        });
+    }
 
-            File chartFile = generateStatusChart(statusCounts);
+    /**
+     * Insert the receipt row for a key before sending, or take over one whose send or claim has expired. A claim
+     * left by an instance that died mid-send blocks its key for one idempotency window.
+     */
+    private boolean claimSend(String key, LocalDate batchDate) {
+        Instant now = Instant.now();
+        if (sendReceiptRepository.reclaim(key, batchDate, now, now.minus(reportConfig.getSend().getIdempotencyWindow())) == 1) {
+            return true;
+        }
+        if (sendReceiptRepository.existsById(key)) {
+            return false;
+        }
+        try {
+            sendReceiptRepository.insertClaim(key, batchDate, now);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Lost send claim race for idempotency key {}", key);
+            return false;
+        }
+    }
 
-            // Use email-optimized HTML instead of regular HTML
-            String htmlContent = buildEmailOptimizedReport(batchDate, summaryData, scenarioDetails, statusCounts, backdatedScenarios);
+    /**
+     * Delete send receipts older than the idempotency window
+     *
+     * @return receipts deleted
+     */
+    public int pruneSendReceipts() {
+        return sendReceiptRepository.deleteSentBefore(Instant.now().minus(reportConfig.getSend().getIdempotencyWindow()));
+    }
 
-            sendEmail(buildSubject(batchDate), htmlContent, chartFile);
+    /**
+     * Web preview from the stored batch data, with the chart inlined. Concurrent requests for a date share one render.
+     */
+    public String generateBatchReportPreview(LocalDate batchDate) {
+        return cached(batchDate, ReportArtifactCache.ArtifactType.WEB_PREVIEW, () ->
+                htmlFlights.execute(new ReportFlightKey(batchDate, OutputType.WEB_PREVIEW), () -> {
+                    try (ReportProfiler.Run run = profiler.start("web-preview", batchDate)) {
+                        ReportContext context = reportContext(batchDate);
+                        String html;
+                        try (ReportStageEvent stage = ReportStageEvent.begin("render-web", batchDate)) {
+                            html = renderBatchReportHtml(context);
+                            stage.end(recordsRead(context), html.length());
+                        }
+                        return embedChartImage(batchDate, html, context);
+                    }
+                }));
+    }
 
-            // Cleanup
-            Files.deleteIfExists(chartFile.toPath());
+    /**
+     * Email-optimized preview from the stored batch data, with the chart inlined. Concurrent requests for a date share one render.
+     */
+    public String generateEmailOptimizedPreview(LocalDate batchDate) {
+        return cached(batchDate, ReportArtifactCache.ArtifactType.EMAIL_PREVIEW, () ->
+                htmlFlights.execute(new ReportFlightKey(batchDate, OutputType.EMAIL_PREVIEW), () -> {
+                    try (ReportProfiler.Run run = profiler.start("email-preview", batchDate)) {
+                        ReportContext context = reportContext(batchDate);
+                        String html;
+                        try (ReportStageEvent stage = ReportStageEvent.begin("render-email", batchDate)) {
+                            html = renderEmailOptimizedHtml(context);
+                            stage.end(recordsRead(context), html.length());
+                        }
+                        return embedChartImage(batchDate, html, context);
+                    }
+                }));
+    }
 
-            log.info("Batch report sent successfully for date: {}", batchDate);
+    /**
+     * The report as .eml bytes. Concurrent requests for a date share one render.
+     */
+    public byte[] generateBatchReportEml(LocalDate batchDate) {
+        return cached(batchDate, ReportArtifactCache.ArtifactType.EML, () ->
+                emlFlights.execute(batchDate, () -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    writeBatchReport(batchDate, out);
+                    return out.toByteArray();
+                }));
+    }
+
+    /**
+     * An artifact already in the disk tier of the cache and rendered from the current data, opened for streaming.
+     * Empty when it has to be rendered; the caller must close it.
+     */
+    public Optional<ReportArtifactStore.StoredArtifact> openStoredArtifact(LocalDate batchDate, ReportArtifactCache.ArtifactType type) {
+        return artifactCache.openStored(batchDate, type, dataFingerprint(batchDate));
+    }
+
+    /**
+     * Serve an artifact from the cache when it was rendered from the current data, otherwise render and cache it
+     */
+    private <T> T cached(LocalDate batchDate, ReportArtifactCache.ArtifactType type, Supplier<T> render) {
+        // Taken before rendering, so a write during the render leaves an entry that will not match
+        return cached(batchDate, type, dataFingerprint(batchDate), render);
+    }
+
+    private <T> T cached(LocalDate batchDate, ReportArtifactCache.ArtifactType type, long dataFingerprint, Supplier<T> render) {
+        T artifact = artifactCache.get(batchDate, type, dataFingerprint);
+        if (artifact == null) {
+            artifact = render.get();
+            artifactCache.put(batchDate, type, dataFingerprint, artifact);
+        }
+        return artifact;
+    }
+
+    private byte[] renderChartPng(LocalDate batchDate, List<BatchStatusCount> statusCounts) {
+        return cached(batchDate, ReportArtifactCache.ArtifactType.CHART_PNG, () -> {
+            try (ReportStageEvent stage = ReportStageEvent.begin("chart", batchDate)) {
+                byte[] png = chartRenderer.renderPng(statusCounts);
+                stage.end(statusCounts.size(), png.length);
+                return png;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Write the report as an RFC 822 message (.eml), exactly as it would be sent
+     */
+    public void writeBatchReport(LocalDate batchDate, OutputStream out) {
+        try (ReportProfiler.Run run = profiler.start("eml", batchDate)) {
+            createMessage(prepareBatchReport(batchDate)).writeTo(out);
+
+            log.info("Batch report written for date: {}", batchDate);
 
         } catch (Exception e) {
-            log.error("Failed to send batch report for date: {}", batchDate, e);
+            log.error("Failed to write batch report for date: {}", batchDate, e);
             throw new RuntimeException("Batch report generation failed", e);
         }
     }
 
+    /**
+     * Send a report rendered earlier by {@link #prepareBatchReport(LocalDate)}
+     */
+    public void sendPreparedReport(PreparedReport report) {
+        try (ReportProfiler.Run run = profiler.start("send-prepared", report.getBatchDate())) {
+            send(report);
+
+            log.info("Prepared batch report sent for date: {} (rendered {})", report.getBatchDate(), report.getPreparedAt());
+
+        } catch (Exception e) {
+            log.error("Failed to send prepared batch report for date: {}", report.getBatchDate(), e);
+            throw new RuntimeException("Batch report send failed", e);
+        }
+    }
+
+    /**
+     * Render the email report for a batch date without sending it
+     */
+    public PreparedReport prepareBatchReport(LocalDate batchDate) {
+        long dataFingerprint = dataFingerprint(batchDate);
+        ReportContext context = reportContext(batchDate);
+
+        // Use email-optimized HTML instead of regular HTML
+        String htmlContent;
+        try (ReportStageEvent stage = ReportStageEvent.begin("render-email", batchDate)) {
+            htmlContent = renderEmailOptimizedHtml(context);
+            stage.end(recordsRead(context), htmlContent.length());
+        }
+
+        // Only the PNG mode needs a raster image attached, and only if the chart section is in the email
+        byte[] chartPng = htmlContent.contains(CHART_CID_SRC)
+                ? renderChartPng(batchDate, context.getStatusCounts())
+                : null;
+
+        byte[] workbook = reportConfig.getSend().isAttachWorkbook()
+                ? renderWorkbook(batchDate, context.getSummaryData(), context.getScenarioDetails())
+                : null;
+
+        log.debug("Email report for {} computed {}", batchDate, context.getComputed());
+        return new PreparedReport(batchDate, buildSubject(batchDate), htmlContent, chartPng, workbook, dataFingerprint, Instant.now());
+    }
+
+    private byte[] renderWorkbook(LocalDate batchDate, List<BatchSummary> summaries, List<ScenarioDetail> details) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportStageEvent stage = ReportStageEvent.begin("workbook", batchDate)) {
+            writeWorkbook(summaries, details, out);
+            stage.end(summaries.size() + details.size(), out.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private void writeWorkbook(List<BatchSummary> summaries, List<ScenarioDetail> details, OutputStream out) throws IOException {
+        try (XlsxStreamWriter workbook = new XlsxStreamWriter(out, reportConfig.getExport().getCompressionLevel())) {
+            workbook.startSheet("Summary", List.of("Asset Class", "Product", "Entity", "Loaded", "Expected", "Status"));
+            for (BatchSummary summary : summaries) {
+                workbook.row(summary.getAssetClass(), summary.getProduct(), summary.getEntity(),
+                        summary.getLoadCount(), summary.getExpectedCount(), summary.getStatus().name());
+            }
+            workbook.startSheet("Scenarios", List.of("Asset Class", "Product", "Entity", "Scenario", "Expected", "Loaded", "Status"));
+            for (ScenarioDetail detail : details) {
+                workbook.row(detail.getAssetClass(), detail.getProduct(), detail.getEntity(), detail.getScenario(),
+                        detail.isExpected(), detail.isLoaded(), detail.getStatus().name());
+            }
+        }
+    }
+
+    /**
+     * Compute everything the report for a batch date shows, once, so it can be rendered to several formats
+     */
+    public BatchReport buildReport(LocalDate batchDate) {
+        long dataFingerprint = dataFingerprint(batchDate);
+        ReportContext context = reportContext(batchDate);
+
+        return new BatchReport(batchDate, dataFingerprint, context.getTotals(),
+                List.copyOf(context.getSummaryData()),
+                List.copyOf(context.getScenarioDetails()),
+                List.copyOf(context.getBackdatedScenarios()),
+                List.copyOf(context.getStatusCounts()),
+                Map.copyOf(context.getGroupTrends()),
+                context.getHeatmap(),
+                Instant.now());
+    }
+
+    /**
+     * Web report HTML, with the chart inlined, from a computed report
+     */
+    public String renderWebHtml(BatchReport report) {
+        return cached(report.getBatchDate(), ReportArtifactCache.ArtifactType.WEB_PREVIEW, report.getDataFingerprint(), () -> {
+            ReportContext context = reportContext(report);
+            return embedChartImage(report.getBatchDate(), renderBatchReportHtml(context), context);
+        });
+    }
+
+    /**
+     * Email-optimized HTML, with the chart inlined, from a computed report
+     */
+    public String renderEmailHtml(BatchReport report) {
+        return cached(report.getBatchDate(), ReportArtifactCache.ArtifactType.EMAIL_PREVIEW, report.getDataFingerprint(), () -> {
+            ReportContext context = reportContext(report);
+            return embedChartImage(report.getBatchDate(), renderEmailOptimizedHtml(context), context);
+        });
+    }
+
+    /**
+     * The email message as .eml bytes, from a computed report
+     */
+    public byte[] renderEml(BatchReport report) {
+        return cached(report.getBatchDate(), ReportArtifactCache.ArtifactType.EML, report.getDataFingerprint(), () -> {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                createMessage(prepareEmail(report)).writeTo(out);
+                return out.toByteArray();
+            } catch (MessagingException | IOException e) {
+                throw new RuntimeException("Batch report generation failed", e);
+            }
+        });
+    }
+
+    /**
+     * Render the email for a computed report without sending it
+     */
+    public PreparedReport prepareEmail(BatchReport report) {
+        String htmlContent = renderEmailOptimizedHtml(reportContext(report));
+        byte[] chartPng = htmlContent.contains(CHART_CID_SRC)
+                ? renderChartPng(report.getBatchDate(), report.getStatusCounts())
+                : null;
+
+        byte[] workbook = reportConfig.getSend().isAttachWorkbook()
+                ? renderWorkbook(report.getBatchDate(), report.getSummaryData(), report.getScenarioDetails())
+                : null;
+
+        return new PreparedReport(report.getBatchDate(), buildSubject(report.getBatchDate()), htmlContent, chartPng,
+                workbook, report.getDataFingerprint(), Instant.now());
+    }
+
+    /**
+     * Version of the batch history a report for this date is rendered from (the 120-day window ending on it)
+     */
+    public long dataFingerprint(LocalDate batchDate) {
+        return batchStore.fingerprint(batchDate.minusDays(119), batchDate);
+    }
+
 // Add these methods to your BatchReportService class
 
     /**
@@ -87,28 +422,200 @@ public class BatchReportService {
             statusCounts = generateSimulatedStatusCounts(batchDate);
         }
 
-        List<BatchSummary> summaryData = generateSummaryDataWithExpectations(batchRecords);
-        List<ScenarioDetail> scenarioDetails = generateScenarioDetails(batchRecords);
-        List<BackdatedScenario> backdatedScenarios = findRecentlyLoadedBackdatedScenarios(batchDate);
+        return renderEmailOptimizedHtml(reportContext(batchDate, batchStore.transientSegment(batchDate, batchRecords), statusCounts));
+    }
+
+    /**
+     * Report data from a computed report, with the day's segment loaded only if a section asks for it
+     */
+    private ReportContext reportContext(BatchReport report) {
+        return ReportContext.of(report, () -> loadSegment(report.getBatchDate()));
+    }
 
-        return buildEmailOptimizedReport(batchDate, summaryData, scenarioDetails, statusCounts, backdatedScenarios);
+    /**
+     * Lazily evaluated report data for a batch date, from the stored history
+     */
+    private ReportContext reportContext(LocalDate batchDate) {
+        if (aggregatesInDatabase(batchDate)) {
+            // Each dataset is one query returning only its result rows; the segment is loaded only for a
+            // section that asks for it
+            return ReportContext.withoutSegmentScan(batchDate,
+                    () -> loadSegment(batchDate),
+                    () -> summariseInDatabase(batchDate),
+                    () -> scenarioDetailsInDatabase(batchDate),
+                    () -> batchQueryRepository.countLoadedScenarios(batchDate),
+                    () -> batchQueryRepository.countMissingScenarios(batchDate),
+                    () -> findRecentlyLoadedBackdatedScenarios(batchDate),
+                    () -> findStatusCountsForLast120Days(batchDate),
+                    () -> batchStore.getGroupTrends().series(batchDate),
+                    () -> buildCompletenessHeatmap(batchDate));
+        }
+        return new ReportContext(batchDate,
+                () -> loadSegment(batchDate),
+                this::generateSummaryDataWithExpectations,
+                this::generateScenarioDetails,
+                segment -> (long) batchStore.getAggregator().countByScenario(segment).size(),
+                segment -> (long) completenessEngine.missing(segment).cardinality(),
+                () -> findRecentlyLoadedBackdatedScenarios(batchDate),
+                () -> findStatusCountsForLast120Days(batchDate),
+                () -> batchStore.getGroupTrends().series(batchDate),
+                () -> buildCompletenessHeatmap(batchDate));
     }
 
-    private String buildEmailOptimizedReport(LocalDate batchDate, List<BatchSummary> summaryData,
-                                             List<ScenarioDetail> scenarioDetails, List<BatchStatusCount> statusCounts,
-                                             List<BackdatedScenario> backdatedScenarios) {
+    /**
+     * Report data for a segment and status counts supplied by the caller
+     */
+    private ReportContext reportContext(LocalDate batchDate, DateSegment segment, List<BatchStatusCount> statusCounts) {
+        return new ReportContext(batchDate,
+                () -> segment,
+                this::generateSummaryDataWithExpectations,
+                this::generateScenarioDetails,
+                s -> (long) batchStore.getAggregator().countByScenario(s).size(),
+                s -> (long) completenessEngine.missing(s).cardinality(),
+                () -> findRecentlyLoadedBackdatedScenarios(batchDate),
+                () -> statusCounts,
+                // Records supplied for one date carry no history to trend
+                Map::of,
+                () -> buildCompletenessHeatmap(batchDate));
+    }
 
+    /**
+     * Lay out the enabled email sections. Each section pulls only the data it renders from the context.
+     */
+    private String renderEmailOptimizedHtml(ReportContext context) {
+        LocalDate batchDate = context.getBatchDate();
+        ReportConfig.Sections enabled = reportConfig.getSections();
         String formattedDate = batchDate.format(DateTimeFormatter.ofPattern("MMMM d, yyyy"));
         String timestamp = LocalDate.now().format(DateTimeFormatter.ofPattern("MMMM d, yyyy"));
 
-        // Calculate statistics
-        long totalLoaded = summaryData.stream().mapToLong(BatchSummary::getLoadCount).sum();
-        long totalExpected = summaryData.stream().mapToLong(BatchSummary::getExpectedCount).sum();
-        long completeSummaries = summaryData.stream().mapToLong(s -> s.isComplete() ? 1 : 0).sum();
-        long missingScenarios = scenarioDetails.stream().mapToLong(s -> s.getStatus() == ScenarioDetail.ScenarioStatus.MISSING ? 1 : 0).sum();
+        List<EmailSection> sections = new ArrayList<>();
 
-        double completionRate = totalExpected > 0 ? (double) totalLoaded / totalExpected * 100 : 0;
+        // Header with gradient background (email-safe)
+        sections.add(EmailSection.pinned("header", buildEmailHeader(formattedDate)));
+
+        // Overview stats
+        if (enabled.isEnabled(ReportConfig.Channel.EMAIL, "overview")) {
+            ReportTotals totals = context.getTotals();
+            sections.add(EmailSection.pinned("overview", buildEmailOverviewStats(totals.getTotalLoaded(), totals.getTotalExpected(),
+                    totals.getCompletionRate(), totals.getCompleteSummaries(), totals.getMissingScenarios())));
+        }
+
+        // Summary section (always visible unless over budget)
+        if (enabled.isEnabled(ReportConfig.Channel.EMAIL, "summary")) {
+            // Email clients do not render SVG, so the sparklines are text
+            Map<String, String> sparklines = chartRenderer.renderSparklines(context.getGroupTrends(), false);
+            sections.add(EmailSection.collapsible("summary", 3, buildEmailSummarySection(context.getSummaryData(), sparklines),
+                    () -> buildEmailSummaryRollup(batchDate, context.getSummaryData())));
+        }
+
+        // Chart section, as an inline image or email-safe table bars
+        if (enabled.isEnabled(ReportConfig.Channel.EMAIL, "chart")) {
+            sections.add(EmailSection.pinned("chart", buildEmailChartSection(
+                    renderChart(reportConfig.getChart().getEmailMode(), context.getStatusCounts()))));
+        }
+
+        // Details section (first 20 items to avoid email length issues)
+        if (enabled.isEnabled(ReportConfig.Channel.EMAIL, "details")) {
+            sections.add(EmailSection.collapsible("details", 2,
+                    buildEmailDetailsSection(context.getScenarioDetails().stream().limit(20).collect(Collectors.toList())),
+                    () -> buildEmailDetailsRollup(batchDate, context.getScenarioDetails())));
+        }
+
+        // Backdated scenarios
+        if (enabled.isEnabled(ReportConfig.Channel.EMAIL, "backdated")) {
+            sections.add(EmailSection.collapsible("backdated", 1, buildEmailBackdatedSection(context.getBackdatedScenarios()),
+                    () -> buildEmailBackdatedRollup(batchDate, context.getBackdatedScenarios())));
+        }
 
+        customSections(ReportConfig.Channel.EMAIL).forEach(section ->
+                sections.add(EmailSection.pinned(section.getName(), section.render(ReportConfig.Channel.EMAIL, context))));
+
+        // Footer
+        sections.add(EmailSection.pinned("footer", buildEmailFooter(timestamp)));
+
+        return assembleEmail(batchDate, sections);
+    }
+
+    private List<ReportSection> customSections(ReportConfig.Channel channel) {
+        return customSections.stream()
+                .filter(section -> section.supports(channel))
+                .filter(section -> reportConfig.getSections().isEnabled(channel, section.getName()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Lay out the email sections, deduplicating repeated inline styles and collapsing the lowest-priority
+     * sections into rollups until the encoded body fits the configured byte budget
+     */
+    private String assembleEmail(LocalDate batchDate, List<EmailSection> sections) {
+        EmailStyleDeduplicator styles = config.isDedupeStyles()
+                ? EmailStyleDeduplicator.from(sections.stream().map(EmailSection::getHtml).collect(Collectors.toList()), 2)
+                : EmailStyleDeduplicator.disabled();
+
+        String opening = buildEmailOpening(styles.css());
+        String closing = buildEmailClosing();
+
+        Map<String, String> rendered = new LinkedHashMap<>();
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        int totalBytes = utf8Length(opening) + utf8Length(closing);
+        for (EmailSection section : sections) {
+            String html = styles.apply(section.getHtml());
+            rendered.put(section.getName(), html);
+            sizes.put(section.getName(), utf8Length(html));
+            totalBytes += sizes.get(section.getName());
+        }
+
+        int budget = config.getByteBudget();
+        List<String> collapsed = new ArrayList<>();
+        if (budget > 0 && totalBytes > budget) {
+            List<EmailSection> collapseOrder = sections.stream()
+                    .filter(EmailSection::isCollapsible)
+                    .sorted(Comparator.comparingInt(EmailSection::getPriority))
+                    .collect(Collectors.toList());
+            for (EmailSection section : collapseOrder) {
+                if (totalBytes <= budget) {
+                    break;
+                }
+                String rollup = styles.apply(section.getRollup().get());
+                totalBytes += utf8Length(rollup) - sizes.get(section.getName());
+                rendered.put(section.getName(), rollup);
+                sizes.put(section.getName(), utf8Length(rollup));
+                collapsed.add(section.getName());
+            }
+        }
+
+        log.info("Email report for {}: {} bytes (budget {}), sections {}, collapsed {}",
+                batchDate, totalBytes, budget > 0 ? budget : "none", sizes, collapsed);
+        if (budget > 0 && totalBytes > budget) {
+            log.warn("Email report for {} is still {} bytes over budget after condensing", batchDate, totalBytes - budget);
+        }
+
+        StringBuilder html = new StringBuilder(totalBytes);
+        html.append(opening);
+        rendered.values().forEach(html::append);
+        html.append(closing);
+        return html.toString();
+    }
+
+    private static int utf8Length(String text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private String buildEmailOpening(String sharedStyles) {
         StringBuilder html = new StringBuilder();
         html.append("<!DOCTYPE html>\n")
                 .append("<html>\n")
@@ -123,8 +630,15 @@ public class BatchReportService {
                 .append("        </o:OfficeDocumentSettings>\n")
                 .append("    </xml>\n")
                 .append("    <![endif]-->\n")
-                .append(getEmailOptimizedStyles())
-                .append("</head>\n")
+                .append(getEmailOptimizedStyles());
+
+        if (!sharedStyles.isEmpty()) {
+            html.append("    <style type=\"text/css\">\n")
+                    .append(sharedStyles)
+                    .append("    </style>\n");
+        }
+
+        html.append("</head>\n")
                 .append("<body style=\"margin: 0; padding: 0; background-color: white; font-family: Arial, Helvetica, sans-serif;\" bgcolor=\"white\">\n")
 
                 // Use table-based layout optimized for Outlook
@@ -136,40 +650,72 @@ public class BatchReportService {
                 .append("                <tr>\n")
                 .append("                <td>\n")
                 .append("                <![endif]-->\n")
-                .append("                <table cellpadding=\"0\" cellspacing=\"0\" border=\"0\" width=\"100%\" class=\"main-table\" style=\"max-width: 900px; background-color: white; border-radius: 8px; overflow: hidden;\" bgcolor=\"white\">\n")
+                .append("                <table cellpadding=\"0\" cellspacing=\"0\" border=\"0\" width=\"100%\" class=\"main-table\" style=\"max-width: 900px; background-color: white; border-radius: 8px; overflow: hidden;\" bgcolor=\"white\">\n");
+        return html.toString();
+    }
 
-                // Header with gradient background (email-safe)
-                .append(buildEmailHeader(formattedDate))
+    private String buildEmailClosing() {
+        return "                </table>\n" +
+                "                <!--[if (gte mso 9)|(IE)]>\n" +
+                "                </td>\n" +
+                "                </tr>\n" +
+                "                </table>\n" +
+                "                <![endif]-->\n" +
+                "            </td>\n" +
+                "        </tr>\n" +
+                "    </table>\n";
+    }
 
-                // Overview stats
-                .append(buildEmailOverviewStats(totalLoaded, totalExpected, completionRate, completeSummaries, missingScenarios))
+    private String buildEmailSummaryRollup(LocalDate batchDate, List<BatchSummary> summaryData) {
+        Map<BatchSummary.CompletionStatus, Long> byStatus = summaryData.stream()
+                .collect(Collectors.groupingBy(BatchSummary::getStatus, () -> new EnumMap<>(BatchSummary.CompletionStatus.class), Collectors.counting()));
+        String counts = byStatus.entrySet().stream()
+                .map(entry -> String.format("%,d %s", entry.getValue(), entry.getKey().getDisplayName().toLowerCase()))
+                .collect(Collectors.joining(", "));
 
-                // Summary section (always visible)
-                .append(buildEmailSummarySection(summaryData))
+        return buildEmailRollup("📋 Load Summary",
+                String.format("%,d groups: %s.", summaryData.size(), counts), batchDate, "summary");
+    }
 
-                // Chart section with inline image
-                .append(buildEmailChartSection())
+    private String buildEmailDetailsRollup(LocalDate batchDate, List<ScenarioDetail> scenarioDetails) {
+        Map<ScenarioDetail.ScenarioStatus, Long> byStatus = scenarioDetails.stream()
+                .collect(Collectors.groupingBy(ScenarioDetail::getStatus, () -> new EnumMap<>(ScenarioDetail.ScenarioStatus.class), Collectors.counting()));
+        String counts = byStatus.entrySet().stream()
+                .map(entry -> String.format("%,d %s", entry.getValue(), entry.getKey().getDisplayName().toLowerCase()))
+                .collect(Collectors.joining(", "));
 
-                // Details section (first 20 items to avoid email length issues)
-                .append(buildEmailDetailsSection(scenarioDetails.stream().limit(20).collect(Collectors.toList())))
+        return buildEmailRollup("📄 Key Scenario Details",
+                String.format("%,d scenarios: %s.", scenarioDetails.size(), counts), batchDate, "details");
+    }
 
-                // Backdated scenarios
-                .append(buildEmailBackdatedSection(backdatedScenarios))
+    private String buildEmailBackdatedRollup(LocalDate batchDate, List<BackdatedScenario> backdatedScenarios) {
+        long maxDaysLate = backdatedScenarios.stream().mapToLong(BackdatedScenario::getDaysLate).max().orElse(0);
 
-                // Footer
-                .append(buildEmailFooter(timestamp))
+        return buildEmailRollup("🔄 Recently Loaded Backdated Scenarios",
+                String.format("%,d backdated scenarios loaded in the last 7 days, up to %d days late.", backdatedScenarios.size(), maxDaysLate),
+                batchDate, "backdated");
+    }
 
-                .append("                </table>\n")
-                .append("                <!--[if (gte mso 9)|(IE)]>\n")
-                .append("                </td>\n")
-                .append("                </tr>\n")
-                .append("                </table>\n")
-                .append("                <![endif]-->\n")
-                .append("            </td>\n")
-                .append("        </tr>\n")
-                .append("    </table>\n");
+    private String buildEmailRollup(String title, String text, LocalDate batchDate, String anchor) {
+        StringBuilder section = new StringBuilder();
+        section.append("                    <!-- ").append(title.substring(title.indexOf(' ') + 1)).append(" (condensed) -->\n")
+                .append("                    <tr>\n")
+                .append("                        <td style=\"padding: 30px; border-bottom: 1px solid #e0e0e0;\">\n")
+                .append("                            <h2 style=\"color: #006A4E; margin: 0 0 20px 0; font-size: 20px; font-family: Arial, sans-serif;\">").append(title).append("</h2>\n")
+                .append("                            <div style=\"background-color: #e8f5f1; border-left: 4px solid #00A693; padding: 15px; font-family: Arial, sans-serif;\">\n")
+                .append("                                ").append(escapeHtml(text));
+
+        if (config.getReportBaseUrl() != null && !config.getReportBaseUrl().isEmpty()) {
+            section.append(" <a href=\"").append(escapeHtml(config.getReportBaseUrl()))
+                    .append("/preview-batch-report?batchDate=").append(batchDate).append("#").append(anchor)
+                    .append("\" style=\"color: #006A4E; font-weight: bold;\">View the full section</a>");
+        }
 
-        return html.toString();
+        section.append("\n")
+                .append("                            </div>\n")
+                .append("                        </td>\n")
+                .append("                    </tr>\n");
+        return section.toString();
     }
 
     private String getEmailOptimizedStyles() {
@@ -317,7 +863,7 @@ public class BatchReportService {
                 "                    </tr>\n";
     }
 
-    private String buildEmailSummarySection(List<BatchSummary> summaryData) {
+    private String buildEmailSummarySection(List<BatchSummary> summaryData, Map<String, String> sparklines) {
         StringBuilder section = new StringBuilder();
         section.append("                    <!-- Load Summary -->\n")
                 .append("                    <tr>\n")
@@ -335,6 +881,7 @@ public class BatchReportService {
                     .append("                                        <th style=\"background-color: #006A4E !important; color: white !important; padding: 12px; text-align: left; font-size: 13px; font-weight: 600; border: 1px solid #004d37;\">Entity</th>\n")
                     .append("                                        <th style=\"background-color: #006A4E !important; color: white !important; padding: 12px; text-align: right; font-size: 13px; font-weight: 600; border: 1px solid #004d37;\">Loaded</th>\n")
                     .append("                                        <th style=\"background-color: #006A4E !important; color: white !important; padding: 12px; text-align: right; font-size: 13px; font-weight: 600; border: 1px solid #004d37;\">Expected</th>\n")
+                    .append("                                        <th style=\"background-color: #006A4E !important; color: white !important; padding: 12px; text-align: left; font-size: 13px; font-weight: 600; border: 1px solid #004d37;\">").append(trendHeading()).append("</th>\n")
                     .append("                                        <th style=\"background-color: #006A4E !important; color: white !important; padding: 12px; text-align: right; font-size: 13px; font-weight: 600; border: 1px solid #004d37;\">Status</th>\n")
                     .append("                                    </tr>\n")
                     .append("                                </thead>\n")
@@ -352,6 +899,7 @@ public class BatchReportService {
                         .append("                                        <td style=\"padding: 14px 12px; border: 1px solid #e0e0e0; font-size: 14px; background-color: ").append(rowBg).append(" !important;\">").append(escapeHtml(summary.getEntity())).append("</td>\n")
                         .append("                                        <td style=\"padding: 14px 12px; border: 1px solid #e0e0e0; font-size: 14px; text-align: right; font-weight: 600; color: #006A4E; background-color: ").append(rowBg).append(" !important; font-family: 'Segoe UI', Arial, monospace;\">").append(String.format("%,d", summary.getLoadCount())).append("</td>\n")
                         .append("                                        <td style=\"padding: 14px 12px; border: 1px solid #e0e0e0; font-size: 14px; text-align: right; font-weight: 600; color: #006A4E; background-color: ").append(rowBg).append(" !important; font-family: 'Segoe UI', Arial, monospace;\">").append(String.format("%,d", summary.getExpectedCount())).append("</td>\n")
+                        .append("                                        <td style=\"padding: 14px 12px; border: 1px solid #e0e0e0; font-size: 12px; white-space: nowrap; background-color: ").append(rowBg).append(" !important;\">").append(sparklines.getOrDefault(groupKey(summary), "")).append("</td>\n")
                         .append("                                        <td style=\"padding: 14px 12px; border: 1px solid #e0e0e0; font-size: 14px; text-align: right; background-color: ").append(rowBg).append(" !important; font-weight: 700;\" class=\"").append(statusClass).append("\">")
                         .append(statusIcon).append(" ").append(summary.getStatus().getDisplayName()).append("</td>\n")
                         .append("                                    </tr>\n");
@@ -368,14 +916,14 @@ public class BatchReportService {
         return section.toString();
     }
 
-    private String buildEmailChartSection() {
+    private String buildEmailChartSection(String chart) {
         return "                    <!-- Chart Section -->\n" +
                 "                    <tr>\n" +
                 "                        <td style=\"padding: 30px; text-align: center; background-color: #fafafa !important; border-bottom: 1px solid #e0e0e0;\" class=\"chart-bg\" bgcolor=\"#fafafa\">\n" +
                 "                            <h2 style=\"color: #006A4E; margin: 0 0 20px 0; font-size: 20px; font-family: Arial, sans-serif;\">📈 120-Day Load Status Trend</h2>\n" +
-                "                            <img src=\"cid:statusChart\" alt=\"Batch Status Chart\" style=\"max-width: 100%; height: auto; border-radius: 6px; box-shadow: 0 2px 8px rgba(0,0,0,0.15);\"/>\n" +
+                chart +
                 "                            <p style=\"font-size: 12px; color: #666; margin-top: 15px; font-family: Arial, sans-serif;\">\n" +
-                "                                Green: Successfully loaded batches | Red: Missing/failed batches\n" +
+                "                                Green: Loaded scenarios | Red: Missing expected scenarios\n" +
                 "                            </p>\n" +
                 "                        </td>\n" +
                 "                    </tr>\n";
@@ -505,6 +1053,38 @@ public class BatchReportService {
                 "                    </tr>\n";
     }
 
+    /**
+     * Get the load summary for a batch date, one row per expected or loaded group
+     */
+    public List<BatchSummary> findSummaryData(LocalDate batchDate) {
+        if (aggregatesInDatabase(batchDate)) {
+            return summariseInDatabase(batchDate);
+        }
+        return generateSummaryDataWithExpectations(loadSegment(batchDate));
+    }
+
+    /**
+     * Whether to aggregate a date in the database; days with no rows take the in-memory path so they
+     * fall back to simulated data
+     */
+    private boolean aggregatesInDatabase(LocalDate batchDate) {
+        return reportConfig.getStore().getAggregation() == ReportConfig.Aggregation.DATABASE
+                && batchQueryRepository.existsByBatchDate(batchDate);
+    }
+
+    /**
+     * Get the columnar segment for a batch date, falling back to simulated data if nothing was loaded
+     */
+    public DateSegment loadSegment(LocalDate batchDate) {
+        DateSegment segment = batchStore.segment(batchDate);
+
+        // Add simulated data if no real data exists (for demo purposes)
+        if (segment.isEmpty()) {
+            segment = batchStore.transientSegment(batchDate, generateSimulatedBatchRecords(batchDate));
+        }
+        return segment;
+    }
+
     /**
      * Generate simulated batch records for demo purposes when no real data exists
      */
@@ -536,26 +1116,19 @@ public class BatchReportService {
 
     public List<BatchStatusCount> findStatusCountsForLast120Days(LocalDate endDate) {
         LocalDate startDate = endDate.minusDays(119);
-        List<BatchRecord> records = batchQueryRepository.findAllByBatchDateBetween(startDate, endDate);
-
-        // Group by date and count
-        Map<LocalDate, Long> countsByDate = records.stream()
-                .collect(Collectors.groupingBy(
-                        BatchRecord::getBatchDate,
-                        Collectors.counting()
-                ));
+        NavigableMap<LocalDate, DateSegment> segments = batchStore.segments(startDate, endDate);
 
         // If no real data, generate simulated data for the chart
-        if (countsByDate.isEmpty()) {
+        if (segments.values().stream().allMatch(DateSegment::isEmpty)) {
             return generateSimulatedStatusCounts(endDate);
         }
 
         // Generate full 120-day range
         List<BatchStatusCount> statusCounts = new ArrayList<>();
-        for (int i = 119; i >= 0; i--) {
-            LocalDate date = endDate.minusDays(i);
-            Long loadedCount = countsByDate.getOrDefault(date, 0L);
-            Long missingCount = loadedCount == 0 ? 1L : 0L;
+        for (DateSegment segment : segments.values()) {
+            LocalDate date = segment.getBatchDate();
+            Long loadedCount = (long) segment.size();
+            Long missingCount = (long) completenessEngine.missing(segment).cardinality();
 
             statusCounts.add(new BatchStatusCount(date, loadedCount, missingCount));
         }
@@ -570,16 +1143,18 @@ public class BatchReportService {
         List<BatchStatusCount> statusCounts = new ArrayList<>();
         Random random = new Random(endDate.toEpochDay());
 
+        int expectedCount = completenessEngine.expectedCount();
+
         for (int i = 119; i >= 0; i--) {
             LocalDate date = endDate.minusDays(i);
 
-            // Simulate realistic data - most days have loads, some are missing
-            long loadedCount = random.nextInt(60) + 40; // 40-99 loads
-            long missingCount = random.nextDouble() < 0.15 ? 1 : 0; // 15% chance of missing
+            // Simulate realistic data - most days load nearly everything, some days are missing entirely
+            long missingCount = random.nextInt(Math.max(1, expectedCount / 8)); // up to ~12% of scenarios missing
 
-            if (missingCount == 1) {
-                loadedCount = 0; // If missing, no loads
+            if (random.nextDouble() < 0.15) {
+                missingCount = expectedCount; // 15% chance of no loads at all
             }
+            long loadedCount = expectedCount - missingCount;
 
             statusCounts.add(new BatchStatusCount(date, loadedCount, missingCount));
         }
@@ -597,27 +1172,31 @@ public class BatchReportService {
 
         // This would typically use a created_date column, but for demo purposes we'll simulate
         // In production, you'd add a created_date/loaded_date timestamp column to BatchRecord
-        List<BatchRecord> allRecentRecords = batchQueryRepository.findAllByBatchDateBetween(lookbackDate, currentBatchDate.minusDays(1));
+        NavigableMap<LocalDate, DateSegment> recentSegments = batchStore.segments(lookbackDate, currentBatchDate.minusDays(1));
 
         // If no real data, generate simulated backdated scenarios
-        if (allRecentRecords.isEmpty()) {
+        if (recentSegments.values().stream().allMatch(DateSegment::isEmpty)) {
             return generateSimulatedBackdatedScenarios(currentBatchDate);
         }
 
         // Simulate backdated scenarios (in production, filter by created_date > currentBatchDate.minusDays(7))
-        return allRecentRecords.stream()
-                .filter(record -> record.getBatchDate().isBefore(currentBatchDate.minusDays(1)))
-                .map(record -> new BackdatedScenario(
-                        record.getAssetClass(),
-                        record.getProduct(),
-                        record.getScenario(),
-                        record.getEntity(),
-                        record.getBatchDate(),
-                        LocalDate.now() // In production, use actual loaded_date from database
-                ))
-                .sorted((a, b) -> b.getLoadedDate().compareTo(a.getLoadedDate())) // Most recent first
-                .limit(50) // Limit to prevent overly long reports
-                .collect(Collectors.toList());
+        List<BackdatedScenario> backdatedScenarios = new ArrayList<>();
+        LocalDate loadedDate = LocalDate.now(); // In production, use actual loaded_date from database
+        for (DateSegment segment : recentSegments.headMap(currentBatchDate.minusDays(1), false).descendingMap().values()) {
+            ColumnDictionaries dictionaries = segment.getDictionaries();
+            for (int row = 0; row < segment.size() && backdatedScenarios.size() < 50; row++) { // Limit to prevent overly long reports
+                long key = segment.keyAt(row);
+                backdatedScenarios.add(new BackdatedScenario(
+                        dictionaries.assetClassOf(key),
+                        dictionaries.productOf(key),
+                        dictionaries.scenarioOf(key),
+                        dictionaries.entityOf(key),
+                        segment.getBatchDate(),
+                        loadedDate
+                ));
+            }
+        }
+        return backdatedScenarios;
     }
 
     /**
@@ -664,29 +1243,57 @@ public class BatchReportService {
             statusCounts = generateSimulatedStatusCounts(batchDate);
         }
 
-        List<BatchSummary> summaryData = generateSummaryDataWithExpectations(batchRecords);
-        List<ScenarioDetail> scenarioDetails = generateScenarioDetails(batchRecords);
-        List<BackdatedScenario> backdatedScenarios = findRecentlyLoadedBackdatedScenarios(batchDate);
-        return buildBatchReportEmail(batchDate, summaryData, scenarioDetails, statusCounts, backdatedScenarios);
+        return renderBatchReportHtml(reportContext(batchDate, batchStore.transientSegment(batchDate, batchRecords), statusCounts));
     }
 
-    private String buildBatchReportEmail(LocalDate batchDate, List<BatchSummary> summaryData,
-                                         List<ScenarioDetail> scenarioDetails, List<BatchStatusCount> statusCounts,
-                                         List<BackdatedScenario> backdatedScenarios) {
+    /**
+     * Swap the Content-ID chart reference for a data URL so the HTML renders standalone in a browser
+     */
+    private String embedChartImage(LocalDate batchDate, String html, ReportContext context) {
+        if (!html.contains(CHART_CID_SRC)) {
+            // Chart is drawn as HTML or SVG markup, or the chart section is disabled
+            return html;
+        }
+        String base64Chart = Base64.getEncoder().encodeToString(renderChartPng(batchDate, context.getStatusCounts()));
+        return html.replace(CHART_CID_SRC, "src=\"data:image/png;base64," + base64Chart + "\"");
+    }
+
+    /**
+     * Batch records the render read, zero if it never needed the day's segment
+     */
+    private static long recordsRead(ReportContext context) {
+        DateSegment segment = context.getComputed().contains("segment") ? context.getSegment() : null;
+        return segment != null ? segment.size() : 0;
+    }
 
+    /**
+     * Lay out the enabled web report sections. Each section pulls only the data it renders from the context.
+     */
+    private String renderBatchReportHtml(ReportContext context) {
+        LocalDate batchDate = context.getBatchDate();
+        ReportConfig.Sections enabled = reportConfig.getSections();
         String formattedDate = batchDate.format(DateTimeFormatter.ofPattern("MMMM d, yyyy"));
         String timestamp = LocalDate.now().format(DateTimeFormatter.ofPattern("MMMM d, yyyy"));
 
-        // Calculate statistics
-        long totalLoaded = summaryData.stream().mapToLong(BatchSummary::getLoadCount).sum();
-        long totalExpected = summaryData.stream().mapToLong(BatchSummary::getExpectedCount).sum();
-        long completeSummaries = summaryData.stream().mapToLong(s -> s.isComplete() ? 1 : 0).sum();
-        long loadedScenarios = scenarioDetails.stream().mapToLong(s -> s.isLoaded() ? 1 : 0).sum();
-        long missingScenarios = scenarioDetails.stream().mapToLong(s -> s.getStatus() == ScenarioDetail.ScenarioStatus.MISSING ? 1 : 0).sum();
-
-        int uniqueAssetClasses = (int) summaryData.stream().map(BatchSummary::getAssetClass).distinct().count();
-        int uniqueProducts = (int) summaryData.stream().map(BatchSummary::getProduct).distinct().count();
-        int uniqueEntities = (int) summaryData.stream().map(BatchSummary::getEntity).distinct().count();
+        Map<String, Supplier<String>> sections = new LinkedHashMap<>();
+        sections.put("overview", () -> {
+            ReportTotals totals = context.getTotals();
+            return buildOverviewStatsSection(totals.getTotalLoaded(), totals.getTotalExpected(), totals.getCompleteSummaries(),
+                    totals.getLoadedScenarios(), totals.getMissingScenarios(), totals.getAssetClasses(), totals.getProducts(),
+                    totals.getEntities());
+        });
+        sections.put("summary", () -> buildSummarySection(context.getSummaryData(), chartRenderer.renderSparklines(
+                context.getGroupTrends(), reportConfig.getChart().getWebMode() == ReportConfig.ChartMode.SVG)));
+        sections.put("chart", () -> buildChartSection(renderChart(reportConfig.getChart().getWebMode(), context.getStatusCounts())));
+        sections.put("heatmap", () -> buildHeatmapSection(context.getHeatmap()));
+        sections.put("details", () -> buildDetailSection(context.getScenarioDetails()));
+        sections.put("backdated", () -> buildBackdatedScenariosSection(context.getBackdatedScenarios()));
+        customSections(ReportConfig.Channel.WEB).forEach(section ->
+                sections.put(section.getName(), () -> section.render(ReportConfig.Channel.WEB, context)));
+        sections.keySet().removeIf(name -> !enabled.isEnabled(ReportConfig.Channel.WEB, name));
+
+        StringBuilder body = new StringBuilder();
+        sections.values().forEach(section -> body.append("        \n").append(section.get()));
 
         StringBuilder html = new StringBuilder();
         html.append("<!DOCTYPE html>\n")
@@ -705,17 +1312,8 @@ public class BatchReportService {
                 .append("            <div class=\"batch-date\">").append(formattedDate).append("</div>\n")
                 .append("        </div>\n")
                 .append("        \n")
-                .append(buildNavigationSection())
-                .append("        \n")
-                .append(buildOverviewStatsSection(totalLoaded, totalExpected, completeSummaries, loadedScenarios, missingScenarios, uniqueAssetClasses, uniqueProducts, uniqueEntities))
-                .append("        \n")
-                .append(buildSummarySection(summaryData))
-                .append("        \n")
-                .append(buildChartSection())
-                .append("        \n")
-                .append(buildDetailSection(scenarioDetails))
-                .append("        \n")
-                .append(buildBackdatedScenariosSection(backdatedScenarios))
+                .append(buildNavigationSection(sections.keySet()))
+                .append(body)
                 .append("        \n")
                 .append("        <div class=\"footer\">\n")
                 .append("            <p>Report generated on ").append(timestamp).append(" | Trade Surveillance</p>\n")
@@ -747,15 +1345,18 @@ public class BatchReportService {
         return html.toString();
     }
 
-    private String buildNavigationSection() {
+    private String buildNavigationSection(Set<String> sections) {
+        StringBuilder links = new StringBuilder();
+        NAVIGATION_LINKS.forEach((section, label) -> {
+            if (sections.contains(section)) {
+                links.append("        <a href=\"#").append(section).append("\" class=\"nav-link\">").append(label).append("</a>\n");
+            }
+        });
+
         return "<div class=\"navigation\">\n" +
                 "    <h3>📍 Quick Navigation</h3>\n" +
                 "    <div class=\"nav-links\">\n" +
-                "        <a href=\"#overview\" class=\"nav-link\">📊 Overview</a>\n" +
-                "        <a href=\"#summary\" class=\"nav-link\">📋 Load Summary</a>\n" +
-                "        <a href=\"#chart\" class=\"nav-link\">📈 Status Trend</a>\n" +
-                "        <a href=\"#details\" class=\"nav-link\">📄 Scenario Details</a>\n" +
-                "        <a href=\"#backdated\" class=\"nav-link\">🔄 Recent Backdated</a>\n" +
+                links +
                 "    </div>\n" +
                 "    <div class=\"collapsible-note\">\n" +
                 "        <small>💡 Tip: Click section headers to expand/collapse content</small>\n" +
@@ -763,6 +1364,17 @@ public class BatchReportService {
                 "</div>\n";
     }
 
+    private static Map<String, String> navigationLinks() {
+        Map<String, String> links = new LinkedHashMap<>();
+        links.put("overview", "📊 Overview");
+        links.put("summary", "📋 Load Summary");
+        links.put("chart", "📈 Status Trend");
+        links.put("heatmap", "🟩 Completeness Heatmap");
+        links.put("details", "📄 Scenario Details");
+        links.put("backdated", "🔄 Recent Backdated");
+        return links;
+    }
+
     private String buildOverviewStatsSection(long totalLoaded, long totalExpected, long completeSummaries,
                                              long loadedScenarios, long missingScenarios,
                                              int uniqueAssetClasses, int uniqueProducts, int uniqueEntities) {
@@ -796,7 +1408,7 @@ public class BatchReportService {
                 "</div>\n";
     }
 
-    private String buildSummarySection(List<BatchSummary> summaryData) {
+    private String buildSummarySection(List<BatchSummary> summaryData, Map<String, String> sparklines) {
         if (summaryData.isEmpty()) {
             return "<div id=\"summary\" class=\"section collapsible\">\n" +
                     "    <h2 class=\"collapsible-header\" onclick=\"toggleSection('summary-content')\">📋 Load Summary <span class=\"toggle-indicator\">▼</span></h2>\n" +
@@ -819,6 +1431,7 @@ public class BatchReportService {
                 .append("                        <th>Entity</th>\n")
                 .append("                        <th>Loaded</th>\n")
                 .append("                        <th>Expected</th>\n")
+                .append("                        <th>").append(trendHeading()).append("</th>\n")
                 .append("                        <th>Completion</th>\n")
                 .append("                        <th>Status</th>\n")
                 .append("                    </tr>\n")
@@ -835,6 +1448,7 @@ public class BatchReportService {
                     .append("                        <td>").append(escapeHtml(summary.getEntity())).append("</td>\n")
                     .append("                        <td class=\"number-cell\">").append(String.format("%,d", summary.getLoadCount())).append("</td>\n")
                     .append("                        <td class=\"number-cell\">").append(String.format("%,d", summary.getExpectedCount())).append("</td>\n")
+                    .append("                        <td class=\"trend-cell\">").append(sparklines.getOrDefault(groupKey(summary), "")).append("</td>\n")
                     .append("                        <td class=\"number-cell\">").append(summary.getCompletionPercentage()).append("</td>\n")
                     .append("                        <td class=\"").append(statusClass).append("\">")
                     .append(statusIcon).append(" ").append(summary.getStatus().getDisplayName()).append("</td>\n")
@@ -850,6 +1464,14 @@ public class BatchReportService {
         return section.toString();
     }
 
+    private String trendHeading() {
+        return "Trend (" + reportConfig.getStore().getTrendDays() + "d)";
+    }
+
+    private static String groupKey(BatchSummary summary) {
+        return summary.getAssetClass() + "|" + summary.getProduct() + "|" + summary.getEntity();
+    }
+
     private String buildDetailSection(List<ScenarioDetail> scenarioDetails) {
         if (scenarioDetails.isEmpty()) {
             return "<div id=\"details\" class=\"section collapsible\">\n" +
@@ -954,18 +1576,108 @@ public class BatchReportService {
         return section.toString();
     }
 
-    private String buildChartSection() {
+    private String buildChartSection(String chart) {
         return "<div id=\"chart\" class=\"chart-section collapsible\">\n" +
                 "    <h2 class=\"collapsible-header\" onclick=\"toggleSection('chart-content')\">📈 120-Day Load Status Trend <span class=\"toggle-indicator\">▼</span></h2>\n" +
                 "    <div id=\"chart-content\" class=\"collapsible-content\">\n" +
-                "        <img src=\"cid:statusChart\" alt=\"Batch Status Chart\"/>\n" +
+                chart +
                 "        <p style=\"font-size: 12px; color: #666; margin-top: 15px;\">\n" +
-                "            Green: Successfully loaded batches | Red: Missing/failed batches\n" +
+                "            Green: Loaded scenarios | Red: Missing expected scenarios\n" +
                 "        </p>\n" +
                 "    </div>\n" +
                 "</div>\n";
     }
 
+    /**
+     * Build the scenario x day completeness grid for the 120 days ending on the given date
+     */
+    public CompletenessHeatmap buildCompletenessHeatmap(LocalDate endDate) {
+        NavigableMap<LocalDate, DateSegment> segments = batchStore.segments(endDate.minusDays(119), endDate);
+
+        // If no real data, simulate each day the same way the report does
+        if (segments.values().stream().allMatch(DateSegment::isEmpty)) {
+            for (LocalDate date : segments.keySet()) {
+                segments.put(date, batchStore.transientSegment(date, generateSimulatedBatchRecords(date)));
+            }
+        }
+
+        return completenessEngine.heatmap(segments);
+    }
+
+    /**
+     * Generate a standalone page holding just the completeness heatmap
+     */
+    public String generateCompletenessHeatmapHtml(LocalDate endDate) {
+        String formattedDate = endDate.format(DateTimeFormatter.ofPattern("MMMM d, yyyy"));
+
+        return "<!DOCTYPE html>\n" +
+                "<html>\n" +
+                "<head>\n" +
+                "    <meta charset=\"UTF-8\">\n" +
+                "    <style>\n" +
+                StyleConfig.getStyles() +
+                "    </style>\n" +
+                "</head>\n" +
+                "<body>\n" +
+                "    <div class=\"container\">\n" +
+                "        <div class=\"header\">\n" +
+                "            <h1>🟩 Scenario Completeness Heatmap</h1>\n" +
+                "            <div class=\"batch-date\">" + formattedDate + "</div>\n" +
+                "        </div>\n" +
+                buildHeatmapSection(buildCompletenessHeatmap(endDate)) +
+                "    </div>\n" +
+                "</body>\n" +
+                "</html>";
+    }
+
+    private String buildHeatmapSection(CompletenessHeatmap heatmap) {
+        List<LocalDate> dates = heatmap.getDates();
+        StringBuilder section = new StringBuilder();
+        section.append("<div id=\"heatmap\" class=\"section collapsible\">\n")
+                .append("    <h2 class=\"collapsible-header\" onclick=\"toggleSection('heatmap-content')\">🟩 Scenario Completeness Heatmap <span class=\"toggle-indicator\">▼</span></h2>\n")
+                .append("    <div id=\"heatmap-content\" class=\"collapsible-content\">\n")
+                .append("        <div class=\"info-box\">\n")
+                .append("            <p>Each row is an expected scenario, each column a batch date from ")
+                .append(dates.get(0).format(DateTimeFormatter.ofPattern("yyyy-MM-dd"))).append(" to ")
+                .append(dates.get(dates.size() - 1).format(DateTimeFormatter.ofPattern("yyyy-MM-dd")))
+                .append(". Green: loaded | Red: missing. Hover a cell for its date.</p>\n")
+                .append("        </div>\n")
+                .append("        <div class=\"table-container\">\n")
+                .append("            <table class=\"heatmap\">\n")
+                .append("                <tbody>\n");
+
+        String[] dateLabels = new String[dates.size()];
+        for (int day = 0; day < dates.size(); day++) {
+            dateLabels[day] = dates.get(day).format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+        }
+
+        List<ExpectedScenariosConfig.ExpectedScenario> scenarios = heatmap.getScenarios();
+        for (int row = 0; row < scenarios.size(); row++) {
+            ExpectedScenariosConfig.ExpectedScenario scenario = scenarios.get(row);
+            section.append("                    <tr>\n")
+                    .append("                        <td class=\"heatmap-label\">")
+                    .append(escapeHtml(scenario.getAssetClass())).append(" / ")
+                    .append(escapeHtml(scenario.getProduct())).append(" / ")
+                    .append(escapeHtml(scenario.getEntity())).append(" / ")
+                    .append(escapeHtml(scenario.getScenario()))
+                    .append(" (").append(heatmap.getLoadedDayCount(row)).append("/").append(dates.size()).append(")</td>\n")
+                    .append("                        ");
+            for (int day = 0; day < dates.size(); day++) {
+                section.append("<td class=\"").append(heatmap.isLoaded(row, day) ? "heatmap-loaded" : "heatmap-missing")
+                        .append("\" title=\"").append(dateLabels[day]).append("\"></td>");
+            }
+            section.append("\n                    </tr>\n");
+        }
+
+        section.append("                </tbody>\n")
+                .append("            </table>\n")
+                .append("        </div>\n")
+                .append("    </div>\n")
+                .append("</div>\n");
+
+        return section.toString();
+    }
+
     private String getStatusIcon(BatchSummary.CompletionStatus status) {
         switch (status) {
             case COMPLETE: return "✅";
@@ -993,38 +1705,87 @@ public class BatchReportService {
                 .replace("'", "&#x27;");
     }
 
+    /**
+     * Chart markup for the given mode; PNG references the inline image attached as {@code statusChart}
+     */
+    private String renderChart(ReportConfig.ChartMode mode, List<BatchStatusCount> statusCounts) {
+        switch (mode) {
+            case HTML:
+                return chartRenderer.renderHtml(statusCounts);
+            case SVG:
+                return chartRenderer.renderSvg(statusCounts);
+            default:
+                return "<img src=\"cid:statusChart\" alt=\"Batch Status Chart\" style=\"max-width: 100%; height: auto; border-radius: 6px; box-shadow: 0 2px 8px rgba(0,0,0,0.15);\"/>\n";
+        }
+    }
+
     private String buildSubject(LocalDate batchDate) {
         return String.format("Batch Load Report - %s",
                 batchDate.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
     }
 
-    private void sendEmail(String subject, String htmlContent, File chartFile) throws MessagingException, UnsupportedEncodingException {
+    /**
+     * One message to every recipient, or for a large list one rendered message distributed in envelopes.
+     * Fails if no recipient could be reached.
+     */
+    private void send(PreparedReport report) throws MessagingException, IOException {
+        List<String> recipients = config.getRecipients();
+        long bytes = report.getHtml().length() + (report.getChartPng() != null ? report.getChartPng().length : 0)
+                + (report.getWorkbook() != null ? report.getWorkbook().length : 0);
+        if (!distributor.isBulk(recipients)) {
+            try (ReportStageEvent stage = ReportStageEvent.begin("send", report.getBatchDate())) {
+                mailSender.send(createMessage(report));
+                stage.end(recipients.size(), bytes);
+            }
+            return;
+        }
+
+        DistributionResult result;
+        try (ReportStageEvent stage = ReportStageEvent.begin("send", report.getBatchDate())) {
+            MimeMessage message = createMessage(report);
+            message.setHeader("To", reportConfig.getSend().getDistribution().getToHeader());
+            result = distributor.distribute(message, recipients);
+            stage.end(recipients.size(), bytes);
+        }
+        if (result.getFailedRecipients() >= result.getRecipients()) {
+            // Nobody has it, so the send must not count as done: no receipt, no sent mark, free to retry
+            throw new MessagingException("Batch report for " + report.getBatchDate() + " could not be delivered to any of "
+                    + result.getRecipients() + " recipients");
+        }
+        if (result.getFailedRecipients() > 0) {
+            // Retrying would send it again to everyone who already has it
+            log.error("Batch report for {} could not be delivered to {} of {} recipients",
+                    report.getBatchDate(), result.getFailedRecipients(), result.getRecipients());
+        }
+    }
+
+    private MimeMessage createMessage(PreparedReport report) throws MessagingException, UnsupportedEncodingException {
         MimeMessage message = mailSender.createMimeMessage();
         MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
 
         helper.setFrom(config.getFromAddress(), config.getFromName());
         helper.setTo(config.getRecipients().toArray(new String[0]));
-        helper.setSubject(subject);
-        helper.setText(htmlContent, true);
+        helper.setSubject(report.getSubject());
+        helper.setText(report.getHtml(), true);
 
-        if (chartFile != null) {
-            helper.addInline("statusChart", chartFile);
+        if (report.getChartPng() != null) {
+            helper.addInline("statusChart", new ByteArrayResource(report.getChartPng()), "image/png");
+        }
+        if (report.getWorkbook() != null) {
+            helper.addAttachment("batch-report-" + report.getBatchDate() + ".xlsx",
+                    new ByteArrayResource(report.getWorkbook()), XlsxStreamWriter.CONTENT_TYPE);
         }
 
-        mailSender.send(message);
+        return message;
     }
 
     // Keep all other existing private methods...
-    private List<BatchSummary> generateSummaryDataWithExpectations(List<BatchRecord> batchRecords) {
-        // Group loaded records by asset class, product, and entity
-        Map<String, Long> loadedCounts = batchRecords.stream()
-                .collect(Collectors.groupingBy(
-                        record -> String.format("%s|%s|%s",
-                                record.getAssetClass(),
-                                record.getProduct(),
-                                record.getEntity()),
-                        Collectors.counting()
-                ));
+    private List<BatchSummary> generateSummaryDataWithExpectations(DateSegment segment) {
+        // Group loaded records by asset class, product, and entity with a scan over the segment columns
+        // (split across cores for very large days)
+        ColumnDictionaries dictionaries = segment.getDictionaries();
+        Map<String, Long> loadedCounts = new HashMap<>();
+        batchStore.getAggregator().countByGroup(segment).forEach((groupKey, count) -> loadedCounts.put(dictionaries.groupKeyOf(groupKey), count));
 
         // Generate summary for all expected combinations
         List<BatchSummary> summaries = new ArrayList<>();
@@ -1067,121 +1828,76 @@ public class BatchReportService {
         }
 
         return summaries.stream()
-                .sorted((a, b) -> {
-                    int assetClassCompare = a.getAssetClass().compareTo(b.getAssetClass());
-                    if (assetClassCompare != 0) return assetClassCompare;
-
-                    int productCompare = a.getProduct().compareTo(b.getProduct());
-                    if (productCompare != 0) return productCompare;
+                .sorted(SUMMARY_ORDER)
+                .collect(Collectors.toList());
+    }
 
-                    return a.getEntity().compareTo(b.getEntity());
-                })
+    /**
+     * The summary rows computed by {@link BatchQueryRepository#summarise}, in the same order as the in-memory path
+     */
+    private List<BatchSummary> summariseInDatabase(LocalDate batchDate) {
+        return batchQueryRepository.summarise(batchDate).stream()
+                .map(row -> new BatchSummary(row.getAssetClass(), row.getProduct(), row.getEntity(),
+                        row.getLoaded(), row.getExpected(),
+                        row.getExpected() == 0
+                                ? BatchSummary.CompletionStatus.UNKNOWN
+                                : BatchSummary.CompletionStatus.fromCounts(row.getLoaded(), row.getExpected())))
+                .sorted(SUMMARY_ORDER)
                 .collect(Collectors.toList());
     }
 
-    private List<ScenarioDetail> generateScenarioDetails(List<BatchRecord> batchRecords) {
-        // Create a set of loaded scenarios
-        Set<String> loadedScenarios = batchRecords.stream()
-                .map(record -> String.format("%s|%s|%s|%s",
-                        record.getAssetClass(),
-                        record.getProduct(),
-                        record.getEntity(),
-                        record.getScenario()))
-                .collect(Collectors.toSet());
+    /**
+     * Build every expected and unexpected scenario for a segment, sorted by asset class, product, entity and scenario
+     */
+    public List<ScenarioDetail> generateScenarioDetails(DateSegment segment) {
+        // Missing scenarios are the expected bitmap minus the loaded bitmap
+        BitSet missing = completenessEngine.missing(segment);
+        List<ExpectedScenariosConfig.ExpectedScenario> catalogue = completenessEngine.getCatalogue();
 
         List<ScenarioDetail> details = new ArrayList<>();
 
         // Add all expected scenarios
-        for (ExpectedScenariosConfig.ExpectedScenario expected : ExpectedScenariosConfig.getAllExpectedScenarios()) {
-            String fullKey = expected.getFullKey();
-            boolean isLoaded = loadedScenarios.contains(fullKey);
+        for (int ordinal = 0; ordinal < catalogue.size(); ordinal++) {
+            ExpectedScenariosConfig.ExpectedScenario expected = catalogue.get(ordinal);
 
             details.add(new ScenarioDetail(
                     expected.getAssetClass(),
                     expected.getProduct(),
                     expected.getScenario(),
                     expected.getEntity(),
-                    isLoaded,
+                    !missing.get(ordinal),
                     true // isExpected = true for all from config
             ));
         }
 
         // Add any unexpected scenarios that were loaded
-        for (BatchRecord record : batchRecords) {
-            boolean isExpected = ExpectedScenariosConfig.isScenarioExpected(
-                    record.getAssetClass(),
-                    record.getProduct(),
-                    record.getEntity(),
-                    record.getScenario()
-            );
-
-            if (!isExpected) {
+        ColumnDictionaries dictionaries = segment.getDictionaries();
+        batchStore.getAggregator().countByScenario(segment).forEach((key, count) -> {
+            if (completenessEngine.ordinalOf(key) < 0) {
                 details.add(new ScenarioDetail(
-                        record.getAssetClass(),
-                        record.getProduct(),
-                        record.getScenario(),
-                        record.getEntity(),
+                        dictionaries.assetClassOf(key),
+                        dictionaries.productOf(key),
+                        dictionaries.scenarioOf(key),
+                        dictionaries.entityOf(key),
                         true, // isLoaded = true
                         false // isExpected = false
                 ));
             }
-        }
+        });
 
         return details.stream()
-                .sorted((a, b) -> {
-                    int assetClassCompare = a.getAssetClass().compareTo(b.getAssetClass());
-                    if (assetClassCompare != 0) return assetClassCompare;
-
-                    int productCompare = a.getProduct().compareTo(b.getProduct());
-                    if (productCompare != 0) return productCompare;
-
-                    int entityCompare = a.getEntity().compareTo(b.getEntity());
-                    if (entityCompare != 0) return entityCompare;
-
-                    return a.getScenario().compareTo(b.getScenario());
-                })
+                .sorted(DETAIL_ORDER)
                 .collect(Collectors.toList());
     }
 
-    private File generateStatusChart(List<BatchStatusCount> statusCounts) throws IOException {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-
-        statusCounts.stream()
-                .sorted((a, b) -> a.getDate().compareTo(b.getDate()))
-                .forEach(count -> {
-                    String dateLabel = count.getDate().format(DateTimeFormatter.ofPattern("MM/dd"));
-                    dataset.addValue(count.getLoadedCount(), "Loaded", dateLabel);
-                    dataset.addValue(count.getMissingCount(), "Missing", dateLabel);
-                });
-
-        JFreeChart chart = ChartFactory.createStackedBarChart(
-                "Batch Load Status - Last 120 Days",
-                "Date",
-                "Count",
-                dataset
-        );
-
-        styleStatusChart(chart);
-
-        Path tempFile = Files.createTempFile("batch-status-chart", ".png");
-        ChartUtils.saveChartAsPNG(tempFile.toFile(), chart, 800, 400);
-
-        return tempFile.toFile();
-    }
-
-    private void styleStatusChart(JFreeChart chart) {
-        chart.setBackgroundPaint(Color.WHITE);
-        chart.getTitle().setFont(new Font("Arial", Font.BOLD, 14));
-
-        CategoryPlot plot = chart.getCategoryPlot();
-        plot.setBackgroundPaint(Color.WHITE);
-        plot.setDomainGridlinesVisible(false);
-        plot.setRangeGridlinesVisible(true);
-        plot.setRangeGridlinePaint(Color.LIGHT_GRAY);
-
-        StackedBarRenderer renderer = (StackedBarRenderer) plot.getRenderer();
-        renderer.setSeriesPaint(0, new Color(76, 175, 80)); // Green for loaded
-        renderer.setSeriesPaint(1, new Color(244, 67, 54)); // Red for missing
-        renderer.setBarPainter(new org.jfree.chart.renderer.category.StandardBarPainter());
+    /**
+     * The scenario rows computed by {@link BatchQueryRepository#scenarioRows}, in the same order as the in-memory path
+     */
+    private List<ScenarioDetail> scenarioDetailsInDatabase(LocalDate batchDate) {
+        return batchQueryRepository.scenarioRows(batchDate).stream()
+                .map(row -> new ScenarioDetail(row.getAssetClass(), row.getProduct(), row.getScenario(), row.getEntity(),
+                        row.getLoaded() == 1, row.getExpected() == 1))
+                .sorted(DETAIL_ORDER)
+                .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,286 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.store.LongCountMap;
+import org.jfree.chart.JFreeChart;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes a chart as an indexed-colour PNG with no alpha channel.
+ * <p>
+ * The status chart is a few flat colours plus anti-aliased text and edges, so it quantises to a small palette with
+ * little visible change: exactly when it has at most 256 colours, otherwise the 256 most frequent are kept and the
+ * rest map to their nearest entry. One byte or less per pixel deflates to a fraction of JFreeChart's 32-bit ARGB
+ * PNG. The image, scanline and deflate buffers are reused across renders from a small pool; renders beyond the
+ * pool's size allocate their own and free them afterwards, so memory stays bounded however many threads render.
+ */
+class ChartPngEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int MAX_COLOURS = 256;
+
+    /**
+     * Idle buffer sets kept; at 800x400 each is about 1.3MB of image plus scanlines
+     */
+    private static final int POOL_SIZE = 2;
+
+    private final int compressionLevel;
+    private final BlockingQueue<Buffers> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    ChartPngEncoder(int compressionLevel) {
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("PNG compression level must be 0-9, not " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    byte[] encode(JFreeChart chart, int width, int height) {
+        Buffers reused = borrow(width, height);
+        try {
+            return encode(chart, width, height, reused);
+        } finally {
+            giveBack(reused);
+        }
+    }
+
+    private byte[] encode(JFreeChart chart, int width, int height, Buffers reused) {
+        Graphics2D g2 = reused.image.createGraphics();
+        try {
+            g2.setColor(Color.WHITE);
+            g2.fillRect(0, 0, width, height);
+            chart.draw(g2, new Rectangle2D.Double(0, 0, width, height));
+        } finally {
+            g2.dispose();
+        }
+
+        int[] pixels = reused.pixels;
+        int[] palette = palette(pixels);
+        int bitDepth = palette.length <= 2 ? 1 : palette.length <= 4 ? 2 : palette.length <= 16 ? 4 : 8;
+        int rowBytes = (width * bitDepth + 7) / 8;
+
+        byte[] scanlines = reused.scanlines(height * (rowBytes + 1));
+        pack(pixels, palette, width, height, bitDepth, rowBytes, scanlines);
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream(height * rowBytes / 4);
+        png.writeBytes(SIGNATURE);
+        writeChunk(png, "IHDR", header(width, height, bitDepth), reused.crc);
+        writeChunk(png, "PLTE", paletteBytes(palette), reused.crc);
+        writeChunk(png, "IDAT", reused.deflate(scanlines, height * (rowBytes + 1), compressionLevel), reused.crc);
+        writeChunk(png, "IEND", new byte[0], reused.crc);
+        return png.toByteArray();
+    }
+
+    /**
+     * Colours in the image, most frequent first, at most 256
+     */
+    private static int[] palette(int[] pixels) {
+        // Charts are long runs of one colour, so counting runs keeps the map work small
+        LongCountMap counts = new LongCountMap(512);
+        int run = pixels[0] & 0xffffff;
+        long length = 0;
+        for (int pixel : pixels) {
+            int rgb = pixel & 0xffffff;
+            if (rgb != run) {
+                counts.add(run, length);
+                run = rgb;
+                length = 0;
+            }
+            length++;
+        }
+        counts.add(run, length);
+
+        long[] byFrequency = new long[counts.size()];
+        int[] next = {0};
+        // Count in the high bits, colour in the low 24, so one sort orders by frequency
+        counts.forEach((rgb, count) -> byFrequency[next[0]++] = (count << 24) | rgb);
+        Arrays.sort(byFrequency);
+
+        int[] palette = new int[Math.min(MAX_COLOURS, byFrequency.length)];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = (int) (byFrequency[byFrequency.length - 1 - i] & 0xffffff);
+        }
+        return palette;
+    }
+
+    private static void pack(int[] pixels, int[] palette, int width, int height, int bitDepth, int rowBytes, byte[] scanlines) {
+        // Palette index plus one per colour, zero until a colour is first seen
+        LongCountMap indexOf = new LongCountMap(palette.length * 2);
+        for (int i = 0; i < palette.length; i++) {
+            indexOf.add(palette[i], i + 1);
+        }
+
+        int pixelsPerByte = 8 / bitDepth;
+        int previousRgb = -1;
+        int index = 0;
+        for (int y = 0; y < height; y++) {
+            int row = y * (rowBytes + 1);
+            scanlines[row] = 0; // Filter type None, which suits indexed images best
+            Arrays.fill(scanlines, row + 1, row + 1 + rowBytes, (byte) 0);
+
+            for (int x = 0; x < width; x++) {
+                int rgb = pixels[y * width + x] & 0xffffff;
+                if (rgb != previousRgb) {
+                    long known = indexOf.get(rgb);
+                    if (known == 0) {
+                        known = nearest(palette, rgb) + 1;
+                        indexOf.add(rgb, known);
+                    }
+                    index = (int) known - 1;
+                    previousRgb = rgb;
+                }
+                int shift = 8 - bitDepth * (x % pixelsPerByte + 1);
+                scanlines[row + 1 + x / pixelsPerByte] |= (byte) (index << shift);
+            }
+        }
+    }
+
+    private static int nearest(int[] palette, int rgb) {
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < palette.length; i++) {
+            int dr = ((palette[i] >> 16) & 0xff) - ((rgb >> 16) & 0xff);
+            int dg = ((palette[i] >> 8) & 0xff) - ((rgb >> 8) & 0xff);
+            int db = (palette[i] & 0xff) - (rgb & 0xff);
+            int distance = dr * dr + dg * dg + db * db;
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static byte[] header(int width, int height, int bitDepth) {
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = (byte) bitDepth;
+        header[9] = 3; // Indexed colour; compression, filter and interlace methods stay 0
+        return header;
+    }
+
+    private static byte[] paletteBytes(int[] palette) {
+        byte[] bytes = new byte[palette.length * 3];
+        for (int i = 0; i < palette.length; i++) {
+            bytes[i * 3] = (byte) (palette[i] >> 16);
+            bytes[i * 3 + 1] = (byte) (palette[i] >> 8);
+            bytes[i * 3 + 2] = (byte) palette[i];
+        }
+        return bytes;
+    }
+
+    private static void writeChunk(ByteArrayOutputStream png, String type, byte[] data, CRC32 crc) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] length = new byte[4];
+        writeInt(length, 0, data.length);
+        png.writeBytes(length);
+        png.writeBytes(typeBytes);
+        png.writeBytes(data);
+
+        crc.reset();
+        crc.update(typeBytes);
+        crc.update(data);
+        byte[] checksum = new byte[4];
+        writeInt(checksum, 0, (int) crc.getValue());
+        png.writeBytes(checksum);
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    private Buffers borrow(int width, int height) {
+        Buffers reused = pool.poll();
+        if (reused != null && reused.fits(width, height)) {
+            return reused;
+        }
+        if (reused != null) {
+            reused.free();
+        }
+        return new Buffers(width, height);
+    }
+
+    private void giveBack(Buffers reused) {
+        if (!pool.offer(reused)) {
+            reused.free();
+        }
+    }
+
+    /**
+     * Free the pooled buffers' native deflate memory
+     */
+    void close() {
+        Buffers idle;
+        while ((idle = pool.poll()) != null) {
+            idle.free();
+        }
+    }
+
+    /**
+     * Working memory for one render at one image size
+     */
+    private static class Buffers {
+        private final BufferedImage image;
+        private final int[] pixels;
+        private final Deflater deflater = new Deflater();
+        private final CRC32 crc = new CRC32();
+        private byte[] scanlines = new byte[0];
+        private byte[] compressed = new byte[0];
+
+        Buffers(int width, int height) {
+            // Opaque RGB: the chart background is white, so there is no alpha to keep
+            this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+
+        boolean fits(int width, int height) {
+            return image.getWidth() == width && image.getHeight() == height;
+        }
+
+        /**
+         * Release the deflater's native memory; the buffers cannot be used afterwards
+         */
+        void free() {
+            deflater.end();
+        }
+
+        byte[] scanlines(int size) {
+            if (scanlines.length < size) {
+                scanlines = new byte[size];
+            }
+            return scanlines;
+        }
+
+        byte[] deflate(byte[] input, int length, int level) {
+            deflater.reset();
+            deflater.setLevel(level);
+            deflater.setInput(input, 0, length);
+            deflater.finish();
+            if (compressed.length < length / 4 + 64) {
+                compressed = new byte[length / 4 + 64];
+            }
+            int size = 0;
+            while (!deflater.finished()) {
+                if (size == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                size += deflater.deflate(compressed, size, compressed.length - size);
+            }
+            return Arrays.copyOf(compressed, size);
+        }
+    }
+}
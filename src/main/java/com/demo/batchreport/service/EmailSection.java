@@ -0,0 +1,31 @@
+package com.demo.batchreport.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.function.Supplier;
+
+/**
+ * A rendered block of the email report. Collapsible sections carry a priority (lower collapses first)
+ * and a short rollup that replaces them when the message would exceed its byte budget.
+ */
+@Getter
+@AllArgsConstructor
+class EmailSection {
+    private final String name;
+    private final int priority;
+    private final String html;
+    private final Supplier<String> rollup;
+
+    static EmailSection pinned(String name, String html) {
+        return new EmailSection(name, Integer.MAX_VALUE, html, null);
+    }
+
+    static EmailSection collapsible(String name, int priority, String html, Supplier<String> rollup) {
+        return new EmailSection(name, priority, html, rollup);
+    }
+
+    boolean isCollapsible() {
+        return rollup != null;
+    }
+}
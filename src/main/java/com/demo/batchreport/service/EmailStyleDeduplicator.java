@@ -0,0 +1,105 @@
+package com.demo.batchreport.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replaces inline {@code style="..."} attributes that repeat across an email with short generated classes
+ * declared once in a head {@code <style>} block.
+ * <p>
+ * Only used with {@code email.dedupe-styles}: some webmail and mobile clients drop head style blocks and would lose
+ * the layout, so it is for recipients whose readers are known to keep them. Styles that occur only once are left
+ * inline.
+ */
+class EmailStyleDeduplicator {
+
+    private static final Pattern TAG = Pattern.compile("<[a-zA-Z][^<>]*>");
+    private static final Pattern STYLE_ATTRIBUTE = Pattern.compile("\\sstyle=\"([^\"]*)\"");
+    private static final Pattern CLASS_ATTRIBUTE = Pattern.compile("\\sclass=\"([^\"]*)\"");
+
+    private final Map<String, String> classesByStyle;
+
+    private EmailStyleDeduplicator(Map<String, String> classesByStyle) {
+        this.classesByStyle = classesByStyle;
+    }
+
+    /**
+     * Collect the styles that repeat at least {@code minOccurrences} times across the given fragments
+     */
+    static EmailStyleDeduplicator from(Collection<String> fragments, int minOccurrences) {
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (String fragment : fragments) {
+            Matcher style = STYLE_ATTRIBUTE.matcher(fragment);
+            while (style.find()) {
+                occurrences.merge(style.group(1), 1, Integer::sum);
+            }
+        }
+
+        Map<String, String> classesByStyle = new LinkedHashMap<>();
+        occurrences.forEach((style, count) -> {
+            // Only worth it when the class reference plus the rule is smaller than the inline copies
+            if (count >= minOccurrences && style.length() > 12) {
+                classesByStyle.put(style, "s" + Integer.toString(classesByStyle.size(), 36));
+            }
+        });
+        return new EmailStyleDeduplicator(classesByStyle);
+    }
+
+    /**
+     * A deduplicator that leaves every style inline
+     */
+    static EmailStyleDeduplicator disabled() {
+        return new EmailStyleDeduplicator(Map.of());
+    }
+
+    /**
+     * CSS rules for the generated classes, to be placed inside the head style block
+     */
+    String css() {
+        StringBuilder css = new StringBuilder();
+        classesByStyle.forEach((style, className) ->
+                css.append("        .").append(className).append(" { ").append(style).append(" }\n"));
+        return css.toString();
+    }
+
+    /**
+     * Rewrite every tag in the fragment whose style is shared to use the generated class instead
+     */
+    String apply(String fragment) {
+        if (classesByStyle.isEmpty()) {
+            return fragment;
+        }
+
+        Matcher tag = TAG.matcher(fragment);
+        StringBuilder result = new StringBuilder(fragment.length());
+        while (tag.find()) {
+            tag.appendReplacement(result, Matcher.quoteReplacement(rewriteTag(tag.group())));
+        }
+        tag.appendTail(result);
+        return result.toString();
+    }
+
+    private String rewriteTag(String tag) {
+        Matcher style = STYLE_ATTRIBUTE.matcher(tag);
+        if (!style.find()) {
+            return tag;
+        }
+        String className = classesByStyle.get(style.group(1));
+        if (className == null) {
+            return tag;
+        }
+
+        String withoutStyle = tag.substring(0, style.start()) + tag.substring(style.end());
+        Matcher existingClass = CLASS_ATTRIBUTE.matcher(withoutStyle);
+        if (existingClass.find()) {
+            return withoutStyle.substring(0, existingClass.start(1)) + existingClass.group(1) + " " + className
+                    + withoutStyle.substring(existingClass.end(1));
+        }
+        int insertAt = withoutStyle.endsWith("/>") ? withoutStyle.length() - 2 : withoutStyle.length() - 1;
+        return withoutStyle.substring(0, insertAt) + " class=\"" + className + "\"" + withoutStyle.substring(insertAt);
+    }
+}
@@ -0,0 +1,34 @@
+package com.demo.batchreport.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A fully rendered email report, ready to be sent without touching the data again.
+ * {@code dataFingerprint} identifies the batch history it was rendered from, so callers can tell if it is stale.
+ */
+@Getter
+@AllArgsConstructor
+public class PreparedReport {
+    private final LocalDate batchDate;
+    private final String subject;
+    private final String html;
+    private final byte[] chartPng;
+    /**
+     * The .xlsx attachment, or null when {@code report.send.attach-workbook} is off
+     */
+    private final byte[] workbook;
+    private final long dataFingerprint;
+    private final Instant preparedAt;
+
+    /**
+     * A report without a workbook attachment
+     */
+    public PreparedReport(LocalDate batchDate, String subject, String html, byte[] chartPng, long dataFingerprint,
+                          Instant preparedAt) {
+        this(batchDate, subject, html, chartPng, null, dataFingerprint, preparedAt);
+    }
+}
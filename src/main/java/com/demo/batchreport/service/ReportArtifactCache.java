@@ -0,0 +1,289 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.Config;
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecordsChangedEvent;
+import com.demo.batchreport.domain.ReportCacheStats;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Rendered report artifacts (HTML variants, EML and chart bytes) for closed batch dates, bounded by total size
+ * and evicted least-recently-used first.
+ * <p>
+ * A report for date X is built from batch dates [X-119, X] (the trend window, which also contains the backdated
+ * window), so a write to date D invalidates the reports for [D, D+119]. Each entry also carries the data
+ * fingerprint it was rendered from and the day it was rendered on; a lookup with a different fingerprint or on
+ * a later day (content stamped with today's date) is a miss. The fingerprint comes from the cached segments, so
+ * a write by another process only changes it once those segments are reloaded, which takes up to
+ * {@code report.store.refresh-after}; until then the earlier render is served.
+ * <p>
+ * With {@code report.cache.disk.enabled} every cached artifact is also written to a {@link ReportArtifactStore},
+ * which answers heap misses, including the first views after a restart. Disk reads and writes happen outside
+ * this cache's lock, so a slow disk does not hold up heap hits. Stored entries are tied to a render fingerprint of
+ * the application version, {@link #RENDER_VERSION} and the settings that change the rendered bytes, so a deploy
+ * or configuration change starts the disk tier afresh.
+ */
+@Slf4j
+@Component
+public class ReportArtifactCache {
+
+    /**
+     * Batch dates a report depends on, counting back from and including its own date
+     */
+    static final int WINDOW_DAYS = 120;
+
+    /**
+     * Bump when a change alters rendered output without changing the application version (snapshot builds)
+     */
+    static final int RENDER_VERSION = 1;
+
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    public enum ArtifactType {
+        WEB_PREVIEW, EMAIL_PREVIEW, EML, CHART_PNG
+    }
+
+    private final ReportConfig reportConfig;
+    private final ReportArtifactStore store;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long weightBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long evictedBytes;
+    private long invalidations;
+    private long diskHits;
+
+    @Autowired
+    public ReportArtifactCache(Config config, ReportConfig reportConfig) {
+        this(reportConfig, openStore(reportConfig.getCache().getDisk(), renderFingerprint(config, reportConfig)));
+    }
+
+    ReportArtifactCache(ReportConfig reportConfig, ReportArtifactStore store) {
+        this.reportConfig = reportConfig;
+        this.store = store;
+    }
+
+    /**
+     * The cached artifact, or null if absent or rendered from different data
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(LocalDate batchDate, ArtifactType type, long dataFingerprint) {
+        Key key = new Key(batchDate, type);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.dataFingerprint == dataFingerprint && entry.renderedOn.equals(LocalDate.now())) {
+                hits++;
+                return (T) entry.value;
+            }
+            if (entry != null) {
+                remove(key);
+            }
+        }
+
+        ReportArtifactStore.Stored stored = store == null ? null : store.get(batchDate, type, dataFingerprint);
+        synchronized (this) {
+            if (stored == null) {
+                misses++;
+                return null;
+            }
+            diskHits++;
+            hits++;
+            Object value = stored.isText() ? new String(stored.getBytes(), StandardCharsets.UTF_8) : stored.getBytes();
+            long maxWeight = reportConfig.getCache().getMaxSize().toBytes();
+            long weight = ENTRY_OVERHEAD_BYTES + stored.getBytes().length;
+            if (weight <= maxWeight) {
+                cacheOnHeap(key, new Entry(value, weight, dataFingerprint, LocalDate.now()), maxWeight);
+            }
+            return (T) value;
+        }
+    }
+
+    /**
+     * Open the artifact in the disk tier for streaming, if it is there and current; the caller must close it
+     */
+    public Optional<ReportArtifactStore.StoredArtifact> openStored(LocalDate batchDate, ArtifactType type, long dataFingerprint) {
+        return store == null ? Optional.empty() : store.open(batchDate, type, dataFingerprint);
+    }
+
+    /**
+     * Cache an artifact (a String or byte[]) if its batch date is closed and it fits in the budget
+     */
+    public void put(LocalDate batchDate, ArtifactType type, long dataFingerprint, Object value) {
+        ReportConfig.Cache settings = reportConfig.getCache();
+        if (!settings.isEnabled() || !isClosed(batchDate)) {
+            return;
+        }
+        byte[] bytes = toBytes(value);
+        long weight = ENTRY_OVERHEAD_BYTES + bytes.length;
+        long maxWeight = settings.getMaxSize().toBytes();
+        if (weight > maxWeight) {
+            return;
+        }
+
+        synchronized (this) {
+            cacheOnHeap(new Key(batchDate, type), new Entry(value, weight, dataFingerprint, LocalDate.now()), maxWeight);
+        }
+        if (store != null) {
+            store.put(batchDate, type, dataFingerprint, bytes, value instanceof String);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private static ReportArtifactStore openStore(ReportConfig.Cache.Disk settings, String renderFingerprint) {
+        if (!settings.isEnabled()) {
+            return null;
+        }
+        try {
+            return new ReportArtifactStore(settings, renderFingerprint);
+        } catch (IllegalStateException e) {
+            log.warn("Report artifact disk tier disabled: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Everything besides the data that decides the rendered bytes: code version and render settings
+     */
+    static String renderFingerprint(Config config, ReportConfig reportConfig) {
+        String sections = reportConfig.getSections().getDisabled().entrySet().stream()
+                .map(disabled -> disabled.getKey() + "=" + new TreeSet<>(disabled.getValue()))
+                .collect(Collectors.joining(","));
+        String settings = String.join("|",
+                String.valueOf(ReportArtifactCache.class.getPackage().getImplementationVersion()),
+                String.valueOf(RENDER_VERSION),
+                String.valueOf(config.getByteBudget()),
+                String.valueOf(config.isDedupeStyles()),
+                String.valueOf(config.getReportBaseUrl()),
+                reportConfig.getChart().toString(),
+                sections);
+        return UUID.nameUUIDFromBytes(settings.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private void cacheOnHeap(Key key, Entry entry, long maxWeight) {
+        remove(key);
+        entries.put(key, entry);
+        weightBytes += entry.weight;
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (weightBytes > maxWeight && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            weightBytes -= evicted.weight;
+            evictions++;
+            evictedBytes += evicted.weight;
+        }
+    }
+
+    /**
+     * Drop every report whose window contains one of the changed dates
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecordsChanged(BatchRecordsChangedEvent event) {
+        int removed;
+        synchronized (this) {
+            int before = entries.size();
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, Entry> cached = it.next();
+                if (dependsOnAny(cached.getKey().batchDate, event.getBatchDates())) {
+                    weightBytes -= cached.getValue().weight;
+                    it.remove();
+                }
+            }
+            removed = before - entries.size();
+            invalidations += removed;
+        }
+        if (store != null) {
+            store.removeIf(reportDate -> dependsOnAny(reportDate, event.getBatchDates()));
+        }
+        if (removed > 0) {
+            log.debug("Invalidated {} cached report artifacts for changes on {}", removed, event.getBatchDates());
+        }
+    }
+
+    public synchronized ReportCacheStats stats() {
+        long lookups = hits + misses;
+        return new ReportCacheStats(hits, misses, lookups == 0 ? 0 : (double) hits / lookups,
+                evictions, evictedBytes, invalidations, entries.size(), weightBytes,
+                reportConfig.getCache().getMaxSize().toBytes(), diskHits,
+                store == null ? 0 : store.size(), store == null ? 0 : store.blobCount(), store == null ? 0 : store.storedBytes());
+    }
+
+    public void invalidateAll() {
+        synchronized (this) {
+            invalidations += entries.size();
+            entries.clear();
+            weightBytes = 0;
+        }
+        if (store != null) {
+            store.removeIf(batchDate -> true);
+        }
+    }
+
+    private boolean isClosed(LocalDate batchDate) {
+        return batchDate.isBefore(LocalDate.now().minusDays(reportConfig.getCache().getClosedAfterDays() - 1L));
+    }
+
+    private static boolean dependsOnAny(LocalDate reportDate, Iterable<LocalDate> changedDates) {
+        for (LocalDate changed : changedDates) {
+            if (!reportDate.isBefore(changed) && reportDate.isBefore(changed.plusDays(WINDOW_DAYS))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            weightBytes -= removed.weight;
+        }
+    }
+
+    private static byte[] toBytes(Object value) {
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof String) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8);
+        }
+        throw new IllegalArgumentException("Unsupported artifact type: " + value.getClass());
+    }
+
+    @Value
+    private static class Key {
+        LocalDate batchDate;
+        ArtifactType type;
+    }
+
+    @Value
+    private static class Entry {
+        Object value;
+        long weight;
+        long dataFingerprint;
+        LocalDate renderedOn;
+    }
+}
@@ -0,0 +1,402 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Disk tier of {@link ReportArtifactCache}: rendered artifacts kept in files so they survive a restart.
+ * <p>
+ * Artifact bytes are content-addressed blobs named by their SHA-256, so identical content (the same chart image
+ * behind several reports) is stored once and reference counted. A small index maps (batch date, artifact type) to
+ * a blob along with the data fingerprint, render day and render fingerprint (code version and render settings) it
+ * was produced from; it is rewritten atomically on every change and kept in least-recently-used order, so eviction
+ * by total blob size survives restarts too. Entries written under a different render fingerprint, by an earlier
+ * deploy or configuration, are dropped when the index is loaded.
+ * <p>
+ * The directory belongs to one process at a time: the store holds an exclusive lock on it from opening until
+ * {@link #close()}, and opening fails while another process (or another store in this one) holds it.
+ */
+@Slf4j
+public class ReportArtifactStore implements Closeable {
+
+    private static final String INDEX_FILE = "index.dat";
+    private static final String LOCK_FILE = "lock";
+    private static final int INDEX_VERSION = 2;
+
+    private final Path directory;
+    private final Path blobs;
+    private final long maxBytes;
+    private final String renderFingerprint;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    private final LinkedHashMap<Key, IndexEntry> index = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Blob> blobsByDigest = new HashMap<>();
+    private long storedBytes;
+
+    /**
+     * @param renderFingerprint identifies the renderer and its settings; stored entries with another are discarded
+     */
+    ReportArtifactStore(ReportConfig.Cache.Disk settings, String renderFingerprint) {
+        this.directory = Paths.get(settings.getDirectory());
+        this.blobs = directory.resolve("blobs");
+        this.maxBytes = settings.getMaxSize().toBytes();
+        this.renderFingerprint = renderFingerprint;
+        try {
+            Files.createDirectories(blobs);
+            lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open report artifact store at " + directory, e);
+        }
+        lock = tryLock(lockChannel);
+        if (lock == null) {
+            closeQuietly(lockChannel);
+            throw new IllegalStateException("Report artifact store at " + directory + " is in use by another process;"
+                    + " give each instance its own report.cache.disk.directory");
+        }
+        try {
+            // Only safe with the lock held: unindexed blobs may otherwise belong to a live store
+            loadIndex();
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Cannot open report artifact store at " + directory, e);
+        }
+        log.info("Report artifact store at {}: {} entries, {} blobs, {} bytes",
+                directory, index.size(), blobsByDigest.size(), storedBytes);
+    }
+
+    /**
+     * The stored bytes, or null if absent or rendered from different data (a stale entry is dropped)
+     */
+    synchronized Stored get(LocalDate batchDate, ReportArtifactCache.ArtifactType type, long dataFingerprint) {
+        IndexEntry entry = current(new Key(batchDate, type), dataFingerprint);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return new Stored(Files.readAllBytes(blobPath(entry.digest)), entry.text);
+        } catch (IOException e) {
+            log.warn("Dropping unreadable report artifact {} {}", batchDate, type, e);
+            remove(new Key(batchDate, type));
+            return null;
+        }
+    }
+
+    /**
+     * Open the stored artifact for streaming, or empty if there is no current entry. The caller must close it.
+     */
+    synchronized Optional<StoredArtifact> open(LocalDate batchDate, ReportArtifactCache.ArtifactType type, long dataFingerprint) {
+        IndexEntry entry = current(new Key(batchDate, type), dataFingerprint);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        try {
+            // Opened under the lock, so a concurrent eviction cannot delete the blob first
+            return Optional.of(new StoredArtifact(FileChannel.open(blobPath(entry.digest), StandardOpenOption.READ), entry.size));
+        } catch (IOException e) {
+            log.warn("Cannot open report artifact {} {}", batchDate, type, e);
+            return Optional.empty();
+        }
+    }
+
+    synchronized void put(LocalDate batchDate, ReportArtifactCache.ArtifactType type, long dataFingerprint,
+                          byte[] bytes, boolean text) {
+        if (bytes.length > maxBytes) {
+            return;
+        }
+        Key key = new Key(batchDate, type);
+        try {
+            String digest = digest(bytes);
+            Blob blob = blobsByDigest.get(digest);
+            if (blob == null) {
+                Path temp = Files.createTempFile(blobs, "blob", ".tmp");
+                Files.write(temp, bytes);
+                Files.move(temp, blobPath(digest), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                blob = new Blob(bytes.length);
+                blobsByDigest.put(digest, blob);
+                storedBytes += bytes.length;
+            }
+            // Reference the new blob before releasing the old one, in case they are the same
+            blob.references++;
+            remove(key);
+            index.put(key, new IndexEntry(digest, bytes.length, dataFingerprint, LocalDate.now(), renderFingerprint, text));
+
+            Iterator<Map.Entry<Key, IndexEntry>> eldest = index.entrySet().iterator();
+            while (storedBytes > maxBytes && eldest.hasNext()) {
+                IndexEntry evicted = eldest.next().getValue();
+                eldest.remove();
+                release(evicted.digest);
+            }
+            writeIndex();
+        } catch (IOException e) {
+            log.warn("Could not store report artifact {} {}", batchDate, type, e);
+        }
+    }
+
+    /**
+     * Drop every entry whose batch date matches
+     */
+    synchronized int removeIf(Predicate<LocalDate> batchDate) {
+        int before = index.size();
+        Iterator<Map.Entry<Key, IndexEntry>> it = index.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, IndexEntry> stored = it.next();
+            if (batchDate.test(stored.getKey().batchDate)) {
+                it.remove();
+                release(stored.getValue().digest);
+            }
+        }
+        int removed = before - index.size();
+        if (removed > 0) {
+            writeIndexQuietly();
+        }
+        return removed;
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    synchronized int blobCount() {
+        return blobsByDigest.size();
+    }
+
+    synchronized long storedBytes() {
+        return storedBytes;
+    }
+
+    /**
+     * Release the directory lock; the store must not be used afterwards
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            lock.release();
+        } catch (IOException e) {
+            log.debug("Could not release report artifact store lock", e);
+        }
+        closeQuietly(lockChannel);
+    }
+
+    private static FileLock tryLock(FileChannel channel) {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException | IOException e) {
+            return null;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Could not close {}", closeable, e);
+        }
+    }
+
+    private IndexEntry current(Key key, long dataFingerprint) {
+        IndexEntry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.dataFingerprint != dataFingerprint || !entry.renderedOn.equals(LocalDate.now())
+                || !entry.renderFingerprint.equals(renderFingerprint)) {
+            remove(key);
+            writeIndexQuietly();
+            return null;
+        }
+        return entry;
+    }
+
+    private void remove(Key key) {
+        IndexEntry removed = index.remove(key);
+        if (removed != null) {
+            release(removed.digest);
+        }
+    }
+
+    private void release(String digest) {
+        Blob blob = blobsByDigest.get(digest);
+        if (blob != null && --blob.references <= 0) {
+            blobsByDigest.remove(digest);
+            storedBytes -= blob.size;
+            try {
+                Files.deleteIfExists(blobPath(digest));
+            } catch (IOException e) {
+                log.warn("Could not delete report artifact blob {}", digest, e);
+            }
+        }
+    }
+
+    private Path blobPath(String digest) {
+        return blobs.resolve(digest + ".bin");
+    }
+
+    private void writeIndexQuietly() {
+        try {
+            writeIndex();
+        } catch (IOException e) {
+            log.warn("Could not write report artifact index", e);
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Path temp = directory.resolve(INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(index.size());
+            // Least recently used first, so the order is restored on load
+            for (Map.Entry<Key, IndexEntry> stored : index.entrySet()) {
+                IndexEntry entry = stored.getValue();
+                out.writeLong(stored.getKey().batchDate.toEpochDay());
+                out.writeUTF(stored.getKey().type.name());
+                out.writeUTF(entry.digest);
+                out.writeLong(entry.size);
+                out.writeLong(entry.dataFingerprint);
+                out.writeLong(entry.renderedOn.toEpochDay());
+                out.writeUTF(entry.renderFingerprint);
+                out.writeBoolean(entry.text);
+            }
+        }
+        Files.move(temp, directory.resolve(INDEX_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void loadIndex() throws IOException {
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexFile)) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(indexFile))) {
+                if (in.readInt() == INDEX_VERSION) {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        LocalDate batchDate = LocalDate.ofEpochDay(in.readLong());
+                        ReportArtifactCache.ArtifactType type = ReportArtifactCache.ArtifactType.valueOf(in.readUTF());
+                        IndexEntry entry = new IndexEntry(in.readUTF(), in.readLong(), in.readLong(),
+                                LocalDate.ofEpochDay(in.readLong()), in.readUTF(), in.readBoolean());
+                        // Another render fingerprint is a miss; its blob is deleted below unless still referenced
+                        if (entry.renderFingerprint.equals(renderFingerprint) && Files.exists(blobPath(entry.digest))) {
+                            index.put(new Key(batchDate, type), entry);
+                            blobsByDigest.computeIfAbsent(entry.digest, digest -> new Blob(entry.size)).references++;
+                        }
+                    }
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Discarding unreadable report artifact index {}", indexFile, e);
+                index.clear();
+                blobsByDigest.clear();
+            }
+        }
+        storedBytes = blobsByDigest.values().stream().mapToLong(blob -> blob.size).sum();
+
+        // Blobs left behind by a crash between writing a blob and writing the index
+        try (Stream<Path> files = Files.list(blobs)) {
+            files.filter(file -> !blobsByDigest.containsKey(file.getFileName().toString().replace(".bin", "")))
+                    .forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Bytes read back from the store, with whether they were stored from a String
+     */
+    @Value
+    static class Stored {
+        byte[] bytes;
+        boolean text;
+    }
+
+    /**
+     * An open stored artifact that is copied to the response in chunks instead of being read into one array
+     */
+    public static class StoredArtifact implements Closeable {
+        private final FileChannel channel;
+        private final long size;
+
+        StoredArtifact(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Copy the whole artifact to the target. A servlet response is not a socket channel, so this goes through a
+         * user-space buffer like any stream copy; it only avoids holding the artifact on the heap.
+         */
+        public void transferTo(WritableByteChannel target) throws IOException {
+            long position = 0;
+            while (position < size) {
+                long transferred = channel.transferTo(position, size - position, target);
+                if (transferred <= 0) {
+                    throw new IOException("Report artifact ended after " + position + " of " + size + " bytes");
+                }
+                position += transferred;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    @Value
+    private static class Key {
+        LocalDate batchDate;
+        ReportArtifactCache.ArtifactType type;
+    }
+
+    @Value
+    private static class IndexEntry {
+        String digest;
+        long size;
+        long dataFingerprint;
+        LocalDate renderedOn;
+        String renderFingerprint;
+        boolean text;
+    }
+
+    private static class Blob {
+        private final long size;
+        private int references;
+
+        Blob(long size) {
+            this.size = size;
+        }
+    }
+}
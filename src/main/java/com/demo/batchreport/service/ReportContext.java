@@ -0,0 +1,217 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.domain.BackdatedScenario;
+import com.demo.batchreport.domain.BatchReport;
+import com.demo.batchreport.domain.BatchStatusCount;
+import com.demo.batchreport.domain.BatchSummary;
+import com.demo.batchreport.domain.CompletenessHeatmap;
+import com.demo.batchreport.domain.ReportTotals;
+import com.demo.batchreport.domain.ScenarioDetail;
+import com.demo.batchreport.store.DateSegment;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The data one report render can draw on. Each dataset is computed the first time a section asks for it
+ * and then reused, so data that only disabled sections need is never queried.
+ * <p>
+ * A context belongs to a single render and is not thread-safe.
+ */
+public class ReportContext {
+
+    private final LocalDate batchDate;
+    private final Lazy<DateSegment> segment;
+    private final Lazy<List<BatchSummary>> summaryData;
+    private final Lazy<List<ScenarioDetail>> scenarioDetails;
+    private final Lazy<Long> loadedScenarioCount;
+    private final Lazy<Long> missingScenarioCount;
+    private final Lazy<ReportTotals> totals;
+    private final Lazy<List<BackdatedScenario>> backdatedScenarios;
+    private final Lazy<List<BatchStatusCount>> statusCounts;
+    private final Lazy<Map<String, long[]>> groupTrends;
+    private final Lazy<CompletenessHeatmap> heatmap;
+    private final Set<String> computed = new LinkedHashSet<>();
+
+    ReportContext(LocalDate batchDate,
+                  Supplier<DateSegment> segment,
+                  Function<DateSegment, List<BatchSummary>> summaryData,
+                  Function<DateSegment, List<ScenarioDetail>> scenarioDetails,
+                  Function<DateSegment, Long> loadedScenarioCount,
+                  Function<DateSegment, Long> missingScenarioCount,
+                  Supplier<List<BackdatedScenario>> backdatedScenarios,
+                  Supplier<List<BatchStatusCount>> statusCounts,
+                  Supplier<Map<String, long[]>> groupTrends,
+                  Supplier<CompletenessHeatmap> heatmap) {
+        this(batchDate, segment, true, summaryData, scenarioDetails, loadedScenarioCount, missingScenarioCount,
+                backdatedScenarios, statusCounts, groupTrends, heatmap);
+    }
+
+    private ReportContext(LocalDate batchDate,
+                          Supplier<DateSegment> segment,
+                          boolean derivedFromSegment,
+                          Function<DateSegment, List<BatchSummary>> summaryData,
+                          Function<DateSegment, List<ScenarioDetail>> scenarioDetails,
+                          Function<DateSegment, Long> loadedScenarioCount,
+                          Function<DateSegment, Long> missingScenarioCount,
+                          Supplier<List<BackdatedScenario>> backdatedScenarios,
+                          Supplier<List<BatchStatusCount>> statusCounts,
+                          Supplier<Map<String, long[]>> groupTrends,
+                          Supplier<CompletenessHeatmap> heatmap) {
+        this.batchDate = batchDate;
+        this.segment = new Lazy<>("segment", segment);
+        // Datasets that do not come from the segment must not load it just to ignore it
+        Supplier<DateSegment> source = derivedFromSegment ? this::getSegment : () -> null;
+        this.summaryData = new Lazy<>("summaryData", () -> summaryData.apply(source.get()));
+        this.scenarioDetails = new Lazy<>("scenarioDetails", () -> scenarioDetails.apply(source.get()));
+        this.loadedScenarioCount = new Lazy<>("loadedScenarioCount", () -> loadedScenarioCount.apply(source.get()));
+        this.missingScenarioCount = new Lazy<>("missingScenarioCount", () -> missingScenarioCount.apply(source.get()));
+        this.totals = new Lazy<>("totals", () -> ReportTotals.of(getSummaryData(), getLoadedScenarioCount(), getMissingScenarioCount()));
+        this.backdatedScenarios = new Lazy<>("backdatedScenarios", backdatedScenarios);
+        this.statusCounts = new Lazy<>("statusCounts", statusCounts);
+        this.groupTrends = new Lazy<>("groupTrends", groupTrends);
+        this.heatmap = new Lazy<>("heatmap", heatmap);
+    }
+
+    /**
+     * A context whose datasets are computed without the day's segment. The segment is loaded only if a
+     * section asks for it.
+     */
+    static ReportContext withoutSegmentScan(LocalDate batchDate,
+                                            Supplier<DateSegment> segment,
+                                            Supplier<List<BatchSummary>> summaryData,
+                                            Supplier<List<ScenarioDetail>> scenarioDetails,
+                                            Supplier<Long> loadedScenarioCount,
+                                            Supplier<Long> missingScenarioCount,
+                                            Supplier<List<BackdatedScenario>> backdatedScenarios,
+                                            Supplier<List<BatchStatusCount>> statusCounts,
+                                            Supplier<Map<String, long[]>> groupTrends,
+                                            Supplier<CompletenessHeatmap> heatmap) {
+        return new ReportContext(batchDate, segment, false,
+                ignored -> summaryData.get(),
+                ignored -> scenarioDetails.get(),
+                ignored -> loadedScenarioCount.get(),
+                ignored -> missingScenarioCount.get(),
+                backdatedScenarios, statusCounts, groupTrends, heatmap);
+    }
+
+    /**
+     * A context over a report that has already been computed; nothing is recomputed, and the segment is only
+     * loaded if a section asks for it
+     */
+    static ReportContext of(BatchReport report, Supplier<DateSegment> segment) {
+        ReportTotals totals = report.getTotals();
+        return withoutSegmentScan(report.getBatchDate(),
+                segment,
+                report::getSummaryData,
+                report::getScenarioDetails,
+                totals::getLoadedScenarios,
+                totals::getMissingScenarios,
+                report::getBackdatedScenarios,
+                report::getStatusCounts,
+                report::getGroupTrends,
+                report::getHeatmap);
+    }
+
+    public LocalDate getBatchDate() {
+        return batchDate;
+    }
+
+    /**
+     * Columnar records for the batch date, for sections that aggregate the rows themselves; never null
+     */
+    public DateSegment getSegment() {
+        return segment.get();
+    }
+
+    /**
+     * One row per expected or loaded (asset class, product, entity) group
+     */
+    public List<BatchSummary> getSummaryData() {
+        return summaryData.get();
+    }
+
+    /**
+     * Every expected and unexpected scenario with its load status
+     */
+    public List<ScenarioDetail> getScenarioDetails() {
+        return scenarioDetails.get();
+    }
+
+    /**
+     * Number of distinct scenarios loaded, expected or not
+     */
+    public long getLoadedScenarioCount() {
+        return loadedScenarioCount.get();
+    }
+
+    /**
+     * Number of expected scenarios not loaded; cheaper than counting {@link #getScenarioDetails()}
+     */
+    public long getMissingScenarioCount() {
+        return missingScenarioCount.get();
+    }
+
+    /**
+     * Overview totals, from one pass over the summary rows
+     */
+    public ReportTotals getTotals() {
+        return totals.get();
+    }
+
+    public List<BackdatedScenario> getBackdatedScenarios() {
+        return backdatedScenarios.get();
+    }
+
+    /**
+     * Loaded and missing counts for the 120 days ending on the batch date
+     */
+    public List<BatchStatusCount> getStatusCounts() {
+        return statusCounts.get();
+    }
+
+    /**
+     * Daily loaded counts per "assetClass|product|entity" group for the trend window ending on the batch date,
+     * oldest first
+     */
+    public Map<String, long[]> getGroupTrends() {
+        return groupTrends.get();
+    }
+
+    public CompletenessHeatmap getHeatmap() {
+        return heatmap.get();
+    }
+
+    /**
+     * Names of the datasets computed so far, in the order they were first asked for
+     */
+    public Set<String> getComputed() {
+        return Collections.unmodifiableSet(computed);
+    }
+
+    private class Lazy<T> {
+        private final String name;
+        private Supplier<T> source;
+        private T value;
+
+        Lazy(String name, Supplier<T> source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        T get() {
+            if (source != null) {
+                value = source.get();
+                source = null;
+                computed.add(name);
+            }
+            return value;
+        }
+    }
+}
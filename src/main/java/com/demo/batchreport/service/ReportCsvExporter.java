@@ -0,0 +1,245 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchSummary;
+import com.demo.batchreport.domain.ScenarioDetail;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import com.demo.batchreport.repository.ExpectedScenarioRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes report datasets as gzip-compressed CSV, straight from a database cursor.
+ * <p>
+ * Each dataset is one native query read as a {@link Stream} inside a read-only transaction, so rows are fetched
+ * a batch at a time and written, compressed and flushed to the caller's stream as they arrive. Nothing holds the
+ * whole dataset; memory stays at the fetch batch plus the write buffer however many rows there are.
+ */
+@Component
+public class ReportCsvExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int STATUS_COUNT_DAYS = 120;
+    private static final int BACKDATED_LOOKBACK_DAYS = 7;
+
+    private final BatchQueryRepository batchQueryRepository;
+    private final ExpectedScenarioRepository expectedScenarioRepository;
+    private final TransactionTemplate readOnly;
+    private final ReportConfig reportConfig;
+
+    public ReportCsvExporter(BatchQueryRepository batchQueryRepository, ExpectedScenarioRepository expectedScenarioRepository,
+                             PlatformTransactionManager transactionManager, ReportConfig reportConfig) {
+        this.batchQueryRepository = batchQueryRepository;
+        this.expectedScenarioRepository = expectedScenarioRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.reportConfig = reportConfig;
+    }
+
+    /**
+     * The datasets that can be exported, by their name in the URL
+     */
+    public enum Dataset {
+        SUMMARY("summary"),
+        SCENARIOS("scenarios"),
+        STATUS_COUNTS("status-counts"),
+        BACKDATED("backdated");
+
+        private final String path;
+
+        Dataset(String path) {
+            this.path = path;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public static Dataset fromPath(String path) {
+            return Arrays.stream(values())
+                    .filter(dataset -> dataset.path.equals(path))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown dataset " + path + "; expected one of "
+                            + Arrays.toString(Arrays.stream(values()).map(Dataset::getPath).toArray())));
+        }
+    }
+
+    /**
+     * Write one dataset for a batch date as gzip-compressed CSV with a header row. The stream is finished but
+     * not closed.
+     *
+     * @return data rows written
+     */
+    public long write(Dataset dataset, LocalDate batchDate, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(reportConfig.getExport().getCompressionLevel());
+            }
+        };
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long rows;
+        try {
+            rows = readOnly.execute(status -> {
+                try {
+                    return writeRows(dataset, batchDate, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        gzip.finish();
+        out.flush();
+        return rows;
+    }
+
+    private long writeRows(Dataset dataset, LocalDate batchDate, Writer out) throws IOException {
+        switch (dataset) {
+            case SUMMARY:
+                return writeSummary(batchDate, out);
+            case SCENARIOS:
+                return writeScenarios(batchDate, out);
+            case STATUS_COUNTS:
+                return writeStatusCounts(batchDate, out);
+            case BACKDATED:
+                return writeBackdated(batchDate, out);
+            default:
+                throw new IllegalArgumentException("Unknown dataset " + dataset);
+        }
+    }
+
+    private long writeSummary(LocalDate batchDate, Writer out) throws IOException {
+        line(out, "asset_class", "product", "entity", "loaded", "expected", "missing", "status");
+        long rows = 0;
+        try (Stream<BatchQueryRepository.GroupCounts> stream = batchQueryRepository.streamSummary(batchDate)) {
+            for (Iterator<BatchQueryRepository.GroupCounts> it = stream.iterator(); it.hasNext(); rows++) {
+                BatchQueryRepository.GroupCounts row = it.next();
+                line(out, row.getAssetClass(), row.getProduct(), row.getEntity(), row.getLoaded(), row.getExpected(),
+                        Math.max(0, row.getExpected() - row.getLoaded()), summaryStatus(row));
+            }
+        }
+        return rows;
+    }
+
+    private long writeScenarios(LocalDate batchDate, Writer out) throws IOException {
+        line(out, "asset_class", "product", "entity", "scenario", "status");
+        long rows = 0;
+        try (Stream<BatchQueryRepository.ScenarioRow> stream = batchQueryRepository.streamScenarioRows(batchDate)) {
+            for (Iterator<BatchQueryRepository.ScenarioRow> it = stream.iterator(); it.hasNext(); rows++) {
+                BatchQueryRepository.ScenarioRow row = it.next();
+                line(out, row.getAssetClass(), row.getProduct(), row.getEntity(), row.getScenario(),
+                        status(row.getLoaded() == 1, row.getExpected() == 1));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * One row per day of the 120 ending on the batch date; a day with no rows has every catalogue scenario missing
+     */
+    private long writeStatusCounts(LocalDate batchDate, Writer out) throws IOException {
+        line(out, "date", "loaded", "missing");
+        LocalDate date = batchDate.minusDays(STATUS_COUNT_DAYS - 1);
+        long expected = expectedScenarioRepository.count();
+        long rows = 0;
+        try (Stream<BatchQueryRepository.DateCounts> stream = batchQueryRepository.streamStatusCounts(date, batchDate)) {
+            for (Iterator<BatchQueryRepository.DateCounts> it = stream.iterator(); it.hasNext(); ) {
+                BatchQueryRepository.DateCounts counts = it.next();
+                for (; date.isBefore(counts.getBatchDate()); date = date.plusDays(1), rows++) {
+                    line(out, date, 0, expected);
+                }
+                line(out, counts.getBatchDate(), counts.getLoaded(), counts.getMissing());
+                date = counts.getBatchDate().plusDays(1);
+                rows++;
+            }
+        }
+        for (; !date.isAfter(batchDate); date = date.plusDays(1), rows++) {
+            line(out, date, 0, expected);
+        }
+        return rows;
+    }
+
+    /**
+     * Rows from the week before the batch date, as the report lists them but without its 50-row cap
+     */
+    private long writeBackdated(LocalDate batchDate, Writer out) throws IOException {
+        line(out, "asset_class", "product", "entity", "scenario", "batch_date", "loaded_date", "days_late");
+        // There is no load timestamp yet, so like the report this takes today as the load date
+        LocalDate loadedDate = LocalDate.now();
+        long rows = 0;
+        try (Stream<Object[]> stream = batchQueryRepository.streamRecords(
+                batchDate.minusDays(BACKDATED_LOOKBACK_DAYS), batchDate.minusDays(2))) {
+            for (Iterator<Object[]> it = stream.iterator(); it.hasNext(); rows++) {
+                Object[] row = it.next();
+                LocalDate recordDate = localDate(row[4]);
+                line(out, row[0], row[1], row[2], row[3], recordDate, loadedDate,
+                        ChronoUnit.DAYS.between(recordDate, loadedDate));
+            }
+        }
+        return rows;
+    }
+
+    private static LocalDate localDate(Object value) {
+        return value instanceof java.sql.Date ? ((java.sql.Date) value).toLocalDate() : (LocalDate) value;
+    }
+
+    static BatchSummary.CompletionStatus summaryStatus(BatchQueryRepository.GroupCounts row) {
+        return row.getExpected() == 0
+                ? BatchSummary.CompletionStatus.UNKNOWN
+                : BatchSummary.CompletionStatus.fromCounts(row.getLoaded(), row.getExpected());
+    }
+
+    static ScenarioDetail.ScenarioStatus status(boolean loaded, boolean expected) {
+        if (expected) {
+            return loaded ? ScenarioDetail.ScenarioStatus.LOADED : ScenarioDetail.ScenarioStatus.MISSING;
+        }
+        return loaded ? ScenarioDetail.ScenarioStatus.UNEXPECTED : ScenarioDetail.ScenarioStatus.NOT_APPLICABLE;
+    }
+
+    private static void line(Writer out, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            if (values[i] != null) {
+                field(out, values[i].toString());
+            }
+        }
+        out.write("\r\n");
+    }
+
+    /**
+     * RFC 4180: quote a field holding a comma, quote or line break, doubling any quotes inside it
+     */
+    private static void field(Writer out, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
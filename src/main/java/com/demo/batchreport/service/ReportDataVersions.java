@@ -0,0 +1,52 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ExpectedScenariosConfig;
+import com.demo.batchreport.store.ColumnarBatchStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Strong entity tags for the report data of a batch date.
+ * Each tag is derived from the fingerprints of the batch dates that feed the dataset, plus the expected
+ * scenario catalogue, so it can be checked without running any aggregation.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReportDataVersions {
+
+    private static final long CATALOGUE_VERSION = ExpectedScenariosConfig.getAllExpectedScenarios().hashCode();
+
+    private final ColumnarBatchStore batchStore;
+
+    public String summaryTag(LocalDate batchDate) {
+        return tag("summary", batchDate, batchStore.fingerprint(batchDate, batchDate));
+    }
+
+    public String detailsTag(LocalDate batchDate) {
+        return tag("details", batchDate, batchStore.fingerprint(batchDate, batchDate));
+    }
+
+    public String statusCountsTag(LocalDate batchDate) {
+        return tag("status", batchDate, batchStore.fingerprint(batchDate.minusDays(119), batchDate));
+    }
+
+    public String backdatedTag(LocalDate batchDate) {
+        // Backdated scenarios are stamped with today's date as their loaded date, so the tag rolls daily
+        long version = batchStore.fingerprint(batchDate.minusDays(7), batchDate.minusDays(1));
+        return tag("backdated", batchDate, 31 * version + LocalDate.now().toEpochDay());
+    }
+
+    /**
+     * Tag for the whole report: the 120-day window, rolling daily like the backdated scenarios it includes
+     */
+    public String reportTag(LocalDate batchDate) {
+        long version = batchStore.fingerprint(batchDate.minusDays(119), batchDate);
+        return tag("report", batchDate, 31 * version + LocalDate.now().toEpochDay());
+    }
+
+    private String tag(String dataset, LocalDate batchDate, long version) {
+        return String.format("\"%s-%s-%016x\"", dataset, batchDate, 31 * version + CATALOGUE_VERSION);
+    }
+}
@@ -0,0 +1,134 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.ReportDispatch;
+import com.demo.batchreport.repository.ReportDispatchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Database-backed lease so that only one instance sends a batch date's report.
+ * Leases expire after {@code report.schedule.lease-ttl}, so a crashed owner is taken over on a later tick;
+ * a live owner keeps its lease with {@link #keepAlive(LocalDate)} for as long as its send runs.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportDispatchLease {
+
+    private final ReportDispatchRepository reportDispatchRepository;
+    private final ReportConfig reportConfig;
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    private final ScheduledExecutorService renewals = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "report-lease-renewal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Try to become (or stay) the sender for a batch date
+     */
+    public boolean acquire(LocalDate batchDate) {
+        Instant now = Instant.now();
+        Instant leaseUntil = now.plus(reportConfig.getSchedule().getLeaseTtl());
+
+        if (reportDispatchRepository.renewLease(batchDate, owner, leaseUntil, now) == 1) {
+            return true;
+        }
+        if (reportDispatchRepository.existsById(batchDate)) {
+            // Held by a live lease elsewhere, or already sent
+            return false;
+        }
+        try {
+            reportDispatchRepository.insertLease(batchDate, owner, leaseUntil);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Lost send lease race for {}", batchDate);
+            return false;
+        }
+    }
+
+    /**
+     * Extend our lease every third of the TTL until the returned handle is closed, so a send that runs longer
+     * than the TTL is not taken over and repeated by another instance
+     */
+    public Renewal keepAlive(LocalDate batchDate) {
+        long periodMillis = Math.max(1, reportConfig.getSchedule().getLeaseTtl().toMillis() / 3);
+        ScheduledFuture<?> renewal = renewals.scheduleAtFixedRate(() -> {
+            try {
+                Instant now = Instant.now();
+                if (reportDispatchRepository.renewLease(batchDate, owner, now.plus(reportConfig.getSchedule().getLeaseTtl()), now) == 0) {
+                    log.warn("Send lease for {} was lost while sending", batchDate);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not extend send lease for {}", batchDate, e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return () -> renewal.cancel(false);
+    }
+
+    /**
+     * The latest batch date whose report has been sent
+     */
+    public Optional<LocalDate> lastSent() {
+        return reportDispatchRepository.findFirstBySentAtIsNotNullOrderByBatchDateDesc().map(ReportDispatch::getBatchDate);
+    }
+
+    public boolean isSent(LocalDate batchDate) {
+        return reportDispatchRepository.findById(batchDate)
+                .map(ReportDispatch::getSentAt)
+                .isPresent();
+    }
+
+    /**
+     * Record the send under our lease
+     *
+     * @return false if the lease had been taken over, so the new owner will send the report again
+     */
+    public boolean markSent(LocalDate batchDate) {
+        if (reportDispatchRepository.markSent(batchDate, owner, Instant.now()) == 0) {
+            log.error("Report for {} was sent but its lease had passed to another instance, which will send it again",
+                    batchDate);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Give the lease up after a failed send so another instance can retry straight away
+     */
+    public void release(LocalDate batchDate) {
+        reportDispatchRepository.releaseLease(batchDate, owner, Instant.now());
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewals.shutdownNow();
+    }
+
+    /**
+     * Stops extending a lease when closed
+     */
+    public interface Renewal extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,229 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.DistributionResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends one rendered message to a large recipient list. The message is serialised once; the recipients are split
+ * into envelopes of {@code report.send.distribution.envelope-size} and sent over a pool of SMTP connections per relay,
+ * each connection opened once and reused for every envelope it takes. Connections to a relay share its rate limit.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportDistributor {
+
+    private final JavaMailSender mailSender;
+    private final ReportConfig reportConfig;
+
+    /**
+     * Whether a recipient list is large enough to be distributed in bulk
+     */
+    public boolean isBulk(List<String> recipients) {
+        return recipients != null && recipients.size() > reportConfig.getSend().getDistribution().getThreshold();
+    }
+
+    /**
+     * Send the message to every recipient in envelopes; its own To and Cc headers are left as they are
+     */
+    public DistributionResult distribute(MimeMessage message, List<String> recipients) throws MessagingException, IOException {
+        if (!(mailSender instanceof JavaMailSenderImpl)) {
+            throw new IllegalStateException("Bulk distribution needs a JavaMailSenderImpl, not " + mailSender.getClass().getName());
+        }
+        JavaMailSenderImpl sender = (JavaMailSenderImpl) mailSender;
+        ReportConfig.Distribution settings = reportConfig.getSend().getDistribution();
+        long started = System.nanoTime();
+
+        // Render the multipart body once; each connection parses its own copy so nothing is shared between threads
+        message.saveChanges();
+        ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+        message.writeTo(rendered);
+        byte[] messageBytes = rendered.toByteArray();
+
+        Queue<Address[]> envelopes = new ConcurrentLinkedQueue<>(envelopes(recipients, settings.getEnvelopeSize()));
+        int envelopeCount = envelopes.size();
+        AtomicInteger sent = new AtomicInteger();
+        AtomicInteger failedRecipients = new AtomicInteger();
+
+        List<Connection> connections = new ArrayList<>();
+        for (ReportConfig.Relay relay : settings.getRelays()) {
+            RateLimiter limiter = new RateLimiter(relay.getMaxMessagesPerSecond());
+            for (int i = 0; i < relay.getConnections(); i++) {
+                connections.add(new Connection(sender, relay, limiter, messageBytes, envelopes, sent, failedRecipients));
+            }
+        }
+        if (connections.isEmpty()) {
+            throw new IllegalStateException("No relay connections configured for bulk distribution");
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(connections.size(), runnable -> {
+            Thread thread = new Thread(runnable, "report-distribution");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            connections.forEach(connection -> running.add(pool.submit(connection::run)));
+            for (Future<?> connection : running) {
+                connection.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while distributing", e);
+        } catch (ExecutionException e) {
+            throw new MessagingException("Distribution connection failed", e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Envelopes no connection could take, because every relay was unreachable or the connections were interrupted
+        Address[] unsent;
+        while ((unsent = envelopes.poll()) != null) {
+            failedRecipients.addAndGet(unsent.length);
+        }
+
+        DistributionResult result = new DistributionResult(sent.get(), recipients.size(), failedRecipients.get(),
+                connections.size(), Duration.ofNanos(System.nanoTime() - started));
+        log.info("Distributed {} of {} envelopes to {} recipients ({} failed) over {} connections in {} ms: {} messages/s",
+                result.getEnvelopes(), envelopeCount, result.getRecipients(), result.getFailedRecipients(),
+                result.getConnections(), result.getElapsed().toMillis(), Math.round(result.getMessagesPerSecond()));
+        return result;
+    }
+
+    private static List<Address[]> envelopes(List<String> recipients, int envelopeSize) throws AddressException {
+        int size = Math.max(1, envelopeSize);
+        List<Address[]> envelopes = new ArrayList<>((recipients.size() + size - 1) / size);
+        for (int from = 0; from < recipients.size(); from += size) {
+            List<String> chunk = recipients.subList(from, Math.min(recipients.size(), from + size));
+            Address[] addresses = new Address[chunk.size()];
+            for (int i = 0; i < addresses.length; i++) {
+                addresses[i] = new InternetAddress(chunk.get(i));
+            }
+            envelopes.add(addresses);
+        }
+        return envelopes;
+    }
+
+    /**
+     * One SMTP connection, taking envelopes from the shared queue until it is empty
+     */
+    @RequiredArgsConstructor
+    private static class Connection {
+        private final JavaMailSenderImpl sender;
+        private final ReportConfig.Relay relay;
+        private final RateLimiter limiter;
+        private final byte[] messageBytes;
+        private final Queue<Address[]> envelopes;
+        private final AtomicInteger sent;
+        private final AtomicInteger failedRecipients;
+
+        void run() {
+            String host = relay.getHost() != null ? relay.getHost() : sender.getHost();
+            int port = relay.getPort() > 0 ? relay.getPort() : sender.getPort();
+            Session session = sender.getSession();
+
+            Transport transport = null;
+            try {
+                MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(messageBytes));
+                transport = connect(session, host, port);
+
+                Address[] envelope;
+                while ((envelope = envelopes.poll()) != null) {
+                    try {
+                        limiter.acquire();
+                    } catch (InterruptedException e) {
+                        // Not sent: put it back for another connection or the count of unsent envelopes
+                        envelopes.add(envelope);
+                        throw e;
+                    }
+                    try {
+                        if (!transport.isConnected()) {
+                            transport.close();
+                            transport = connect(session, host, port);
+                        }
+                        transport.sendMessage(message, envelope);
+                        sent.incrementAndGet();
+                    } catch (MessagingException e) {
+                        log.warn("Envelope of {} recipients via {}:{} failed: {}", envelope.length, host, port, e.getMessage());
+                        failedRecipients.addAndGet(envelope.length);
+                    }
+                }
+            } catch (MessagingException e) {
+                // Leave the remaining envelopes to the other connections
+                log.warn("Cannot connect to relay {}:{} for distribution: {}", host, port, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (transport != null) {
+                    try {
+                        transport.close();
+                    } catch (MessagingException e) {
+                        log.debug("Closing relay connection {}:{} failed", host, port, e);
+                    }
+                }
+            }
+        }
+
+        private Transport connect(Session session, String host, int port) throws MessagingException {
+            Transport transport = session.getTransport(sender.getProtocol() != null ? sender.getProtocol() : "smtp");
+            transport.connect(host, port, sender.getUsername(), sender.getPassword());
+            return transport;
+        }
+    }
+
+    /**
+     * Spaces envelopes evenly at a fixed rate; shared by every connection to a relay
+     */
+    private static class RateLimiter {
+        private final long intervalNanos;
+        private long nextSlot;
+
+        RateLimiter(double permitsPerSecond) {
+            this.intervalNanos = permitsPerSecond > 0 ? (long) (1_000_000_000d / permitsPerSecond) : 0;
+            this.nextSlot = System.nanoTime();
+        }
+
+        void acquire() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(now, nextSlot);
+                nextSlot = slot + intervalNanos;
+                wait = slot - now;
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Brackets report runs with {@link ReportRunEvent}s and, when {@code report.profiling.enabled} is set, keeps a
+ * continuous Flight Recorder recording bounded by {@code max-age} and {@code max-size}. A run slower than
+ * {@code slow-threshold} dumps that recording to {@code directory}, so the JFR file covers the slow run and the
+ * minutes before it. Dumps are written by a background thread, so a slow run is not made slower by copying up to
+ * {@code max-size} of recording; when more than {@code max-files} are waiting, the newest are dropped.
+ */
+@Slf4j
+@Component
+public class ReportProfiler {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final ReportConfig.Profiling settings;
+    private final Recording recording;
+    private final ExecutorService dumps;
+
+    public ReportProfiler(ReportConfig reportConfig) {
+        this.settings = reportConfig.getProfiling();
+        this.recording = settings.isEnabled() ? startRecording() : null;
+        this.dumps = recording != null ? dumpExecutor(settings.getMaxFiles()) : null;
+    }
+
+    /**
+     * Start timing a run; close it when the run ends, normally or not
+     */
+    public Run start(String operation, LocalDate batchDate) {
+        return new Run(operation, batchDate);
+    }
+
+    public boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Finish the dumps already queued, then stop recording
+     */
+    @PreDestroy
+    public void stop() {
+        if (recording == null) {
+            return;
+        }
+        dumps.shutdown();
+        try {
+            if (!dumps.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("JFR dumps still being written at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        recording.close();
+    }
+
+    private static ExecutorService dumpExecutor(int queued) {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, queued)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-profile-dump");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> log.warn("Too many JFR dumps waiting; skipping one"));
+    }
+
+    private Recording startRecording() {
+        try {
+            Recording continuous = new Recording(Configuration.getConfiguration(settings.getSettings()));
+            continuous.setName("batch-report");
+            continuous.setToDisk(true);
+            continuous.setMaxAge(settings.getMaxAge());
+            continuous.setMaxSize(settings.getMaxSize().toBytes());
+            continuous.enable(ReportRunEvent.class);
+            continuous.enable(ReportStageEvent.class);
+            continuous.start();
+            log.info("Profiling report runs slower than {} ms into {}", settings.getSlowThreshold().toMillis(),
+                    settings.getDirectory());
+            return continuous;
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Cannot load JFR settings " + settings.getSettings(), e);
+        }
+    }
+
+    private void dump(String operation, LocalDate batchDate, Duration elapsed) {
+        Path directory = Paths.get(settings.getDirectory());
+        Path file = directory.resolve(String.format("report-%s-%s-%s.jfr",
+                operation, batchDate, LocalDateTime.now().format(FILE_TIMESTAMP)));
+        try {
+            Files.createDirectories(directory);
+            recording.dump(file);
+            log.warn("Report {} for {} took {} ms; JFR recording written to {}", operation, batchDate, elapsed.toMillis(), file);
+            prune(directory);
+        } catch (IOException e) {
+            log.error("Could not write JFR recording for slow report {} for {}", operation, batchDate, e);
+        }
+    }
+
+    private void prune(Path directory) throws IOException {
+        List<Path> dumps;
+        try (Stream<Path> files = Files.list(directory)) {
+            dumps = files.filter(path -> path.getFileName().toString().matches("report-.*\\.jfr"))
+                    .sorted(Comparator.comparing(ReportProfiler::lastModified).thenComparing(Path::toString).reversed())
+                    .collect(Collectors.toList());
+        }
+        for (Path old : dumps.subList(Math.min(settings.getMaxFiles(), dumps.size()), dumps.size())) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    private static Long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * One send, .eml write or preview render in progress
+     */
+    public class Run implements AutoCloseable {
+        private final ReportRunEvent event = new ReportRunEvent();
+        private final LocalDate batchDate;
+        private final long started = System.nanoTime();
+
+        private Run(String operation, LocalDate batchDate) {
+            this.batchDate = batchDate;
+            event.operation = operation;
+            event.batchDate = batchDate.toString();
+            event.begin();
+        }
+
+        @Override
+        public void close() {
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+            event.slow = elapsed.compareTo(settings.getSlowThreshold()) > 0;
+            event.commit();
+            if (event.slow && recording != null) {
+                String operation = event.operation;
+                dumps.execute(() -> dump(operation, batchDate, elapsed));
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.demo.batchreport.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one send or preview; its {@link ReportStageEvent}s fall inside it on the same thread
+ */
+@Name("com.demo.batchreport.ReportRun")
+@Label("Report Run")
+@Category("Batch Report")
+@Description("A batch report send, .eml write or preview render")
+@StackTrace(false)
+final class ReportRunEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Batch Date")
+    String batchDate;
+
+    @Label("Slow")
+    @Description("Slower than report.profiling.slow-threshold")
+    boolean slow;
+}
@@ -0,0 +1,149 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.store.ColumnarBatchStore;
+import com.demo.batchreport.store.CompletenessEngine;
+import com.demo.batchreport.store.DateSegment;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends the previous day's report at its cutoff, with the rendering done ahead of time.
+ * <p>
+ * Each tick the report for yesterday's batch is (re)rendered if the batch is complete or the pre-cutoff
+ * checkpoint has passed, and the data has changed since the last render. At the cutoff the cached render is
+ * sent, guarded by {@link ReportDispatchLease} so only one instance sends. Batch dates whose cutoff passed while
+ * no instance was running are sent on the next tick, up to {@code report.schedule.catch-up-days} back.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportScheduler {
+
+    private final BatchReportService batchReportService;
+    private final ColumnarBatchStore batchStore;
+    private final CompletenessEngine completenessEngine;
+    private final ReportDispatchLease dispatchLease;
+    private final ReportConfig reportConfig;
+
+    private final Map<LocalDate, PreparedReport> prepared = new ConcurrentHashMap<>();
+    private final Set<LocalDate> sent = ConcurrentHashMap.newKeySet();
+
+    public void tick() {
+        try {
+            runAt(ZonedDateTime.now(reportConfig.getSchedule().getZone()));
+        } catch (RuntimeException e) {
+            log.error("Scheduled report run failed", e);
+        }
+    }
+
+    void runAt(ZonedDateTime now) {
+        LocalDate batchDate = now.toLocalDate().minusDays(1);
+        LocalDate oldestUnsent = oldestUnsent(batchDate);
+        prepared.keySet().removeIf(date -> date.isBefore(oldestUnsent));
+        sent.removeIf(date -> date.isBefore(oldestUnsent));
+
+        // Dates missed while no instance was running go out late, oldest first
+        for (LocalDate date = oldestUnsent; date.isBefore(batchDate); date = date.plusDays(1)) {
+            if (!sent.contains(date) && !now.isBefore(cutoffFor(date))) {
+                log.info("Sending report for {} missed at its cutoff {}", date, cutoffFor(date));
+                try {
+                    send(date);
+                } catch (RuntimeException e) {
+                    // Retried on the next tick, but must not hold up yesterday's report
+                    log.error("Late report for {} failed", date, e);
+                }
+            }
+        }
+
+        if (sent.contains(batchDate)) {
+            return;
+        }
+
+        ZonedDateTime cutoff = cutoffFor(batchDate);
+        if (!now.isBefore(cutoff)) {
+            send(batchDate);
+        } else if (!now.isBefore(cutoff.minus(reportConfig.getSchedule().getCheckpoint())) || isComplete(batchDate)) {
+            prepare(batchDate);
+        }
+    }
+
+    /**
+     * The first batch date after the last one sent, looking back at most {@code catch-up-days} before
+     * {@code batchDate}; {@code batchDate} itself when nothing has been sent yet
+     */
+    private LocalDate oldestUnsent(LocalDate batchDate) {
+        int catchUpDays = reportConfig.getSchedule().getCatchUpDays();
+        if (catchUpDays <= 0) {
+            return batchDate;
+        }
+        LocalDate earliest = batchDate.minusDays(catchUpDays);
+        return dispatchLease.lastSent()
+                .map(lastSent -> lastSent.plusDays(1))
+                .map(next -> next.isBefore(earliest) ? earliest : next)
+                .filter(next -> next.isBefore(batchDate))
+                .orElse(batchDate);
+    }
+
+    /**
+     * When the report for a batch date is due
+     */
+    public ZonedDateTime cutoffFor(LocalDate batchDate) {
+        ReportConfig.Schedule schedule = reportConfig.getSchedule();
+        LocalTime time = schedule.getCutoffByDay().getOrDefault(batchDate.getDayOfWeek(), schedule.getCutoff());
+        return batchDate.plusDays(1).atTime(time).atZone(schedule.getZone());
+    }
+
+    /**
+     * The cached render for a batch date, if one has been made
+     */
+    public PreparedReport getPrepared(LocalDate batchDate) {
+        return prepared.get(batchDate);
+    }
+
+    private boolean isComplete(LocalDate batchDate) {
+        DateSegment segment = batchStore.segment(batchDate);
+        return !segment.isEmpty() && completenessEngine.missing(segment).isEmpty();
+    }
+
+    private PreparedReport prepare(LocalDate batchDate) {
+        long dataFingerprint = batchReportService.dataFingerprint(batchDate);
+        PreparedReport current = prepared.get(batchDate);
+        if (current != null && current.getDataFingerprint() == dataFingerprint) {
+            return current;
+        }
+
+        PreparedReport report = batchReportService.prepareBatchReport(batchDate);
+        prepared.put(batchDate, report);
+        log.info("Prepared report for {} ahead of cutoff {}", batchDate, cutoffFor(batchDate));
+        return report;
+    }
+
+    private void send(LocalDate batchDate) {
+        if (!dispatchLease.acquire(batchDate)) {
+            if (dispatchLease.isSent(batchDate)) {
+                sent.add(batchDate);
+            }
+            return;
+        }
+
+        try (ReportDispatchLease.Renewal renewal = dispatchLease.keepAlive(batchDate)) {
+            // Re-renders only if records arrived after the last render
+            batchReportService.sendPreparedReport(prepare(batchDate));
+        } catch (RuntimeException e) {
+            dispatchLease.release(batchDate);
+            throw e;
+        }
+        dispatchLease.markSent(batchDate);
+        sent.add(batchDate);
+        prepared.remove(batchDate);
+    }
+}
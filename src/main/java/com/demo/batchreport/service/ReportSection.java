@@ -0,0 +1,30 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+
+/**
+ * Extension point for adding a section to the report. Register an implementation as a Spring bean and it is
+ * rendered after the built-in sections, before the footer, in {@link org.springframework.core.annotation.Order} order.
+ * <p>
+ * Sections should read everything they need from the {@link ReportContext}; a section that is disabled for a
+ * channel (see {@code report.sections.disabled}) is never rendered, so the data it would have used is never computed.
+ */
+public interface ReportSection {
+
+    /**
+     * Stable name, used to enable or disable the section in configuration
+     */
+    String getName();
+
+    /**
+     * Whether this section has a rendering for the channel at all
+     */
+    default boolean supports(ReportConfig.Channel channel) {
+        return true;
+    }
+
+    /**
+     * Render the section as an HTML fragment. Email fragments must be table-based with inline styles.
+     */
+    String render(ReportConfig.Channel channel, ReportContext context);
+}
@@ -0,0 +1,62 @@
+package com.demo.batchreport.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.time.LocalDate;
+
+/**
+ * Flight Recorder event for one stage of a report run: rendering, the chart image or the send. Open it in a
+ * try-with-resources block so a stage that throws is still recorded, marked as failed.
+ */
+@Name("com.demo.batchreport.ReportStage")
+@Label("Report Stage")
+@Category("Batch Report")
+@Description("One stage of rendering or sending a batch report")
+@StackTrace(false)
+final class ReportStageEvent extends jdk.jfr.Event implements AutoCloseable {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Batch Date")
+    String batchDate;
+
+    @Label("Records")
+    @Description("Batch records read, or recipients for the send stage")
+    long records;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Failed")
+    @Description("The stage threw before it finished")
+    boolean failed = true;
+
+    static ReportStageEvent begin(String stage, LocalDate batchDate) {
+        ReportStageEvent event = new ReportStageEvent();
+        event.stage = stage;
+        event.batchDate = batchDate.toString();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Record what the stage produced; the event is committed when it is closed
+     */
+    void end(long records, long bytes) {
+        this.records = records;
+        this.bytes = bytes;
+        this.failed = false;
+    }
+
+    @Override
+    public void close() {
+        commit();
+    }
+}
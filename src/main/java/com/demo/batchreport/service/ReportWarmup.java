@@ -0,0 +1,161 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchStatusCount;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup warm-up: a throwaway chart render (AWT and fonts), one execution of each repository query (Hibernate
+ * query compilation) and a few renders of both report layouts from simulated data (JIT), run in parallel.
+ * {@code /readiness} reports ready only once it has finished, failed or timed out.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportWarmup {
+
+    /**
+     * A date with no rows, so the query warm-up returns nothing and caches nothing useful
+     */
+    static final LocalDate EMPTY_DATE = LocalDate.of(1970, 1, 1);
+
+    private final BatchReportService batchReportService;
+    private final BatchQueryRepository batchQueryRepository;
+    private final StatusChartRenderer chartRenderer;
+    private final ReportConfig reportConfig;
+
+    private final CompletableFuture<Map<String, Duration>> completion = new CompletableFuture<>();
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void onStarted() {
+        start();
+    }
+
+    /**
+     * Start the warm-up tasks; the returned future completes with each task's time once all have finished
+     */
+    public CompletableFuture<Map<String, Duration>> start() {
+        ReportConfig.Warmup settings = reportConfig.getWarmup();
+        if (!settings.isEnabled() || completion.isDone()) {
+            completion.complete(Map.of());
+            return completion;
+        }
+
+        Map<String, Runnable> tasks = new LinkedHashMap<>();
+        tasks.put("chart", this::warmChart);
+        tasks.put("queries", this::warmQueries);
+        tasks.put("render", () -> warmRender(settings.getIterations()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size(), runnable -> {
+            Thread thread = new Thread(runnable, "report-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long started = System.nanoTime();
+        Map<String, CompletableFuture<Duration>> running = new LinkedHashMap<>();
+        tasks.forEach((name, task) -> running.put(name, CompletableFuture.supplyAsync(() -> timed(name, task), pool)));
+
+        CompletableFuture.allOf(running.values().toArray(new CompletableFuture[0]))
+                .orTimeout(settings.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((ignored, failure) -> {
+                    pool.shutdownNow();
+                    Map<String, Duration> timings = new LinkedHashMap<>();
+                    running.forEach((name, future) -> {
+                        if (future.isDone() && !future.isCompletedExceptionally()) {
+                            timings.put(name, future.join());
+                        }
+                    });
+                    Duration total = Duration.ofNanos(System.nanoTime() - started);
+                    if (failure != null) {
+                        log.warn("Warm-up incomplete after {} ms, ready anyway: {}", total.toMillis(), failure.toString());
+                    } else {
+                        log.info("Warm-up finished in {} ms: {}", total.toMillis(), millis(timings));
+                    }
+                    completion.complete(Collections.unmodifiableMap(timings));
+                });
+        return completion;
+    }
+
+    public boolean isComplete() {
+        return completion.isDone();
+    }
+
+    /**
+     * Milliseconds per warm-up task, empty until warm-up completes or when it is disabled
+     */
+    public Map<String, Long> getTimings() {
+        return completion.isDone() ? millis(completion.join()) : Map.of();
+    }
+
+    private void warmChart() {
+        List<BatchStatusCount> statusCounts = new ArrayList<>();
+        for (int day = 0; day < 120; day++) {
+            statusCounts.add(new BatchStatusCount(EMPTY_DATE.plusDays(day), 60L + day % 7, (long) day % 5));
+        }
+        try {
+            chartRenderer.renderPng(statusCounts);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        chartRenderer.renderSvg(statusCounts);
+        chartRenderer.renderHtml(statusCounts);
+    }
+
+    private void warmQueries() {
+        batchQueryRepository.findAllByBatchDate(EMPTY_DATE);
+        batchQueryRepository.findAllByBatchDateBetween(EMPTY_DATE, EMPTY_DATE);
+        batchQueryRepository.existsByBatchDate(EMPTY_DATE);
+        batchQueryRepository.summarise(EMPTY_DATE);
+        batchQueryRepository.scenarioRows(EMPTY_DATE);
+        batchQueryRepository.countLoadedScenarios(EMPTY_DATE);
+        batchQueryRepository.countMissingScenarios(EMPTY_DATE);
+    }
+
+    private void warmRender(int iterations) {
+        // Empty inputs are replaced with simulated records and status counts; nothing is cached or sent
+        LocalDate batchDate = LocalDate.now().minusDays(1);
+        for (int i = 0; i < iterations; i++) {
+            batchReportService.generateEmailOptimizedHtml(batchDate, List.of(), List.of());
+            batchReportService.generateBatchReportHtml(batchDate, List.of(), List.of());
+        }
+    }
+
+    private static Duration timed(String name, Runnable task) {
+        long started = System.nanoTime();
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // Best effort: a failed step only means that path stays cold
+            log.warn("Warm-up step {} failed", name, e);
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        log.debug("Warm-up step {} took {} ms", name, elapsed.toMillis());
+        return elapsed;
+    }
+
+    private static Map<String, Long> millis(Map<String, Duration> timings) {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        timings.forEach((name, elapsed) -> millis.put(name, elapsed.toMillis()));
+        return millis;
+    }
+}
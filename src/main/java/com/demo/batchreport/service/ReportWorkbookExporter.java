@@ -0,0 +1,83 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes the full-data .xlsx workbook for a batch date straight from database cursors.
+ * <p>
+ * Both sheets are read as {@link Stream}s inside one read-only transaction, like {@link ReportCsvExporter}, and
+ * each row goes into the workbook's zip stream as it arrives. Neither the day's segment nor the summary and
+ * scenario lists are built, so memory stays at the fetch batch plus the write buffer whatever the row count.
+ */
+@Component
+public class ReportWorkbookExporter {
+
+    private final BatchQueryRepository batchQueryRepository;
+    private final TransactionTemplate readOnly;
+    private final ReportConfig reportConfig;
+
+    public ReportWorkbookExporter(BatchQueryRepository batchQueryRepository, PlatformTransactionManager transactionManager,
+                                  ReportConfig reportConfig) {
+        this.batchQueryRepository = batchQueryRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.reportConfig = reportConfig;
+    }
+
+    /**
+     * Write the Summary and Scenarios sheets for a batch date. The stream is finished but not closed.
+     *
+     * @return data rows written across both sheets
+     */
+    public long write(LocalDate batchDate, OutputStream out) throws IOException {
+        try {
+            return readOnly.execute(status -> {
+                try (XlsxStreamWriter workbook = new XlsxStreamWriter(out, reportConfig.getExport().getCompressionLevel())) {
+                    writeSummary(batchDate, workbook);
+                    writeScenarios(batchDate, workbook);
+                    return workbook.getDataRows();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeSummary(LocalDate batchDate, XlsxStreamWriter workbook) throws IOException {
+        workbook.startSheet("Summary", List.of("Asset Class", "Product", "Entity", "Loaded", "Expected", "Status"));
+        try (Stream<BatchQueryRepository.GroupCounts> stream = batchQueryRepository.streamSummary(batchDate)) {
+            for (Iterator<BatchQueryRepository.GroupCounts> it = stream.iterator(); it.hasNext(); ) {
+                BatchQueryRepository.GroupCounts row = it.next();
+                workbook.row(row.getAssetClass(), row.getProduct(), row.getEntity(), row.getLoaded(), row.getExpected(),
+                        ReportCsvExporter.summaryStatus(row).name());
+            }
+        }
+    }
+
+    private void writeScenarios(LocalDate batchDate, XlsxStreamWriter workbook) throws IOException {
+        workbook.startSheet("Scenarios", List.of("Asset Class", "Product", "Entity", "Scenario", "Expected", "Loaded", "Status"));
+        try (Stream<BatchQueryRepository.ScenarioRow> stream = batchQueryRepository.streamScenarioRows(batchDate)) {
+            for (Iterator<BatchQueryRepository.ScenarioRow> it = stream.iterator(); it.hasNext(); ) {
+                BatchQueryRepository.ScenarioRow row = it.next();
+                boolean expected = row.getExpected() == 1;
+                boolean loaded = row.getLoaded() == 1;
+                workbook.row(row.getAssetClass(), row.getProduct(), row.getEntity(), row.getScenario(), expected, loaded,
+                        ReportCsvExporter.status(loaded, expected).name());
+            }
+        }
+    }
+}
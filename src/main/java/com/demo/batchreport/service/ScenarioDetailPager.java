@@ -0,0 +1,193 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.domain.ScenarioDetail;
+import com.demo.batchreport.domain.ScenarioDetailPage;
+import com.demo.batchreport.store.DateSegment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keyset (seek) pagination over the scenario details of a batch date.
+ * <p>
+ * Details are kept as a sorted snapshot per batch date, with a position index per status. A page request
+ * binary-searches each requested status index for the first row after the cursor and merges forward, so
+ * the cost depends on the page size rather than on how deep into the result set the page is.
+ */
+@Service
+@RequiredArgsConstructor
+public class ScenarioDetailPager {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private static final int MAX_SNAPSHOTS = 16;
+    private static final char KEY_SEPARATOR = '\u001F';
+
+    private static final char NULL_MARKER = '\u0000';
+
+    // Must match the order the details are generated in
+    private static final Comparator<ScenarioDetail> KEY_ORDER = BatchReportService.DETAIL_ORDER;
+
+    private final BatchReportService batchReportService;
+
+    private final Map<LocalDate, Snapshot> snapshots = Collections.synchronizedMap(
+            new LinkedHashMap<LocalDate, Snapshot>(MAX_SNAPSHOTS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<LocalDate, Snapshot> eldest) {
+                    return size() > MAX_SNAPSHOTS;
+                }
+            });
+
+    /**
+     * Fetch the page of details that follows {@code after} (null for the first page)
+     *
+     * @param statuses statuses to include; empty means all
+     */
+    public ScenarioDetailPage page(LocalDate batchDate, Collection<ScenarioDetail.ScenarioStatus> statuses,
+                                   String after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+        Set<ScenarioDetail.ScenarioStatus> filter = statuses == null || statuses.isEmpty()
+                ? EnumSet.allOf(ScenarioDetail.ScenarioStatus.class)
+                : EnumSet.copyOf(statuses);
+        ScenarioDetail cursor = after == null || after.isEmpty() ? null : decodeCursor(after);
+
+        Snapshot snapshot = snapshot(batchDate);
+
+        // Seek to the first row after the cursor in each requested status index
+        List<int[]> indexes = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        for (ScenarioDetail.ScenarioStatus status : filter) {
+            int[] positions = snapshot.positionsByStatus.get(status);
+            indexes.add(positions);
+            offsets.add(cursor == null ? 0 : seek(snapshot.details, positions, cursor));
+        }
+
+        // Merge the status indexes forward; they are all in the same sort order
+        List<ScenarioDetail> items = new ArrayList<>(pageSize);
+        boolean more = false;
+        while (true) {
+            int best = -1;
+            for (int i = 0; i < indexes.size(); i++) {
+                int offset = offsets.get(i);
+                if (offset < indexes.get(i).length
+                        && (best < 0 || indexes.get(i)[offset] < indexes.get(best)[offsets.get(best)])) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            if (items.size() == pageSize) {
+                more = true;
+                break;
+            }
+            items.add(snapshot.details[indexes.get(best)[offsets.get(best)]]);
+            offsets.set(best, offsets.get(best) + 1);
+        }
+
+        String nextCursor = more ? encodeCursor(items.get(items.size() - 1)) : null;
+        return new ScenarioDetailPage(batchDate, items, nextCursor);
+    }
+
+    private Snapshot snapshot(LocalDate batchDate) {
+        DateSegment segment = batchReportService.loadSegment(batchDate);
+        Snapshot snapshot = snapshots.get(batchDate);
+        if (snapshot == null || snapshot.fingerprint != segment.getFingerprint()) {
+            snapshot = new Snapshot(segment.getFingerprint(), batchReportService.generateScenarioDetails(segment));
+            snapshots.put(batchDate, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Index into {@code positions} of the first row strictly after the cursor key
+     */
+    private static int seek(ScenarioDetail[] details, int[] positions, ScenarioDetail cursor) {
+        int low = 0;
+        int high = positions.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (KEY_ORDER.compare(details[positions[mid]], cursor) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static String encodeCursor(ScenarioDetail detail) {
+        String key = cursorPart(detail.getAssetClass()) + KEY_SEPARATOR + cursorPart(detail.getProduct())
+                + KEY_SEPARATOR + cursorPart(detail.getEntity()) + KEY_SEPARATOR + cursorPart(detail.getScenario());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ScenarioDetail decodeCursor(String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(String.valueOf(KEY_SEPARATOR), -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        ScenarioDetail key = new ScenarioDetail();
+        key.setAssetClass(cursorValue(parts[0]));
+        key.setProduct(cursorValue(parts[1]));
+        key.setEntity(cursorValue(parts[2]));
+        key.setScenario(cursorValue(parts[3]));
+        return key;
+    }
+
+    /**
+     * A null dimension is written as a lone marker character so it round-trips distinctly from the text "null"
+     */
+    private static String cursorPart(String value) {
+        return value == null ? String.valueOf(NULL_MARKER) : value;
+    }
+
+    private static String cursorValue(String part) {
+        return part.length() == 1 && part.charAt(0) == NULL_MARKER ? null : part;
+    }
+
+    /**
+     * Sorted details for one batch date plus the row positions of each status, in sort order
+     */
+    private static class Snapshot {
+        private final long fingerprint;
+        private final ScenarioDetail[] details;
+        private final Map<ScenarioDetail.ScenarioStatus, int[]> positionsByStatus =
+                new EnumMap<>(ScenarioDetail.ScenarioStatus.class);
+
+        Snapshot(long fingerprint, List<ScenarioDetail> sortedDetails) {
+            this.fingerprint = fingerprint;
+            this.details = sortedDetails.toArray(new ScenarioDetail[0]);
+
+            Map<ScenarioDetail.ScenarioStatus, List<Integer>> positions = new EnumMap<>(ScenarioDetail.ScenarioStatus.class);
+            for (ScenarioDetail.ScenarioStatus status : ScenarioDetail.ScenarioStatus.values()) {
+                positions.put(status, new ArrayList<>());
+            }
+            for (int i = 0; i < details.length; i++) {
+                positions.get(details[i].getStatus()).add(i);
+            }
+            positions.forEach((status, rows) ->
+                    positionsByStatus.put(status, rows.stream().mapToInt(Integer::intValue).toArray()));
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchStatusCount;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartUtils;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.renderer.category.StackedBarRenderer;
+import org.jfree.chart.renderer.category.StandardBarPainter;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Renders the 120-day load status trend as a stacked bar chart, in one of three forms:
+ * a JFreeChart PNG, a table-based HTML bar chart that survives email clients, or inline SVG for browsers.
+ * The markup forms skip AWT entirely, which avoids the headless toolkit and font initialisation cost.
+ */
+@Component
+public class StatusChartRenderer {
+
+    public static final String TITLE = "Batch Load Status - Last 120 Days";
+    public static final int WIDTH = 800;
+    public static final int HEIGHT = 400;
+
+    private static final String LOADED_COLOUR = "#4caf50";
+    private static final String MISSING_COLOUR = "#f44336";
+    private static final int HTML_BAR_HEIGHT = 150;
+    private static final DateTimeFormatter LABEL_FORMAT = DateTimeFormatter.ofPattern("MM/dd");
+    private static final String SPARK_BLOCKS = "\u2581\u2582\u2583\u2584\u2585\u2586\u2587\u2588";
+    private static final int SPARK_STEP = 3;
+    private static final int SPARK_HEIGHT = 16;
+
+    /**
+     * Null when {@code report.chart.png.indexed} is off
+     */
+    private final ChartPngEncoder pngEncoder;
+
+    public StatusChartRenderer() {
+        this(new ReportConfig());
+    }
+
+    @Autowired
+    public StatusChartRenderer(ReportConfig reportConfig) {
+        ReportConfig.Chart.Png png = reportConfig.getChart().getPng();
+        this.pngEncoder = png.isIndexed() ? new ChartPngEncoder(png.getCompressionLevel()) : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pngEncoder != null) {
+            pngEncoder.close();
+        }
+    }
+
+    /**
+     * Render the chart as an 800x400 PNG, indexed-colour unless {@code report.chart.png.indexed} is off
+     */
+    public byte[] renderPng(List<BatchStatusCount> statusCounts) throws IOException {
+        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+
+        sorted(statusCounts).forEach(count -> {
+            String dateLabel = count.getDate().format(LABEL_FORMAT);
+            dataset.addValue(count.getLoadedCount(), "Loaded", dateLabel);
+            dataset.addValue(count.getMissingCount(), "Missing", dateLabel);
+        });
+
+        JFreeChart chart = ChartFactory.createStackedBarChart(TITLE, "Date", "Count", dataset);
+        styleStatusChart(chart);
+
+        if (pngEncoder != null) {
+            return pngEncoder.encode(chart, WIDTH, HEIGHT);
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ChartUtils.writeChartAsPNG(png, chart, WIDTH, HEIGHT);
+        return png.toByteArray();
+    }
+
+    /**
+     * Render the chart as nested tables with fixed-height coloured cells, which Outlook and Gmail both lay out
+     */
+    public String renderHtml(List<BatchStatusCount> statusCounts) {
+        List<BatchStatusCount> counts = sorted(statusCounts);
+        long max = maxTotal(counts);
+
+        StringBuilder html = new StringBuilder(counts.size() * 260);
+        html.append("<table cellpadding=\"0\" cellspacing=\"0\" border=\"0\" width=\"100%\" style=\"font-family: Arial, sans-serif;\">\n")
+                .append("<tr><td colspan=\"").append(counts.size()).append("\" align=\"center\" style=\"font-size: 14px; font-weight: bold; padding-bottom: 10px;\">")
+                .append(TITLE).append("</td></tr>\n")
+                .append("<tr>");
+
+        for (BatchStatusCount count : counts) {
+            int loadedHeight = scale(count.getLoadedCount(), max, HTML_BAR_HEIGHT);
+            int missingHeight = scale(count.getMissingCount(), max, HTML_BAR_HEIGHT);
+            // Each height rounds on its own, so together they can overshoot the bar by a pixel
+            int spacerHeight = Math.max(0, HTML_BAR_HEIGHT - loadedHeight - missingHeight);
+
+            html.append("<td valign=\"bottom\" height=\"").append(HTML_BAR_HEIGHT).append("\" title=\"")
+                    .append(count.getDate()).append(": ").append(count.getLoadedCount()).append(" loaded, ")
+                    .append(count.getMissingCount()).append(" missing\">")
+                    .append("<table cellpadding=\"0\" cellspacing=\"0\" border=\"0\" width=\"100%\">");
+            appendHtmlBarCell(html, spacerHeight, null);
+            appendHtmlBarCell(html, missingHeight, MISSING_COLOUR);
+            appendHtmlBarCell(html, loadedHeight, LOADED_COLOUR);
+            html.append("</table></td>");
+        }
+
+        html.append("</tr>\n<tr>");
+        for (int i = 0; i < counts.size(); i += 10) {
+            int span = Math.min(10, counts.size() - i);
+            html.append("<td colspan=\"").append(span).append("\" style=\"font-size: 10px; color: #666; padding-top: 4px;\">")
+                    .append(counts.get(i).getDate().format(LABEL_FORMAT)).append("</td>");
+        }
+        html.append("</tr>\n</table>\n");
+
+        return html.toString();
+    }
+
+    /**
+     * Render the chart as a self-contained inline SVG element
+     */
+    public String renderSvg(List<BatchStatusCount> statusCounts) {
+        List<BatchStatusCount> counts = sorted(statusCounts);
+        long max = maxTotal(counts);
+
+        int left = 50;
+        int right = 20;
+        int top = 40;
+        int bottom = 60;
+        int plotWidth = WIDTH - left - right;
+        int plotHeight = HEIGHT - top - bottom;
+        double barWidth = counts.isEmpty() ? 0 : (double) plotWidth / counts.size();
+
+        StringBuilder svg = new StringBuilder(counts.size() * 180);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 ").append(WIDTH).append(' ').append(HEIGHT)
+                .append("\" width=\"100%\" style=\"max-width: ").append(WIDTH).append("px; background: white; font-family: Arial, sans-serif;\" role=\"img\" aria-label=\"")
+                .append(TITLE).append("\">\n")
+                .append("<text x=\"").append(WIDTH / 2).append("\" y=\"22\" text-anchor=\"middle\" font-size=\"14\" font-weight=\"bold\">")
+                .append(TITLE).append("</text>\n");
+
+        // Horizontal gridlines with value labels
+        for (int tick = 0; tick <= 4; tick++) {
+            double y = top + plotHeight - (double) plotHeight * tick / 4;
+            svg.append("<line x1=\"").append(left).append("\" x2=\"").append(left + plotWidth)
+                    .append("\" y1=\"").append(format(y)).append("\" y2=\"").append(format(y))
+                    .append("\" stroke=\"#d3d3d3\" stroke-width=\"1\"/>")
+                    .append("<text x=\"").append(left - 6).append("\" y=\"").append(format(y + 4))
+                    .append("\" text-anchor=\"end\" font-size=\"10\" fill=\"#666\">").append(max * tick / 4).append("</text>\n");
+        }
+
+        for (int i = 0; i < counts.size(); i++) {
+            BatchStatusCount count = counts.get(i);
+            double x = left + i * barWidth;
+            double loadedHeight = (double) plotHeight * count.getLoadedCount() / max;
+            double missingHeight = (double) plotHeight * count.getMissingCount() / max;
+            double loadedY = top + plotHeight - loadedHeight;
+
+            svg.append("<g><title>").append(count.getDate()).append(": ").append(count.getLoadedCount())
+                    .append(" loaded, ").append(count.getMissingCount()).append(" missing</title>");
+            appendSvgBar(svg, x, loadedY, barWidth, loadedHeight, LOADED_COLOUR);
+            appendSvgBar(svg, x, loadedY - missingHeight, barWidth, missingHeight, MISSING_COLOUR);
+            svg.append("</g>\n");
+
+            if (i % 10 == 0) {
+                svg.append("<text x=\"").append(format(x + barWidth / 2)).append("\" y=\"").append(top + plotHeight + 16)
+                        .append("\" text-anchor=\"middle\" font-size=\"10\" fill=\"#666\">")
+                        .append(count.getDate().format(LABEL_FORMAT)).append("</text>\n");
+            }
+        }
+
+        int legendY = HEIGHT - 16;
+        svg.append("<rect x=\"").append(WIDTH / 2 - 80).append("\" y=\"").append(legendY - 9).append("\" width=\"10\" height=\"10\" fill=\"").append(LOADED_COLOUR).append("\"/>")
+                .append("<text x=\"").append(WIDTH / 2 - 65).append("\" y=\"").append(legendY).append("\" font-size=\"11\">Loaded</text>")
+                .append("<rect x=\"").append(WIDTH / 2 + 10).append("\" y=\"").append(legendY - 9).append("\" width=\"10\" height=\"10\" fill=\"").append(MISSING_COLOUR).append("\"/>")
+                .append("<text x=\"").append(WIDTH / 2 + 25).append("\" y=\"").append(legendY).append("\" font-size=\"11\">Missing</text>\n")
+                .append("</svg>\n");
+
+        return svg.toString();
+    }
+
+    /**
+     * Render one sparkline per series in a single pass, each scaled to its own peak: inline SVG for browsers, or
+     * Unicode block characters, which every email client shows as plain text. A day with no rows is left blank.
+     */
+    public Map<String, String> renderSparklines(Map<String, long[]> series, boolean svg) {
+        Map<String, String> sparklines = new HashMap<>(series.size() * 2);
+        StringBuilder line = new StringBuilder(svg ? 512 : 128);
+        for (Map.Entry<String, long[]> group : series.entrySet()) {
+            long[] counts = group.getValue();
+            long max = 1;
+            for (long count : counts) {
+                max = Math.max(max, count);
+            }
+
+            line.setLength(0);
+            if (svg) {
+                appendSvgSparkline(line, counts, max);
+            } else {
+                line.append("<span style=\"font-family: Consolas, 'Courier New', monospace; color: ").append(LOADED_COLOUR)
+                        .append(";\" title=\"Daily rows, peak ").append(max).append("\">");
+                for (long count : counts) {
+                    line.append(count == 0 ? '\u00a0' : SPARK_BLOCKS.charAt((int) ((count * SPARK_BLOCKS.length() + max - 1) / max - 1)));
+                }
+                line.append("</span>");
+            }
+            sparklines.put(group.getKey(), line.toString());
+        }
+        return sparklines;
+    }
+
+    private static void appendSvgSparkline(StringBuilder svg, long[] counts, long max) {
+        int width = counts.length * SPARK_STEP;
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width).append("\" height=\"").append(SPARK_HEIGHT)
+                .append("\" viewBox=\"0 0 ").append(width).append(' ').append(SPARK_HEIGHT).append("\" role=\"img\" aria-label=\"Daily rows, peak ")
+                .append(max).append("\"><polyline fill=\"none\" stroke=\"").append(LOADED_COLOUR).append("\" stroke-width=\"1.5\" points=\"");
+        double lastY = SPARK_HEIGHT;
+        for (int i = 0; i < counts.length; i++) {
+            lastY = format(SPARK_HEIGHT - 1 - (SPARK_HEIGHT - 2) * (double) counts[i] / max);
+            svg.append(i * SPARK_STEP).append(',').append(lastY).append(' ');
+        }
+        long last = counts.length == 0 ? 0 : counts[counts.length - 1];
+        svg.append("\"/><circle cx=\"").append((counts.length - 1) * SPARK_STEP).append("\" cy=\"").append(lastY)
+                .append("\" r=\"2\" fill=\"").append(last == 0 ? MISSING_COLOUR : LOADED_COLOUR).append("\"/></svg>");
+    }
+
+    private void styleStatusChart(JFreeChart chart) {
+        chart.setBackgroundPaint(Color.WHITE);
+        chart.getTitle().setFont(new Font("Arial", Font.BOLD, 14));
+
+        CategoryPlot plot = chart.getCategoryPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setDomainGridlinesVisible(false);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.LIGHT_GRAY);
+
+        StackedBarRenderer renderer = (StackedBarRenderer) plot.getRenderer();
+        renderer.setSeriesPaint(0, new Color(76, 175, 80)); // Green for loaded
+        renderer.setSeriesPaint(1, new Color(244, 67, 54)); // Red for missing
+        renderer.setBarPainter(new StandardBarPainter());
+    }
+
+    private static void appendHtmlBarCell(StringBuilder html, int height, String colour) {
+        if (height <= 0) {
+            return;
+        }
+        html.append("<tr><td height=\"").append(height).append('"');
+        if (colour != null) {
+            html.append(" bgcolor=\"").append(colour).append('"');
+        }
+        html.append(" style=\"font-size: 0; line-height: 0;\">&nbsp;</td></tr>");
+    }
+
+    private static void appendSvgBar(StringBuilder svg, double x, double y, double width, double height, String colour) {
+        if (height <= 0) {
+            return;
+        }
+        svg.append("<rect x=\"").append(format(x)).append("\" y=\"").append(format(y))
+                .append("\" width=\"").append(format(width)).append("\" height=\"").append(format(height))
+                .append("\" fill=\"").append(colour).append("\"/>");
+    }
+
+    private static List<BatchStatusCount> sorted(List<BatchStatusCount> statusCounts) {
+        return statusCounts.stream()
+                .sorted(Comparator.comparing(BatchStatusCount::getDate))
+                .collect(Collectors.toList());
+    }
+
+    private static long maxTotal(List<BatchStatusCount> counts) {
+        return Math.max(1, counts.stream()
+                .mapToLong(count -> count.getLoadedCount() + count.getMissingCount())
+                .max()
+                .orElse(1));
+    }
+
+    private static int scale(long value, long max, int height) {
+        return (int) Math.round((double) height * value / max);
+    }
+
+    private static double format(double value) {
+        // One decimal place is plenty at 800px; avoids String.format in the per-bar loop
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -0,0 +1,253 @@
+package com.demo.batchreport.service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes an .xlsx workbook row by row straight into its zip stream.
+ * <p>
+ * Each row is encoded and deflated as it is added, and strings are stored inline, so there is no shared-string
+ * table or sheet model to grow. Memory stays at the size of the write buffer however many rows are written.
+ * A sheet that reaches Excel's limit of 1,048,576 rows carries on in a new sheet with the same header. Sheets
+ * are written one after another; the workbook parts that list them are written on {@link #close()}.
+ */
+class XlsxStreamWriter implements Closeable {
+
+    static final String CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    static final int MAX_ROWS = 1_048_576;
+    private static final int MAX_SHEET_NAME = 31;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private final int maxRows;
+    private final List<String> sheetNames = new ArrayList<>();
+
+    private String sheetName;
+    private String baseName;
+    private List<String> header;
+    private int rows;
+    private int continuation;
+    private long dataRows;
+
+    /**
+     * @param compressionLevel deflate level, 1 (fastest) to 9 (smallest)
+     */
+    XlsxStreamWriter(OutputStream target, int compressionLevel) {
+        this(target, compressionLevel, MAX_ROWS);
+    }
+
+    XlsxStreamWriter(OutputStream target, int compressionLevel, int maxRows) {
+        this.maxRows = maxRows;
+        this.zip = new ZipOutputStream(target, StandardCharsets.UTF_8);
+        zip.setLevel(compressionLevel);
+        // Closing the writer must not close the zip before the workbook parts are added
+        this.out = new BufferedWriter(new OutputStreamWriter(new FilterOutputStream(zip) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                zip.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+            }
+        }, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * End the current sheet, if any, and start a new one with a bold, frozen header row
+     */
+    void startSheet(String name, List<String> header) throws IOException {
+        endSheet();
+        this.header = List.copyOf(header);
+        this.baseName = name;
+        this.continuation = 1;
+        openSheet(name);
+    }
+
+    /**
+     * Append a row; strings, numbers and booleans keep their type in Excel, nulls leave the cell empty
+     */
+    void row(Object... values) throws IOException {
+        if (sheetName == null) {
+            throw new IllegalStateException("startSheet must be called before the first row");
+        }
+        if (rows == maxRows) {
+            endSheet();
+            openSheet(baseName + " (" + ++continuation + ")");
+        }
+        writeRow(values, false);
+        dataRows++;
+    }
+
+    /**
+     * Rows written across all sheets, not counting headers
+     */
+    long getDataRows() {
+        return dataRows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        endSheet();
+        if (sheetNames.isEmpty()) {
+            throw new IllegalStateException("A workbook needs at least one sheet");
+        }
+        writeEntry("[Content_Types].xml", contentTypes());
+        writeEntry("_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        writeEntry("xl/workbook.xml", workbook());
+        writeEntry("xl/_rels/workbook.xml.rels", workbookRelationships());
+        writeEntry("xl/styles.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                + "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+                + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"2\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/></cellXfs>"
+                + "</styleSheet>");
+        zip.finish();
+        zip.flush();
+    }
+
+    private void openSheet(String name) throws IOException {
+        String unique = sheetName(name);
+        sheetNames.add(unique);
+        sheetName = unique;
+        rows = 0;
+
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml"));
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                + "<sheetViews><sheetView workbookViewId=\"0\">"
+                + "<pane ySplit=\"1\" topLeftCell=\"A2\" activePane=\"bottomLeft\" state=\"frozen\"/>"
+                + "</sheetView></sheetViews><sheetData>");
+        writeRow(header.toArray(), true);
+    }
+
+    private void endSheet() throws IOException {
+        if (sheetName == null) {
+            return;
+        }
+        out.write("</sheetData></worksheet>");
+        out.flush();
+        zip.closeEntry();
+        sheetName = null;
+    }
+
+    private void writeRow(Object[] values, boolean bold) throws IOException {
+        out.write("<row>");
+        for (Object value : values) {
+            if (value == null) {
+                out.write("<c/>");
+            } else if (value instanceof Number) {
+                out.write(bold ? "<c s=\"1\"><v>" : "<c><v>");
+                out.write(value.toString());
+                out.write("</v></c>");
+            } else if (value instanceof Boolean) {
+                out.write(bold ? "<c s=\"1\" t=\"b\"><v>" : "<c t=\"b\"><v>");
+                out.write((Boolean) value ? '1' : '0');
+                out.write("</v></c>");
+            } else {
+                out.write(bold ? "<c s=\"1\" t=\"inlineStr\"><is><t>" : "<c t=\"inlineStr\"><is><t>");
+                escape(value.toString());
+                out.write("</t></is></c>");
+            }
+        }
+        out.write("</row>");
+        rows++;
+    }
+
+    private void escape(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                case '&':
+                    out.write("&amp;");
+                    break;
+                default:
+                    // Control characters other than tab and newline are not allowed in XML 1.0
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        out.write(c);
+                    }
+            }
+        }
+    }
+
+    private String sheetName(String name) {
+        String cleaned = name.replaceAll("[\\\\/?*\\[\\]:]", " ");
+        cleaned = cleaned.substring(0, Math.min(MAX_SHEET_NAME, cleaned.length()));
+        String unique = cleaned;
+        for (int n = 2; sheetNames.contains(unique); n++) {
+            String suffix = " " + n;
+            unique = cleaned.substring(0, Math.min(MAX_SHEET_NAME - suffix.length(), cleaned.length())) + suffix;
+        }
+        return unique;
+    }
+
+    private String contentTypes() {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            xml.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        return xml.append("</Types>").toString();
+    }
+
+    private String workbook() {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            xml.append("<sheet name=\"").append(sheetNames.get(i - 1).replace("&", "&amp;").replace("\"", "&quot;")
+                            .replace("<", "&lt;"))
+                    .append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+        }
+        return xml.append("</sheets></workbook>").toString();
+    }
+
+    private String workbookRelationships() {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            xml.append("<Relationship Id=\"rId").append(i)
+                    .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet")
+                    .append(i).append(".xml\"/>");
+        }
+        xml.append("<Relationship Id=\"rId").append(sheetNames.size() + 1)
+                .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>");
+        return xml.append("</Relationships>").toString();
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,100 @@
+package com.demo.batchreport.store;
+
+/**
+ * One {@link StringDictionary} per dimension column, plus helpers to pack the four
+ * 16-bit codes of a row into a single long key (asset class in the high bits, scenario in the low bits).
+ */
+public class ColumnDictionaries {
+
+    private static final long CODE_MASK = 0xFFFFL;
+    private static final long GROUP_MASK = ~CODE_MASK;
+
+    private final StringDictionary assetClasses;
+    private final StringDictionary products;
+    private final StringDictionary entities;
+    private final StringDictionary scenarios;
+
+    public ColumnDictionaries() {
+        this(new StringDictionary(), new StringDictionary(), new StringDictionary(), new StringDictionary());
+    }
+
+    private ColumnDictionaries(StringDictionary assetClasses, StringDictionary products,
+                               StringDictionary entities, StringDictionary scenarios) {
+        this.assetClasses = assetClasses;
+        this.products = products;
+        this.entities = entities;
+        this.scenarios = scenarios;
+    }
+
+    /**
+     * Dictionaries that encode known values with these codes but keep new values to themselves
+     */
+    public ColumnDictionaries overlay() {
+        return new ColumnDictionaries(assetClasses.overlay(), products.overlay(), entities.overlay(), scenarios.overlay());
+    }
+
+    public StringDictionary assetClasses() {
+        return assetClasses;
+    }
+
+    public StringDictionary products() {
+        return products;
+    }
+
+    public StringDictionary entities() {
+        return entities;
+    }
+
+    public StringDictionary scenarios() {
+        return scenarios;
+    }
+
+    /**
+     * Encode a full (asset class, product, entity, scenario) tuple, assigning codes as needed
+     */
+    public long encode(String assetClass, String product, String entity, String scenario) {
+        return pack(assetClasses.encode(assetClass), products.encode(product),
+                entities.encode(entity), scenarios.encode(scenario));
+    }
+
+    public static long pack(int assetClass, int product, int entity, int scenario) {
+        return ((long) assetClass << 48) | ((long) product << 32) | ((long) entity << 16) | scenario;
+    }
+
+    /**
+     * Strip the scenario code so that all scenarios of a group share one key
+     */
+    public static long groupOf(long key) {
+        return key & GROUP_MASK;
+    }
+
+    public String assetClassOf(long key) {
+        return assetClasses.decode((int) ((key >>> 48) & CODE_MASK));
+    }
+
+    public String productOf(long key) {
+        return products.decode((int) ((key >>> 32) & CODE_MASK));
+    }
+
+    public String entityOf(long key) {
+        return entities.decode((int) ((key >>> 16) & CODE_MASK));
+    }
+
+    public String scenarioOf(long key) {
+        return scenarios.decode((int) (key & CODE_MASK));
+    }
+
+    /**
+     * Decode a group key into the "assetClass|product|entity" form used by {@code ExpectedScenariosConfig}
+     */
+    public String groupKeyOf(long key) {
+        return assetClassOf(key) + "|" + productOf(key) + "|" + entityOf(key);
+    }
+
+    /**
+     * Decode a full key into the "assetClass|product|entity|scenario" form used by {@code ExpectedScenariosConfig}
+     */
+    public String fullKeyOf(long key) {
+        return groupKeyOf(key) + "|" + scenarioOf(key);
+    }
+}
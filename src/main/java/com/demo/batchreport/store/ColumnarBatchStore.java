@@ -0,0 +1,158 @@
+package com.demo.batchreport.store;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.domain.BatchRecordsChangedEvent;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * Read-optimised in-memory cache of batch history, held as one columnar {@link DateSegment} per batch date.
+ * Segments are filled lazily from {@link BatchQueryRepository} and dropped whenever a record for their
+ * date is written, so the next read sees the change.
+ */
+@Slf4j
+@Component
+public class ColumnarBatchStore {
+
+    private final BatchQueryRepository batchQueryRepository;
+    private final ReportConfig reportConfig;
+    private final SegmentAggregator aggregator;
+    private final GroupTrendStore groupTrends;
+
+    private final ColumnDictionaries dictionaries = new ColumnDictionaries();
+    private final ConcurrentSkipListMap<LocalDate, DateSegment> segments = new ConcurrentSkipListMap<>();
+
+    public ColumnarBatchStore(BatchQueryRepository batchQueryRepository, ReportConfig reportConfig) {
+        this.batchQueryRepository = batchQueryRepository;
+        this.reportConfig = reportConfig;
+        this.aggregator = new SegmentAggregator(reportConfig.getStore().getParallelThreshold(),
+                reportConfig.getStore().getParallelism());
+        this.groupTrends = new GroupTrendStore(this, reportConfig.getStore().getTrendDays());
+    }
+
+    /**
+     * Get the segment for a batch date, loading it from the repository if it is not cached
+     */
+    public DateSegment segment(LocalDate batchDate) {
+        DateSegment segment = segments.get(batchDate);
+        if (segment == null || isStale(segment)) {
+            segment = DateSegment.of(batchDate, batchQueryRepository.findAllByBatchDate(batchDate), dictionaries);
+            install(segment);
+        }
+        return segment;
+    }
+
+    /**
+     * Get the segments for every date in [startDate, endDate], in date order.
+     * Dates that are not cached are loaded with a single range query.
+     */
+    public NavigableMap<LocalDate, DateSegment> segments(LocalDate startDate, LocalDate endDate) {
+        NavigableMap<LocalDate, DateSegment> result = new TreeMap<>();
+        List<LocalDate> missing = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            DateSegment segment = segments.get(date);
+            if (segment == null || isStale(segment)) {
+                missing.add(date);
+            } else {
+                result.put(date, segment);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            LocalDate from = missing.get(0);
+            LocalDate to = missing.get(missing.size() - 1);
+            Map<LocalDate, List<BatchRecord>> recordsByDate = batchQueryRepository.findAllByBatchDateBetween(from, to)
+                    .stream()
+                    .collect(Collectors.groupingBy(BatchRecord::getBatchDate));
+
+            for (LocalDate date : missing) {
+                DateSegment segment = DateSegment.of(date, recordsByDate.getOrDefault(date, List.of()), dictionaries);
+                install(segment);
+                result.put(date, segment);
+            }
+            log.debug("Loaded {} segments for {} to {}", missing.size(), from, to);
+        }
+
+        return result;
+    }
+
+    /**
+     * Combined fingerprint of every segment in [startDate, endDate]; changes whenever any of those dates is written
+     */
+    public long fingerprint(LocalDate startDate, LocalDate endDate) {
+        long fingerprint = 17;
+        for (DateSegment segment : segments(startDate, endDate).values()) {
+            fingerprint = 31 * fingerprint + segment.getFingerprint();
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Build a segment for records that did not come from the repository (previews, simulated data).
+     * The segment is not cached, and values this store has not seen get codes in an overlay of its dictionaries
+     * rather than in the shared ones, which are never evicted.
+     */
+    public DateSegment transientSegment(LocalDate batchDate, List<BatchRecord> records) {
+        return DateSegment.of(batchDate, records, dictionaries.overlay());
+    }
+
+    public ColumnDictionaries getDictionaries() {
+        return dictionaries;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        aggregator.shutdown();
+    }
+
+    /**
+     * Aggregator for counts over this store's segments; parallel above {@code report.store.parallel-threshold} rows
+     */
+    public SegmentAggregator getAggregator() {
+        return aggregator;
+    }
+
+    /**
+     * Per-group daily counts over the trailing {@code report.store.trend-days}, kept as ring buffers over this store
+     */
+    public GroupTrendStore getGroupTrends() {
+        return groupTrends;
+    }
+
+    /**
+     * Drop the cached segments for dates that have been written to
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecordsChanged(BatchRecordsChangedEvent event) {
+        event.getBatchDates().forEach(segments::remove);
+    }
+
+    public void invalidateAll() {
+        segments.clear();
+    }
+
+    private void install(DateSegment segment) {
+        segments.put(segment.getBatchDate(), segment);
+        while (segments.size() > reportConfig.getStore().getMaxSegments()) {
+            segments.pollFirstEntry();
+        }
+    }
+
+    private boolean isStale(DateSegment segment) {
+        return segment.getLoadedAt().plus(reportConfig.getStore().getRefreshAfter()).isBefore(Instant.now());
+    }
+}
@@ -0,0 +1,103 @@
+package com.demo.batchreport.store;
+
+import com.demo.batchreport.config.ExpectedScenariosConfig;
+import com.demo.batchreport.domain.CompletenessHeatmap;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Bitmap-based completeness checks against the expected scenario catalogue.
+ * Every expected scenario gets an ordinal (its position in {@link ExpectedScenariosConfig}) and each
+ * batch date's loaded scenarios become a bitmap over those ordinals, so missing = expected AND NOT loaded.
+ * <p>
+ * The ordinal space is dense and small, so a single {@link BitSet} is already the compact
+ * (one bitmap container) form of a Roaring bitmap.
+ */
+@Component
+public class CompletenessEngine {
+
+    private final SegmentAggregator aggregator;
+    private final List<ExpectedScenariosConfig.ExpectedScenario> catalogue;
+    private final Map<Long, Integer> ordinalsByKey = new HashMap<>();
+    private final BitSet expected;
+
+    public CompletenessEngine(ColumnarBatchStore batchStore) {
+        this.aggregator = batchStore.getAggregator();
+        this.catalogue = ExpectedScenariosConfig.getAllExpectedScenarios();
+        ColumnDictionaries dictionaries = batchStore.getDictionaries();
+        for (int ordinal = 0; ordinal < catalogue.size(); ordinal++) {
+            ExpectedScenariosConfig.ExpectedScenario scenario = catalogue.get(ordinal);
+            ordinalsByKey.put(dictionaries.encode(scenario.getAssetClass(), scenario.getProduct(),
+                    scenario.getEntity(), scenario.getScenario()), ordinal);
+        }
+        this.expected = new BitSet(catalogue.size());
+        this.expected.set(0, catalogue.size());
+    }
+
+    public List<ExpectedScenariosConfig.ExpectedScenario> getCatalogue() {
+        return catalogue;
+    }
+
+    /**
+     * Ordinal of a packed scenario key in the catalogue, or -1 if the scenario is not expected
+     */
+    public int ordinalOf(long key) {
+        return ordinalsByKey.getOrDefault(key, -1);
+    }
+
+    /**
+     * Bitmap of the expected scenarios loaded in a segment
+     */
+    public BitSet loaded(DateSegment segment) {
+        BitSet loaded = new BitSet(catalogue.size());
+        aggregator.countByScenario(segment).forEach((key, count) -> {
+            int ordinal = ordinalOf(key);
+            if (ordinal >= 0) {
+                loaded.set(ordinal);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Bitmap of the expected scenarios that are missing from a segment
+     */
+    public BitSet missing(DateSegment segment) {
+        BitSet missing = (BitSet) expected.clone();
+        missing.andNot(loaded(segment));
+        return missing;
+    }
+
+    public int expectedCount() {
+        return catalogue.size();
+    }
+
+    /**
+     * Build the scenario x day grid for a window of segments by transposing the per-day bitmaps
+     */
+    public CompletenessHeatmap heatmap(NavigableMap<LocalDate, DateSegment> segments) {
+        List<LocalDate> dates = new ArrayList<>(segments.keySet());
+        List<BitSet> histories = new ArrayList<>(catalogue.size());
+        for (int ordinal = 0; ordinal < catalogue.size(); ordinal++) {
+            histories.add(new BitSet(dates.size()));
+        }
+
+        int day = 0;
+        for (DateSegment segment : segments.values()) {
+            BitSet loaded = loaded(segment);
+            for (int ordinal = loaded.nextSetBit(0); ordinal >= 0; ordinal = loaded.nextSetBit(ordinal + 1)) {
+                histories.get(ordinal).set(day);
+            }
+            day++;
+        }
+
+        return new CompletenessHeatmap(dates, catalogue, histories);
+    }
+}
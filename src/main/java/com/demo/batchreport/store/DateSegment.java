@@ -0,0 +1,159 @@
+package com.demo.batchreport.store;
+
+import com.demo.batchreport.domain.BatchRecord;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable columnar snapshot of all batch records for one batch date.
+ * Each dimension is held as a dictionary-coded int array so report aggregations
+ * can run as tight scans over primitive arrays.
+ */
+public class DateSegment {
+
+    private final LocalDate batchDate;
+    private final ColumnDictionaries dictionaries;
+    private final int[] assetClass;
+    private final int[] product;
+    private final int[] entity;
+    private final int[] scenario;
+    private final long fingerprint;
+    private final Instant loadedAt;
+
+    private DateSegment(LocalDate batchDate, ColumnDictionaries dictionaries, int[] assetClass, int[] product,
+                        int[] entity, int[] scenario, long fingerprint, Instant loadedAt) {
+        this.batchDate = batchDate;
+        this.dictionaries = dictionaries;
+        this.assetClass = assetClass;
+        this.product = product;
+        this.entity = entity;
+        this.scenario = scenario;
+        this.fingerprint = fingerprint;
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * Encode a list of records (all for the same batch date) into a segment
+     */
+    public static DateSegment of(LocalDate batchDate, List<BatchRecord> records, ColumnDictionaries dictionaries) {
+        int size = records.size();
+        int[] assetClass = new int[size];
+        int[] product = new int[size];
+        int[] entity = new int[size];
+        int[] scenario = new int[size];
+        long fingerprint = 0;
+
+        for (int i = 0; i < size; i++) {
+            BatchRecord record = records.get(i);
+            assetClass[i] = dictionaries.assetClasses().encode(record.getAssetClass());
+            product[i] = dictionaries.products().encode(record.getProduct());
+            entity[i] = dictionaries.entities().encode(record.getEntity());
+            scenario[i] = dictionaries.scenarios().encode(record.getScenario());
+            // Order-independent and based on the values rather than the codes, so it is stable across restarts
+            fingerprint += rowHash(record);
+        }
+
+        return new DateSegment(batchDate, dictionaries, assetClass, product, entity, scenario,
+                fingerprint * 31 + size, Instant.now());
+    }
+
+    public LocalDate getBatchDate() {
+        return batchDate;
+    }
+
+    public ColumnDictionaries getDictionaries() {
+        return dictionaries;
+    }
+
+    public int size() {
+        return assetClass.length;
+    }
+
+    public boolean isEmpty() {
+        return assetClass.length == 0;
+    }
+
+    /**
+     * Content hash of the rows in this segment; changes whenever a row is added, removed or altered
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Packed (asset class, product, entity, scenario) key of a row
+     */
+    public long keyAt(int row) {
+        return ColumnDictionaries.pack(assetClass[row], product[row], entity[row], scenario[row]);
+    }
+
+    /**
+     * Count rows per (asset class, product, entity) group key
+     */
+    public LongCountMap countByGroup() {
+        return countByGroup(0, size());
+    }
+
+    /**
+     * Count rows per (asset class, product, entity) group key for the row range [from, to)
+     */
+    public LongCountMap countByGroup(int from, int to) {
+        LongCountMap counts = new LongCountMap();
+        for (int i = from; i < to; i++) {
+            counts.increment(ColumnDictionaries.pack(assetClass[i], product[i], entity[i], 0));
+        }
+        return counts;
+    }
+
+    /**
+     * Count rows per full scenario key; the key set is the set of distinct loaded scenarios
+     */
+    public LongCountMap countByScenario() {
+        return countByScenario(0, size());
+    }
+
+    /**
+     * Count rows per full scenario key for the row range [from, to)
+     */
+    public LongCountMap countByScenario(int from, int to) {
+        LongCountMap counts = new LongCountMap();
+        for (int i = from; i < to; i++) {
+            counts.increment(keyAt(i));
+        }
+        return counts;
+    }
+
+    /**
+     * Materialise the rows back into detached entities (without ids)
+     */
+    public List<BatchRecord> toRecords() {
+        List<BatchRecord> records = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            records.add(new BatchRecord(null,
+                    dictionaries.assetClasses().decode(assetClass[i]),
+                    dictionaries.products().decode(product[i]),
+                    dictionaries.scenarios().decode(scenario[i]),
+                    dictionaries.entities().decode(entity[i]),
+                    batchDate));
+        }
+        return records;
+    }
+
+    private static long rowHash(BatchRecord record) {
+        long hash = 1125899906842597L;
+        hash = 31 * hash + String.valueOf(record.getAssetClass()).hashCode();
+        hash = 31 * hash + String.valueOf(record.getProduct()).hashCode();
+        hash = 31 * hash + String.valueOf(record.getEntity()).hashCode();
+        hash = 31 * hash + String.valueOf(record.getScenario()).hashCode();
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,146 @@
+package com.demo.batchreport.store;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Daily loaded-row counts per (asset class, product, entity) group over a trailing window, held as one ring buffer
+ * per group. All rings share a head slot for the newest date; moving to a later batch date advances the head and
+ * clears only the slots that fall out of the window, so consecutive days aggregate one new segment rather than the
+ * whole window. Earlier windows are counted separately and never move the head back.
+ * <p>
+ * Each slot remembers the fingerprint of the segment it was counted from and is recounted when the
+ * {@link ColumnarBatchStore} serves a different one, so writes to past dates show up on the next read.
+ */
+public class GroupTrendStore {
+
+    private final ColumnarBatchStore store;
+    private final int days;
+
+    private final Map<Long, long[]> rings = new HashMap<>();
+    private final long[] slotFingerprints;
+    private final boolean[] slotFilled;
+    private LocalDate headDate;
+    private int head;
+
+    GroupTrendStore(ColumnarBatchStore store, int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("Trend window must be at least one day, not " + days);
+        }
+        this.store = store;
+        this.days = days;
+        this.slotFingerprints = new long[days];
+        this.slotFilled = new boolean[days];
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * Loaded counts per "assetClass|product|entity" group for the window ending on {@code endDate}, oldest first.
+     * Groups with no rows anywhere in the window are absent. A window ending before the newest one served is
+     * counted on its own and leaves the rings alone, so a look back does not cost the next day's read.
+     */
+    public Map<String, long[]> series(LocalDate endDate) {
+        // Segments are loaded before taking the lock so a database read never blocks other readers
+        NavigableMap<LocalDate, DateSegment> segments = store.segments(endDate.minusDays(days - 1L), endDate);
+        synchronized (this) {
+            if (headDate != null && endDate.isBefore(headDate)) {
+                return countWindow(segments);
+            }
+            advanceTo(endDate);
+            for (Map.Entry<LocalDate, DateSegment> entry : segments.entrySet()) {
+                int slot = Math.floorMod(head - (int) ChronoUnit.DAYS.between(entry.getKey(), headDate), days);
+                DateSegment segment = entry.getValue();
+                if (!slotFilled[slot] || slotFingerprints[slot] != segment.getFingerprint()) {
+                    fill(slot, segment);
+                }
+            }
+            return fromRings();
+        }
+    }
+
+    private Map<String, long[]> fromRings() {
+        ColumnDictionaries dictionaries = store.getDictionaries();
+        Map<String, long[]> series = new LinkedHashMap<>();
+        Iterator<Map.Entry<Long, long[]>> it = rings.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, long[]> ring = it.next();
+            long[] oldestFirst = new long[days];
+            long total = 0;
+            for (int i = 0; i < days; i++) {
+                oldestFirst[i] = ring.getValue()[(head + 1 + i) % days];
+                total += oldestFirst[i];
+            }
+            if (total > 0) {
+                series.put(dictionaries.groupKeyOf(ring.getKey()), oldestFirst);
+            } else {
+                // The group has aged out of the window
+                it.remove();
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Count a window's segments without touching the rings, oldest first
+     */
+    private Map<String, long[]> countWindow(NavigableMap<LocalDate, DateSegment> segments) {
+        ColumnDictionaries dictionaries = store.getDictionaries();
+        Map<Long, long[]> counts = new HashMap<>();
+        int offset = 0;
+        for (DateSegment segment : segments.values()) {
+            int day = offset++;
+            store.getAggregator().countByGroup(segment).forEach((groupKey, count) ->
+                    counts.computeIfAbsent(groupKey, key -> new long[days])[day] = count);
+        }
+        Map<String, long[]> series = new LinkedHashMap<>();
+        counts.forEach((groupKey, oldestFirst) -> {
+            if (Arrays.stream(oldestFirst).sum() > 0) {
+                series.put(dictionaries.groupKeyOf(groupKey), oldestFirst);
+            }
+        });
+        return series;
+    }
+
+    /**
+     * Move the head forward to {@code endDate}, clearing the slots of the days that leave the window.
+     * Jumping a whole window ahead starts over.
+     */
+    private void advanceTo(LocalDate endDate) {
+        if (headDate == null || ChronoUnit.DAYS.between(headDate, endDate) >= days) {
+            rings.clear();
+            Arrays.fill(slotFilled, false);
+            headDate = endDate;
+            head = days - 1;
+            return;
+        }
+        while (headDate.isBefore(endDate)) {
+            head = (head + 1) % days;
+            clear(head);
+            headDate = headDate.plusDays(1);
+        }
+    }
+
+    private void fill(int slot, DateSegment segment) {
+        clear(slot);
+        store.getAggregator().countByGroup(segment).forEach((groupKey, count) ->
+                rings.computeIfAbsent(groupKey, key -> new long[days])[slot] = count);
+        slotFingerprints[slot] = segment.getFingerprint();
+        slotFilled[slot] = true;
+    }
+
+    private void clear(int slot) {
+        for (long[] ring : rings.values()) {
+            ring[slot] = 0;
+        }
+        slotFilled[slot] = false;
+    }
+}
@@ -0,0 +1,126 @@
+package com.demo.batchreport.store;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from packed long keys to long counts.
+ * Avoids boxing on the hot aggregation loops over segment columns.
+ */
+public class LongCountMap {
+
+    /**
+     * Marks a free slot. A packed key can equal it (asset class code 0x8000), so that key is kept outside the
+     * table in {@link #hasEmptyKey} and {@link #emptyKeyCount}.
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] counts;
+    private int size;
+    private int mask;
+    private boolean hasEmptyKey;
+    private long emptyKeyCount;
+
+    public LongCountMap() {
+        this(64);
+    }
+
+    public LongCountMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        counts = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    public void increment(long key) {
+        add(key, 1);
+    }
+
+    public void add(long key, long delta) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                size++;
+            }
+            emptyKeyCount += delta;
+            return;
+        }
+        int slot = slot(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                counts[slot] = delta;
+                rehash();
+                return;
+            }
+        }
+        counts[slot] += delta;
+    }
+
+    public long get(long key) {
+        if (key == EMPTY) {
+            return hasEmptyKey ? emptyKeyCount : 0;
+        }
+        int slot = slot(key);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add every count from another map into this one
+     */
+    public void mergeFrom(LongCountMap other) {
+        other.forEach(this::add);
+    }
+
+    public void forEach(Entry consumer) {
+        if (hasEmptyKey) {
+            consumer.accept(EMPTY, emptyKeyCount);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    private int slot(long key) {
+        int slot = (int) mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    @FunctionalInterface
+    public interface Entry {
+        void accept(long key, long count);
+    }
+}
@@ -0,0 +1,132 @@
+package com.demo.batchreport.store;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs the per-group and per-scenario counts over a segment, splitting very large segments into row ranges
+ * that are counted in parallel on a fork-join pool.
+ * <p>
+ * Each range task fills its own {@link LongCountMap}, so workers never share a map; partials are merged
+ * pairwise as the tasks join. Segments below the threshold are counted on the calling thread, where the
+ * fork and merge overhead would cost more than it saves.
+ */
+public class SegmentAggregator {
+
+    /**
+     * Smallest row range worth handing to its own task
+     */
+    private static final int MIN_RANGE = 16_384;
+
+    private final int threshold;
+    private final int parallelism;
+    private volatile ForkJoinPool pool;
+    private volatile boolean shutdown;
+
+    /**
+     * @param threshold   segments with fewer rows than this are counted sequentially
+     * @param parallelism worker threads, or 0 for one per available processor
+     */
+    public SegmentAggregator(int threshold, int parallelism) {
+        this.threshold = threshold;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Count rows per (asset class, product, entity) group key
+     */
+    public LongCountMap countByGroup(DateSegment segment) {
+        return count(segment, DateSegment::countByGroup);
+    }
+
+    /**
+     * Count rows per full scenario key
+     */
+    public LongCountMap countByScenario(DateSegment segment) {
+        return count(segment, DateSegment::countByScenario);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Stop the worker pool, if one was started; later counts run on the calling thread
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private LongCountMap count(DateSegment segment, RangeCount rangeCount) {
+        int size = segment.size();
+        if (size < threshold || parallelism == 1 || shutdown) {
+            return rangeCount.count(segment, 0, size);
+        }
+        // A few ranges per worker so a slow worker does not hold up the join
+        int rangeSize = Math.max(MIN_RANGE, size / (parallelism * 4));
+        return pool().invoke(new RangeTask(segment, rangeCount, 0, size, rangeSize));
+    }
+
+    private ForkJoinPool pool() {
+        ForkJoinPool current = pool;
+        if (current == null) {
+            synchronized (this) {
+                current = pool;
+                if (current == null && shutdown) {
+                    // Lost a race with shutdown(); finish this count without starting a new pool
+                    return ForkJoinPool.commonPool();
+                }
+                if (current == null) {
+                    current = new ForkJoinPool(parallelism);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @FunctionalInterface
+    private interface RangeCount {
+        LongCountMap count(DateSegment segment, int from, int to);
+    }
+
+    private static class RangeTask extends RecursiveTask<LongCountMap> {
+
+        private final DateSegment segment;
+        private final RangeCount rangeCount;
+        private final int from;
+        private final int to;
+        private final int rangeSize;
+
+        RangeTask(DateSegment segment, RangeCount rangeCount, int from, int to, int rangeSize) {
+            this.segment = segment;
+            this.rangeCount = rangeCount;
+            this.from = from;
+            this.to = to;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected LongCountMap compute() {
+            if (to - from <= rangeSize) {
+                return rangeCount.count(segment, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            RangeTask left = new RangeTask(segment, rangeCount, from, mid, rangeSize);
+            left.fork();
+            LongCountMap right = new RangeTask(segment, rangeCount, mid, to, rangeSize).compute();
+            LongCountMap merged = left.join();
+
+            // Fold the smaller partial into the larger one
+            if (merged.size() < right.size()) {
+                right.mergeFrom(merged);
+                return right;
+            }
+            merged.mergeFrom(right);
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.demo.batchreport.store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only dictionary mapping column values to dense int codes.
+ * Codes are stable for the lifetime of the dictionary and fit in 16 bits so that
+ * four columns can be packed into a single long key.
+ * <p>
+ * An overlay ({@link #overlay()}) reuses its parent's codes for values the parent knows and assigns codes for
+ * new values from the top of the code space downwards, without adding them to the parent. Short-lived segments
+ * use one so their values do not fill the shared dictionary, which is never evicted.
+ */
+public class StringDictionary {
+
+    static final int MAX_CODES = 1 << 16;
+
+    private final StringDictionary parent;
+    private final Map<String, Integer> codes = new HashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    public StringDictionary() {
+        this(null);
+    }
+
+    private StringDictionary(StringDictionary parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * A dictionary that shares this one's codes but keeps its own new values
+     */
+    public StringDictionary overlay() {
+        return new StringDictionary(this);
+    }
+
+    /**
+     * Get the code for a value, assigning a new one if it has not been seen before
+     */
+    public synchronized int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (parent != null) {
+            int shared = parent.lookup(value);
+            if (shared >= 0) {
+                return shared;
+            }
+        }
+        if (size + (parent != null ? parent.size() : 0) == MAX_CODES) {
+            throw new IllegalStateException("Dictionary is full (" + MAX_CODES + " distinct values)");
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = value;
+        values = current;
+        int assigned = parent != null ? MAX_CODES - 1 - size : size;
+        codes.put(value, assigned);
+        size++;
+        return assigned;
+    }
+
+    /**
+     * Get the code for a value without assigning one, or -1 if the value is unknown
+     */
+    public synchronized int lookup(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        return parent != null ? parent.lookup(value) : -1;
+    }
+
+    public String decode(int code) {
+        if (parent == null) {
+            return values[code];
+        }
+        int local = MAX_CODES - 1 - code;
+        String[] current = values;
+        return local < current.length && current[local] != null ? current[local] : parent.decode(code);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,20 @@
+-- Adds the unique key that record ingest's INSERT ... ON CONFLICT needs to a batch_record table created without it.
+-- Keeps the first-loaded (lowest id) row of each duplicate set. Run once with psql before upgrading; the table is
+-- locked against writes while it runs.
+BEGIN;
+
+LOCK TABLE batch_record IN SHARE ROW EXCLUSIVE MODE;
+
+DELETE FROM batch_record b
+USING batch_record d
+WHERE b.batch_date = d.batch_date
+  AND b.asset_class = d.asset_class
+  AND b.product = d.product
+  AND b.entity = d.entity
+  AND b.scenario = d.scenario
+  AND b.id > d.id;
+
+ALTER TABLE batch_record
+    ADD CONSTRAINT batch_record_natural_key UNIQUE (batch_date, asset_class, product, entity, scenario);
+
+COMMIT;
@@ -0,0 +1,102 @@
+package com.demo.batchreport.cache;
+
+import com.demo.batchreport.config.EntityCacheConfig;
+import com.demo.batchreport.config.IsoLocalTimeConverter;
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import org.hibernate.CacheMode;
+import org.hibernate.jpa.QueryHints;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Repeated 120-day record reads with and without the second-level cache. Run with {@code mvn test -Pbenchmark}.
+ * The uncached side runs the same query with {@link CacheMode#IGNORE}, so both read the same data in one context.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {"report.entity-cache.enabled=true", "spring.jpa.show-sql=false"})
+@Import({EntityCacheConfig.class, ReportConfig.class, IsoLocalTimeConverter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EntityCacheBenchmarkTest {
+
+    private static final LocalDate END_DATE = LocalDate.of(2024, 12, 16);
+    private static final LocalDate START_DATE = END_DATE.minusDays(119);
+    private static final int RECORDS_PER_DAY = 100;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 30;
+
+    @Autowired
+    private BatchQueryRepository batchQueryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        batchQueryRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void compareRepeatedWindowReads() {
+        // Given
+        List<BatchRecord> records = new ArrayList<>();
+        for (LocalDate date = START_DATE; !date.isAfter(END_DATE); date = date.plusDays(1)) {
+            for (int i = 0; i < RECORDS_PER_DAY; i++) {
+                records.add(new BatchRecord(null, "Equity", "Product " + i % 10, "Scenario " + i, "Entity " + i % 7, date));
+            }
+        }
+        batchQueryRepository.saveAll(records);
+
+        // When
+        double uncached = measure(this::readBypassingCache);
+        double cached = measure(() -> batchQueryRepository.findAllByBatchDateBetween(START_DATE, END_DATE));
+
+        // Then
+        System.out.printf("%-9s %12s%n", "read", "ms/read");
+        System.out.printf("%-9s %12.2f%n", "uncached", uncached);
+        System.out.printf("%-9s %12.2f%n", "cached", cached);
+
+        assertThat(cached).isLessThan(uncached);
+    }
+
+    private List<BatchRecord> readBypassingCache() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery(
+                            "select r from BatchRecord r where r.batchDate between :start and :end", BatchRecord.class)
+                    .setParameter("start", START_DATE)
+                    .setParameter("end", END_DATE)
+                    .setHint(QueryHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                    .getResultList();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static double measure(Supplier<List<BatchRecord>> read) {
+        for (int i = 0; i < WARMUP; i++) {
+            assertThat(read.get()).hasSize(120 * RECORDS_PER_DAY);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            read.get();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+    }
+}
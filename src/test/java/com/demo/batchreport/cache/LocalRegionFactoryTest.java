@@ -0,0 +1,85 @@
+package com.demo.batchreport.cache;
+
+import com.demo.batchreport.config.EntityCacheConfig;
+import com.demo.batchreport.config.IsoLocalTimeConverter;
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "report.entity-cache.enabled=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({EntityCacheConfig.class, ReportConfig.class, IsoLocalTimeConverter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LocalRegionFactoryTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 16);
+
+    @Autowired
+    private BatchQueryRepository batchQueryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        batchQueryRepository.saveAll(List.of(
+                new BatchRecord(null, "Equity", "US Large Cap", "Scenario 1", "Entity A", BATCH_DATE),
+                new BatchRecord(null, "Equity", "US Large Cap", "Scenario 2", "Entity A", BATCH_DATE)));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Not rolled back: each repository call commits on its own
+        batchQueryRepository.deleteAll();
+    }
+
+    @Test
+    void shouldServeRepeatedDateQueriesFromCache() {
+        // Given
+        batchQueryRepository.findAllByBatchDateBetween(BATCH_DATE.minusDays(119), BATCH_DATE);
+
+        // When
+        List<BatchRecord> records = batchQueryRepository.findAllByBatchDateBetween(BATCH_DATE.minusDays(119), BATCH_DATE);
+
+        // Then
+        assertThat(records).hasSize(2);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldInvalidateCachedQueriesOnWrite() {
+        // Given
+        batchQueryRepository.findAllByBatchDate(BATCH_DATE);
+
+        // When
+        batchQueryRepository.save(new BatchRecord(null, "Equity", "US Large Cap", "Scenario 3", "Entity A", BATCH_DATE));
+        List<BatchRecord> records = batchQueryRepository.findAllByBatchDate(BATCH_DATE);
+
+        // Then
+        assertThat(records).hasSize(3);
+        assertThat(statistics.getQueryCacheHitCount()).isZero();
+    }
+}
@@ -0,0 +1,55 @@
+package com.demo.batchreport.cli;
+
+import com.demo.batchreport.service.BatchReportService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.DefaultApplicationArguments;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class ReportCommandTest {
+
+    @Mock
+    private BatchReportService batchReportService;
+
+    @InjectMocks
+    private ReportCommand reportCommand;
+
+    @Test
+    void shouldWriteEmlInsteadOfSending(@TempDir Path dir) {
+        // Given
+        Path eml = dir.resolve("report.eml");
+
+        // When
+        int exitCode = reportCommand.run(new DefaultApplicationArguments("--date=2024-12-15", "--eml=" + eml));
+
+        // Then
+        assertThat(exitCode).isEqualTo(ReportCommand.OK);
+        assertThat(eml).exists();
+        verify(batchReportService).writeBatchReport(any(LocalDate.class), any(OutputStream.class));
+        verify(batchReportService, never()).sendBatchReport(any());
+    }
+
+    @Test
+    void shouldRejectMalformedDate() {
+        // When
+        int exitCode = reportCommand.run(new DefaultApplicationArguments("--date=15/12/2024"));
+
+        // Then
+        assertThat(exitCode).isEqualTo(ReportCommand.USAGE);
+        verifyNoInteractions(batchReportService);
+    }
+}
@@ -0,0 +1,129 @@
+package com.demo.batchreport.controller;
+
+import com.demo.batchreport.service.BatchRecordIngestor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sustained rows per second through {@code POST /api/records}: concurrent producers stream NDJSON over HTTP,
+ * first as new loads and then restated in full. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "report.warmup.enabled=false",
+        "report.ingest.queue-capacity=5000"})
+class BatchRecordIngestLoadTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int ROWS_PER_PRODUCER = 250_000;
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 16);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BatchRecordIngestor ingestor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void measureSustainedRowsPerSecond() throws Exception {
+        // Given
+        AtomicInteger maxQueued = new AtomicInteger();
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                maxQueued.accumulateAndGet(ingestor.getQueued(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+
+        try {
+            for (String pass : new String[]{"new", "restated"}) {
+                // When
+                long start = System.nanoTime();
+                List<JsonNode> results = post();
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                // Then
+                long inserted = results.stream().mapToLong(result -> result.get("inserted").asLong()).sum();
+                long duplicates = results.stream().mapToLong(result -> result.get("duplicates").asLong()).sum();
+                System.out.printf("%s: %,d rows from %d producers in %.2f s = %,.0f rows/s (%,d inserted, %,d duplicates)%n",
+                        pass, PRODUCERS * ROWS_PER_PRODUCER, PRODUCERS, seconds, PRODUCERS * ROWS_PER_PRODUCER / seconds,
+                        inserted, duplicates);
+                assertThat(results).allMatch(result -> result.get("outcome").asText().equals("COMMITTED"));
+                assertThat(inserted + duplicates).isEqualTo((long) PRODUCERS * ROWS_PER_PRODUCER);
+                assertThat(inserted).isEqualTo(pass.equals("new") ? PRODUCERS * ROWS_PER_PRODUCER : 0);
+            }
+        } finally {
+            sampler.interrupt();
+        }
+        System.out.printf("most rows queued: %,d of 5,000%n", maxQueued.get());
+        assertThat(maxQueued.get()).isLessThanOrEqualTo(5000);
+    }
+
+    private List<JsonNode> post() throws Exception {
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        try {
+            List<Future<JsonNode>> futures = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                int producer = p;
+                futures.add(producers.submit(() -> post(producer)));
+            }
+            List<JsonNode> results = new ArrayList<>();
+            for (Future<JsonNode> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            producers.shutdown();
+        }
+    }
+
+    private JsonNode post(int producer) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://localhost:" + port + "/api/records").toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(64 * 1024);
+        connection.setRequestProperty("Content-Type", "application/x-ndjson");
+        try (OutputStream body = connection.getOutputStream();
+             Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), 64 * 1024)) {
+            for (int i = 0; i < ROWS_PER_PRODUCER; i++) {
+                out.write("{\"assetClass\":\"Equity\",\"product\":\"Product " + producer + "\",\"entity\":\"Entity "
+                        + i % 13 + "\",\"scenario\":\"Scenario " + i + "\",\"batchDate\":\"" + BATCH_DATE.minusDays(i % 5) + "\"}\n");
+            }
+        }
+        try (InputStream response = connection.getInputStream()) {
+            return objectMapper.readTree(response);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.demo.batchreport.controller;
+
+import com.demo.batchreport.domain.BatchSummary;
+import com.demo.batchreport.service.BatchReportService;
+import com.demo.batchreport.service.ReportArtifactCache;
+import com.demo.batchreport.service.ReportCsvExporter;
+import com.demo.batchreport.service.ReportDataVersions;
+import com.demo.batchreport.service.ScenarioDetailPager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ReportDataController.class)
+class ReportDataControllerTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 15);
+    private static final String ETAG = "\"summary-2024-12-15-00000000000000ff\"";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BatchReportService batchReportService;
+
+    @MockBean
+    private ScenarioDetailPager scenarioDetailPager;
+
+    @MockBean
+    private ReportDataVersions reportDataVersions;
+
+    @MockBean
+    private ReportArtifactCache reportArtifactCache;
+
+    @MockBean
+    private ReportCsvExporter reportCsvExporter;
+
+    @Test
+    void shouldReturnSummaryWithETag() throws Exception {
+        // Given
+        when(reportDataVersions.summaryTag(BATCH_DATE)).thenReturn(ETAG);
+        when(batchReportService.findSummaryData(BATCH_DATE)).thenReturn(List.of(
+                new BatchSummary("Equity", "US Large Cap", "Entity A", 2L, 3L, BatchSummary.CompletionStatus.INCOMPLETE)));
+
+        // When / Then
+        mockMvc.perform(get("/api/reports/2024-12-15/summary"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(jsonPath("$[0].assetClass").value("Equity"))
+                .andExpect(jsonPath("$[0].status").value("INCOMPLETE"));
+    }
+
+    @Test
+    void shouldAnswerMatchingETagWithNotModifiedWithoutAggregating() throws Exception {
+        // Given
+        when(reportDataVersions.summaryTag(BATCH_DATE)).thenReturn(ETAG);
+
+        // When / Then
+        mockMvc.perform(get("/api/reports/2024-12-15/summary").header("If-None-Match", ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", ETAG));
+        verify(batchReportService, never()).findSummaryData(any());
+    }
+
+    @Test
+    void shouldStreamCsvAsGzipFileWithItsOwnETag() throws Exception {
+        // Given
+        when(reportDataVersions.summaryTag(BATCH_DATE)).thenReturn(ETAG);
+
+        // When
+        MvcResult started = mockMvc.perform(get("/api/reports/2024-12-15/csv/summary")).andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"summary-2024-12-15-00000000000000ff-csv\""))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=batch-report-2024-12-15-summary.csv.gz"));
+        verify(reportCsvExporter).write(eq(ReportCsvExporter.Dataset.SUMMARY), eq(BATCH_DATE), any());
+    }
+
+    @Test
+    void shouldRejectUnknownCsvDataset() throws Exception {
+        // When / Then
+        mockMvc.perform(get("/api/reports/2024-12-15/csv/everything"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,88 @@
+package com.demo.batchreport.controller;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rows per second and heap held downloading {@code GET /export-workbook} over HTTP for a day of a million rows.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO",
+        "report.warmup.enabled=false"})
+class WorkbookExportBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 16);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void measureRowsPerSecondEndToEnd() throws Exception {
+        // Given
+        jdbcTemplate.update("INSERT INTO batch_record (id, asset_class, product, scenario, entity, batch_date) "
+                + "SELECT x, CASEWHEN(MOD(x, 2) = 0, 'Equity', 'Fixed Income'), CONCAT('Product ', MOD(x, 97)), "
+                + "CONCAT('Scenario ', x), CONCAT('Entity ', MOD(x, 13)), CAST(? AS DATE) "
+                + "FROM SYSTEM_RANGE(1, CAST(? AS BIGINT))", BATCH_DATE, ROWS);
+        // Warm-up run, not measured
+        download();
+
+        // When
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        long[] download = download();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Then
+        System.out.printf("%,d rows in %.2f s = %,.0f rows/s, %,d bytes, peak heap %,d KB over %,d KB before%n",
+                ROWS, seconds, ROWS / seconds, download[0], download[1] / 1024, heapBefore / 1024);
+        assertThat(download[0]).isPositive();
+        // Rows are streamed, not held. The in-memory H2 shares the heap and buffers the DISTINCT result itself,
+        // so this only bounds what the export adds on top of the database
+        assertThat(download[1]).isLessThan(heapBefore + 256L * 1024 * 1024);
+    }
+
+    /**
+     * Bytes received and the most heap used, sampled while reading
+     */
+    private long[] download() throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(
+                "http://localhost:" + port + "/export-workbook?batchDate=" + BATCH_DATE).toURL().openConnection();
+        long bytes = 0;
+        long peakHeap = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = connection.getInputStream()) {
+            for (int read, chunk = 0; (read = in.read(buffer)) > 0; chunk++) {
+                bytes += read;
+                if (chunk % 256 == 0) {
+                    peakHeap = Math.max(peakHeap, usedHeap());
+                }
+            }
+        }
+        return new long[]{bytes, peakHeap};
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
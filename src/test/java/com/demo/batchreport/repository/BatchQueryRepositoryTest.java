@@ -0,0 +1,95 @@
+package com.demo.batchreport.repository;
+
+import com.demo.batchreport.config.ExpectedScenariosConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.domain.ExpectedScenarioEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(ExpectedScenarioCatalogue.class)
+class BatchQueryRepositoryTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 16);
+
+    @Autowired
+    private BatchQueryRepository batchQueryRepository;
+
+    @Autowired
+    private ExpectedScenarioRepository expectedScenarioRepository;
+
+    @Autowired
+    private ExpectedScenarioCatalogue catalogue;
+
+    @BeforeEach
+    void setUp() {
+        batchQueryRepository.saveAll(List.of(
+                record("Equity", "US Large Cap", "Entity A", "Base", BATCH_DATE),
+                record("Equity", "US Large Cap", "Entity A", "Stress", BATCH_DATE),
+                record("Equity", "US Large Cap", "Entity A", "Custom", BATCH_DATE),
+                record("Crypto", "Spot", "Entity Z", "Base", BATCH_DATE),
+                record("Equity", "US Large Cap", "Entity A", "Adverse", BATCH_DATE.minusDays(1))));
+    }
+
+    @Test
+    void shouldSyncCatalogueWithConfiguration() {
+        // Given - a stale row and a missing one
+        expectedScenarioRepository.deleteAll(expectedScenarioRepository.findAll().subList(0, 1));
+        expectedScenarioRepository.save(new ExpectedScenarioEntry(
+                null, "Retired", "Product", "Entity", "Base"));
+
+        // When
+        catalogue.sync();
+
+        // Then
+        assertThat(expectedScenarioRepository.count()).isEqualTo(ExpectedScenariosConfig.getTotalExpectedScenarios());
+        assertThat(expectedScenarioRepository.findAll()).noneMatch(entry -> entry.getAssetClass().equals("Retired"));
+    }
+
+    @Test
+    void shouldSummariseGroupsInTheDatabase() {
+        // When
+        Map<String, BatchQueryRepository.GroupCounts> summary = batchQueryRepository.summarise(BATCH_DATE).stream()
+                .collect(Collectors.toMap(row -> row.getAssetClass() + "|" + row.getProduct() + "|" + row.getEntity(),
+                        row -> row));
+
+        // Then
+        assertThat(summary).hasSize(ExpectedScenariosConfig.getScenariosByGroup().size() + 1);
+        assertThat(summary.get("Equity|US Large Cap|Entity A").getLoaded()).isEqualTo(3);
+        assertThat(summary.get("Equity|US Large Cap|Entity A").getExpected()).isEqualTo(3);
+        assertThat(summary.get("Equity|US Large Cap|Entity B").getLoaded()).isZero();
+        assertThat(summary.get("Crypto|Spot|Entity Z").getExpected()).isZero();
+    }
+
+    @Test
+    void shouldFindMissingAndUnexpectedScenariosInTheDatabase() {
+        // When
+        List<BatchQueryRepository.ScenarioRow> rows = batchQueryRepository.scenarioRows(BATCH_DATE);
+
+        // Then
+        int total = ExpectedScenariosConfig.getTotalExpectedScenarios();
+        assertThat(rows).hasSize(total + 2);
+        assertThat(rows).filteredOn(row -> row.getLoaded() == 1 && row.getExpected() == 1)
+                .extracting(BatchQueryRepository.ScenarioRow::getScenario)
+                .containsExactlyInAnyOrder("Base", "Stress");
+        assertThat(rows).filteredOn(row -> row.getExpected() == 0)
+                .extracting(BatchQueryRepository.ScenarioRow::getScenario)
+                .containsExactlyInAnyOrder("Custom", "Base");
+        assertThat(batchQueryRepository.countLoadedScenarios(BATCH_DATE)).isEqualTo(4);
+        assertThat(batchQueryRepository.countMissingScenarios(BATCH_DATE)).isEqualTo(total - 2);
+    }
+
+    private static BatchRecord record(String assetClass, String product, String entity, String scenario, LocalDate batchDate) {
+        return new BatchRecord(null, assetClass, product, scenario, entity, batchDate);
+    }
+}
@@ -0,0 +1,169 @@
+package com.demo.batchreport.repository;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecordsChangedEvent;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BatchRecordPartitionsTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 12, 15);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    private ReportConfig reportConfig;
+
+    @BeforeEach
+    void setUp() {
+        reportConfig = new ReportConfig();
+        reportConfig.getPartitioning().setRetentionMonths(6);
+        lenient().when(entityManagerFactory.getCache()).thenReturn(mock(Cache.class));
+        lenient().when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(mock(SessionFactory.class, RETURNS_DEEP_STUBS));
+    }
+
+    @Test
+    void shouldCreateMonthsAheadAndDropWholePartitionsPastRetention() {
+        // Given - partitions for every month of 2024
+        List<String> existing = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            existing.add(BatchRecordPartitions.partitionName(YearMonth.of(2024, month)));
+        }
+        when(jdbcTemplate.queryForList(contains("relkind"), eq(String.class))).thenReturn(List.of("p"));
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class))).thenReturn(existing);
+        BatchRecordPartitions partitions = new BatchRecordPartitions(jdbcTemplate, reportConfig, eventPublisher,
+                entityManagerFactory, "PostgreSQL");
+        clearInvocations(jdbcTemplate);
+
+        // When
+        partitions.maintain(TODAY);
+
+        // Then
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS batch_record_y2025m01 PARTITION OF batch_record"
+                + " FOR VALUES FROM ('2025-01-01') TO ('2025-02-01')");
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS batch_record_y2025m02"));
+        verify(jdbcTemplate, times(2)).execute(startsWith("CREATE TABLE"));
+        // Six whole months before December are kept: June onwards
+        verify(jdbcTemplate).execute("DROP TABLE batch_record_y2024m01");
+        verify(jdbcTemplate).execute("DROP TABLE batch_record_y2024m05");
+        verify(jdbcTemplate, never()).execute("DROP TABLE batch_record_y2024m06");
+        verify(jdbcTemplate, times(5)).execute(startsWith("DROP TABLE"));
+        verify(jdbcTemplate, never()).update(startsWith("DELETE"), any(Object[].class));
+
+        ArgumentCaptor<BatchRecordsChangedEvent> events = ArgumentCaptor.forClass(BatchRecordsChangedEvent.class);
+        verify(eventPublisher, times(5)).publishEvent(events.capture());
+        assertThat(events.getAllValues().get(0).getBatchDates())
+                .hasSize(31)
+                .contains(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+    }
+
+    @Test
+    void shouldDetachAndKeepRetiredPartitionsWhenArchiving() {
+        // Given
+        reportConfig.getPartitioning().setArchive(true);
+        when(jdbcTemplate.queryForList(contains("relkind"), eq(String.class))).thenReturn(List.of("p"));
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class)))
+                .thenReturn(List.of("batch_record_y2024m03", "batch_record_y2024m12"));
+        BatchRecordPartitions partitions = new BatchRecordPartitions(jdbcTemplate, reportConfig, eventPublisher,
+                entityManagerFactory, "PostgreSQL");
+
+        // When
+        partitions.maintain(TODAY);
+
+        // Then
+        verify(jdbcTemplate).execute("ALTER TABLE batch_record DETACH PARTITION batch_record_y2024m03");
+        verify(jdbcTemplate).execute("ALTER TABLE batch_record_y2024m03 RENAME TO batch_record_archive_y2024m03");
+        verify(jdbcTemplate, never()).execute(startsWith("DROP TABLE"));
+    }
+
+    @Test
+    void shouldFallBackToOneSetBasedDeleteWithoutNativePartitioning() {
+        // Given
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        try {
+            JdbcTemplate h2 = new JdbcTemplate(database);
+            h2.execute("CREATE TABLE batch_record (id BIGINT PRIMARY KEY, asset_class VARCHAR(255), product VARCHAR(255), "
+                    + "scenario VARCHAR(255), entity VARCHAR(255), batch_date DATE)");
+            h2.update("INSERT INTO batch_record (id, batch_date) VALUES (1, DATE '2024-01-10'), (2, DATE '2024-05-31'), "
+                    + "(3, DATE '2024-06-01'), (4, DATE '2024-12-15')");
+            BatchRecordPartitions partitions = new BatchRecordPartitions(h2, reportConfig, eventPublisher,
+                    entityManagerFactory, "H2");
+
+            // When
+            partitions.maintain(TODAY);
+
+            // Then
+            assertThat(partitions.isNativePartitioning()).isFalse();
+            assertThat(h2.queryForList("SELECT id FROM batch_record ORDER BY id", Long.class)).containsExactly(3L, 4L);
+            ArgumentCaptor<BatchRecordsChangedEvent> event = ArgumentCaptor.forClass(BatchRecordsChangedEvent.class);
+            verify(eventPublisher).publishEvent(event.capture());
+            assertThat(event.getValue().getBatchDates()).contains(LocalDate.of(2024, 1, 10), LocalDate.of(2024, 5, 31))
+                    .doesNotContain(LocalDate.of(2024, 6, 1));
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    @Test
+    void shouldFailStartupWhenTheTableExistsUnpartitioned() {
+        // Given - a plain table, as Hibernate's ddl-auto creates it
+        when(jdbcTemplate.queryForList(contains("relkind"), eq(String.class))).thenReturn(List.of("r"));
+
+        // When / Then
+        assertThatThrownBy(() -> new BatchRecordPartitions(jdbcTemplate, reportConfig, eventPublisher,
+                entityManagerFactory, "PostgreSQL"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("ddl-auto");
+    }
+
+    @Test
+    void shouldRejectRetentionShorterThanTheReportWindow() {
+        // Given
+        reportConfig.getPartitioning().setRetentionMonths(3);
+
+        // When / Then
+        assertThatThrownBy(() -> new BatchRecordPartitions(jdbcTemplate, reportConfig, eventPublisher,
+                entityManagerFactory, "PostgreSQL"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("retention-months");
+    }
+}
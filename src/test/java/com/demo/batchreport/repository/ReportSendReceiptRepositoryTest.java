@@ -0,0 +1,66 @@
+package com.demo.batchreport.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReportSendReceiptRepositoryTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 16);
+    private static final String KEY = "month-end-1";
+
+    @Autowired
+    private ReportSendReceiptRepository receipts;
+
+    @AfterEach
+    void tearDown() {
+        // Not rolled back: the claim queries commit on their own
+        receipts.deleteAll();
+    }
+
+    @Test
+    void shouldLetOnlyOneRequestClaimAKeyUntilItExpires() {
+        // Given
+        Instant now = Instant.now();
+        receipts.insertClaim(KEY, BATCH_DATE, now);
+
+        // When / Then - a second claim collides, in flight or sent, until the window has passed
+        assertThatThrownBy(() -> receipts.insertClaim(KEY, BATCH_DATE, now))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(receipts.reclaim(KEY, BATCH_DATE, now, now.minus(Duration.ofMinutes(15)))).isZero();
+        assertThat(receipts.markSent(KEY, now)).isEqualTo(1);
+        assertThat(receipts.findById(KEY).orElseThrow().getSentAt()).isNotNull();
+        assertThat(receipts.reclaim(KEY, BATCH_DATE, now, now.minus(Duration.ofMinutes(15)))).isZero();
+
+        Instant later = now.plus(Duration.ofMinutes(20));
+        assertThat(receipts.reclaim(KEY, BATCH_DATE, later, later.minus(Duration.ofMinutes(15)))).isEqualTo(1);
+        assertThat(receipts.findById(KEY).orElseThrow().getSentAt()).isNull();
+    }
+
+    @Test
+    void shouldPruneAbandonedClaims() {
+        // Given - a claim whose sender died before it finished
+        Instant claimed = Instant.now().minus(Duration.ofHours(1));
+        receipts.insertClaim(KEY, BATCH_DATE, claimed);
+
+        // When
+        int pruned = receipts.deleteSentBefore(Instant.now().minus(Duration.ofMinutes(15)));
+
+        // Then
+        assertThat(pruned).isEqualTo(1);
+        assertThat(receipts.existsById(KEY)).isFalse();
+    }
+}
@@ -0,0 +1,184 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.IsoLocalTimeConverter;
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.IngestResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@Import({BatchRecordIngestor.class, ReportConfig.class, IsoLocalTimeConverter.class, JacksonAutoConfiguration.class})
+// The writer commits on its own thread, so the test cannot run inside a transaction it would never see
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BatchRecordIngestorTest {
+
+    @Autowired
+    private BatchRecordIngestor ingestor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM batch_record");
+    }
+
+    @Test
+    void shouldCountRestatedRowsOnce() throws IOException {
+        // Given
+        ingestor.ingest(ndjson(
+                "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\"Base\",\"batchDate\":\"2024-12-16\"}",
+                "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\"Stress\",\"batchDate\":\"2024-12-16\"}"));
+
+        // When - a restated load repeats both rows and adds one
+        IngestResult result = ingestor.ingest(ndjson(
+                "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\"Base\",\"batchDate\":\"2024-12-16\"}",
+                "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\"Stress\",\"batchDate\":\"2024-12-16\"}",
+                "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\"Stress\",\"batchDate\":\"2024-12-16\"}",
+                "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\"Adverse\",\"batchDate\":\"2024-12-16\"}"));
+
+        // Then
+        assertThat(result.getOutcome()).isEqualTo(IngestResult.Outcome.COMMITTED);
+        assertThat(result.getReceived()).isEqualTo(4);
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getDuplicates()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM batch_record", Long.class)).isEqualTo(3);
+    }
+
+    @Test
+    void shouldWriteRowsBeforeAnInvalidLineAndReportIt() throws IOException {
+        // When
+        IngestResult result = ingestor.ingest(ndjson(
+                "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\"Base\",\"batchDate\":\"2024-12-16\"}",
+                "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"batchDate\":\"2024-12-16\"}",
+                "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\"Adverse\",\"batchDate\":\"2024-12-16\"}"));
+
+        // Then
+        assertThat(result.getOutcome()).isEqualTo(IngestResult.Outcome.INVALID);
+        assertThat(result.getError()).isEqualTo("Line 2: scenario is required");
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM batch_record", Long.class)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectTooLongValueBeforeItReachesASharedBatch() throws IOException {
+        // When
+        IngestResult result = ingestor.ingest(ndjson(
+                "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\"Base\",\"batchDate\":\"2024-12-16\"}",
+                "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\""
+                        + "S".repeat(BatchRecordIngestor.MAX_LENGTH + 1) + "\",\"batchDate\":\"2024-12-16\"}"));
+
+        // Then
+        assertThat(result.getOutcome()).isEqualTo(IngestResult.Outcome.INVALID);
+        assertThat(result.getError()).isEqualTo("Line 2: scenario is longer than 255 characters");
+        assertThat(result.getInserted()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRetryAFailedBatchOneRowAtATime() throws Exception {
+        // Given - the database rejects the batch, and then the one row with a bad scenario
+        JdbcTemplate database = mockDatabase("H2");
+        when(database.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            BatchPreparedStatementSetter setter = invocation.getArgument(1);
+            PreparedStatement statement = mock(PreparedStatement.class);
+            setter.setValues(statement, 0);
+            if (setter.getBatchSize() > 1 || verifyScenario(statement, "Bad")) {
+                throw new DataIntegrityViolationException("rejected");
+            }
+            return new int[]{1};
+        });
+        BatchRecordIngestor mocked = mockedIngestor(database);
+
+        // When
+        IngestResult result;
+        try {
+            result = mocked.ingest(ndjson(
+                    "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\"Base\",\"batchDate\":\"2024-12-16\"}",
+                    "{\"assetClass\":\"Equity\",\"product\":\"US Large Cap\",\"entity\":\"Entity A\",\"scenario\":\"Bad\",\"batchDate\":\"2024-12-16\"}"));
+        } finally {
+            mocked.stop();
+        }
+
+        // Then
+        assertThat(result.getOutcome()).isEqualTo(IngestResult.Outcome.FAILED);
+        assertThat(result.getError()).isEqualTo("1 rows not written: rejected");
+        assertThat(result.getInserted()).isEqualTo(1);
+        // The shared batch, then each row on its own
+        verify(database, times(3)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    void shouldFailStartupWithoutTheUniqueKeyOnPostgres() {
+        // Given - a table created before the entity declared its key
+        JdbcTemplate database = mockDatabase("PostgreSQL");
+        when(database.queryForObject(contains("pg_index"), eq(Long.class))).thenReturn(0L);
+
+        // When / Then
+        assertThatThrownBy(() -> mockedIngestor(database))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("batch_record_natural_key.sql");
+    }
+
+    private static JdbcTemplate mockDatabase(String product) {
+        JdbcTemplate database = mock(JdbcTemplate.class);
+        when(database.execute(ArgumentMatchers.<ConnectionCallback<String>>any())).thenReturn(product);
+        return database;
+    }
+
+    private static BatchRecordIngestor mockedIngestor(JdbcTemplate database) {
+        ReportConfig reportConfig = new ReportConfig();
+        // Long enough for a whole request to share one batch
+        reportConfig.getIngest().setLinger(Duration.ofSeconds(1));
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(mock(SessionFactory.class, RETURNS_DEEP_STUBS));
+        return new BatchRecordIngestor(database, mock(PlatformTransactionManager.class), mock(ApplicationEventPublisher.class),
+                entityManagerFactory, new ObjectMapper().findAndRegisterModules(), reportConfig);
+    }
+
+    private static boolean verifyScenario(PreparedStatement statement, String scenario) throws SQLException {
+        ArgumentCaptor<String> value = ArgumentCaptor.forClass(String.class);
+        verify(statement, atLeastOnce()).setString(eq(5), value.capture());
+        return value.getValue().equals(scenario);
+    }
+
+    private static ByteArrayInputStream ndjson(String... lines) {
+        return new ByteArrayInputStream((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,21 +1,50 @@
 package com.demo.batchreport.service;
 
 import com.demo.batchreport.config.Config;
+import com.demo.batchreport.config.ReportConfig;
 import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.domain.BatchReport;
 import com.demo.batchreport.domain.BatchStatusCount;
+import com.demo.batchreport.domain.DistributionResult;
+import com.demo.batchreport.domain.ReportSendReceipt;
+import com.demo.batchreport.domain.SendReceipt;
 import com.demo.batchreport.repository.BatchQueryRepository;
+import com.demo.batchreport.repository.ReportSendReceiptRepository;
+import com.demo.batchreport.store.ColumnarBatchStore;
+import com.demo.batchreport.store.CompletenessEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.mail.javamail.JavaMailSender;
 
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,11 +59,19 @@ class BatchReportServiceTest {
     @Mock
     private BatchQueryRepository batchQueryRepository;
 
+    @Mock
+    private ReportSendReceiptRepository sendReceiptRepository;
+
+    private ReportConfig reportConfig;
     private BatchReportService batchReportService;
 
     @BeforeEach
     void setUp() {
-        batchReportService = new BatchReportService(mailSender, config, batchQueryRepository);
+        reportConfig = new ReportConfig();
+        ColumnarBatchStore batchStore = new ColumnarBatchStore(batchQueryRepository, reportConfig);
+        batchReportService = new BatchReportService(mailSender, config, batchQueryRepository,
+                batchStore, new CompletenessEngine(batchStore), new StatusChartRenderer(), reportConfig, new ReportArtifactCache(config, reportConfig),
+                new ReportDistributor(mailSender, reportConfig), new ReportProfiler(reportConfig), sendReceiptRepository, List.of());
     }
 
     @Test
@@ -174,5 +211,237 @@ class BatchReportServiceTest {
         assertThat(htmlContent).contains("December 15, 2024"); // Header date format
         assertThat(htmlContent).contains("2024-12-15"); // Table date format
     }
-}
 
+    @Test
+    void shouldMoveRepeatedInlineStylesIntoClasses() {
+        // Given
+        LocalDate testDate = LocalDate.of(2024, 12, 15);
+        when(config.isDedupeStyles()).thenReturn(true);
+
+        // When
+        String htmlContent = batchReportService.generateEmailOptimizedHtml(testDate, Arrays.asList(), Arrays.asList());
+
+        // Then
+        assertThat(htmlContent).contains(".s0 { ");
+        assertThat(htmlContent).doesNotContain("<td style=\"padding: 12px; border-bottom: 1px solid #e0e0e0; font-size: 14px;\">");
+        assertThat(htmlContent).contains("Key Scenario Details");
+    }
+
+    @Test
+    void shouldCollapseLowPrioritySectionsWhenOverBudget() {
+        // Given
+        LocalDate testDate = LocalDate.of(2024, 12, 15);
+        when(config.getByteBudget()).thenReturn(30_000);
+        when(config.getReportBaseUrl()).thenReturn("https://reports.example.com");
+
+        // When
+        String htmlContent = batchReportService.generateEmailOptimizedHtml(testDate, Arrays.asList(), Arrays.asList());
+
+        // Then
+        assertThat(htmlContent.getBytes(java.nio.charset.StandardCharsets.UTF_8).length).isLessThanOrEqualTo(30_000);
+        assertThat(htmlContent).contains("https://reports.example.com/preview-batch-report?batchDate=2024-12-15#backdated");
+        assertThat(htmlContent).contains("Load Summary");
+        assertThat(htmlContent).contains("cid:statusChart");
+    }
+
+    @Test
+    void shouldSendOnlyOncePerIdempotencyKey() {
+        // Given
+        LocalDate testDate = LocalDate.of(2024, 12, 15);
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        when(config.getFromAddress()).thenReturn("reports@company.com");
+        when(config.getFromName()).thenReturn("Batch Reports");
+        when(config.getRecipients()).thenReturn(List.of("ops@company.com"));
+        Map<String, ReportSendReceipt> receipts = receiptTable();
+        // When
+        SendReceipt first = batchReportService.sendBatchReport(testDate, "month-end-1");
+        SendReceipt second = batchReportService.sendBatchReport(testDate, "month-end-1");
+
+        // Then
+        assertThat(first.isReplayed()).isFalse();
+        assertThat(second.isReplayed()).isTrue();
+        assertThat(second.getSentAt()).isEqualTo(first.getSentAt());
+        assertThat(receipts.get("month-end-1").getSentAt()).isEqualTo(first.getSentAt());
+        verify(mailSender, times(1)).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void shouldNotSendWhileAnotherInstanceHoldsTheKey() {
+        // Given - another instance claimed the key and is still sending
+        LocalDate testDate = LocalDate.of(2024, 12, 15);
+        Map<String, ReportSendReceipt> receipts = receiptTable();
+        receipts.put("month-end-1", new ReportSendReceipt("month-end-1", testDate, null, Instant.now()));
+
+        // When / Then
+        assertThatThrownBy(() -> batchReportService.sendBatchReport(testDate, "month-end-1"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("already being sent");
+        verify(mailSender, never()).send(any(MimeMessage.class));
+    }
+
+    /**
+     * The receipt repository backed by a map, with the primary key enforced on insert
+     */
+    private Map<String, ReportSendReceipt> receiptTable() {
+        Map<String, ReportSendReceipt> receipts = new HashMap<>();
+        lenient().when(sendReceiptRepository.existsById(anyString())).thenAnswer(invocation -> receipts.containsKey(invocation.<String>getArgument(0)));
+        lenient().when(sendReceiptRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(receipts.get(invocation.<String>getArgument(0))));
+        lenient().when(sendReceiptRepository.insertClaim(anyString(), any(LocalDate.class), any(Instant.class))).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            if (receipts.containsKey(key)) {
+                throw new DataIntegrityViolationException("duplicate key " + key);
+            }
+            receipts.put(key, new ReportSendReceipt(key, invocation.getArgument(1), null, invocation.getArgument(2)));
+            return 1;
+        });
+        lenient().when(sendReceiptRepository.markSent(anyString(), any(Instant.class))).thenAnswer(invocation -> {
+            receipts.get(invocation.<String>getArgument(0)).setSentAt(invocation.getArgument(1));
+            return 1;
+        });
+        return receipts;
+    }
+
+    @Test
+    void shouldNotRecordSendWhenNoRecipientWasReached() throws Exception {
+        // Given
+        LocalDate testDate = LocalDate.of(2024, 12, 15);
+        ReportDistributor distributor = mock(ReportDistributor.class);
+        when(distributor.isBulk(any())).thenReturn(true);
+        when(distributor.distribute(any(MimeMessage.class), any())).thenReturn(new DistributionResult(0, 3, 3, 1, Duration.ZERO));
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        when(config.getFromAddress()).thenReturn("reports@company.com");
+        when(config.getFromName()).thenReturn("Batch Reports");
+        when(config.getRecipients()).thenReturn(List.of("a@company.com", "b@company.com", "c@company.com"));
+        ColumnarBatchStore batchStore = new ColumnarBatchStore(batchQueryRepository, reportConfig);
+        batchReportService = new BatchReportService(mailSender, config, batchQueryRepository,
+                batchStore, new CompletenessEngine(batchStore), new StatusChartRenderer(), reportConfig, new ReportArtifactCache(config, reportConfig),
+                distributor, new ReportProfiler(reportConfig), sendReceiptRepository, List.of());
+
+        // When / Then
+        assertThatThrownBy(() -> batchReportService.sendBatchReport(testDate, "month-end-1"))
+                .isInstanceOf(RuntimeException.class)
+                .hasRootCauseInstanceOf(MessagingException.class);
+        verify(sendReceiptRepository).releaseClaim("month-end-1");
+        verify(sendReceiptRepository, never()).markSent(anyString(), any(Instant.class));
+    }
+
+    @Test
+    void shouldOnlyComputeDataForEnabledSections() {
+        // Given
+        LocalDate testDate = LocalDate.of(2024, 12, 15);
+        reportConfig.getSections().getDisabled().put(ReportConfig.Channel.EMAIL, Set.of("details", "backdated"));
+        ReportSection owners = new ReportSection() {
+            @Override
+            public String getName() {
+                return "owners";
+            }
+
+            @Override
+            public String render(ReportConfig.Channel channel, ReportContext context) {
+                return "<tr><td>Owners for " + context.getBatchDate() + "</td></tr>";
+            }
+        };
+        ColumnarBatchStore batchStore = new ColumnarBatchStore(batchQueryRepository, reportConfig);
+        batchReportService = new BatchReportService(mailSender, config, batchQueryRepository,
+                batchStore, new CompletenessEngine(batchStore), new StatusChartRenderer(), reportConfig, new ReportArtifactCache(config, reportConfig),
+                new ReportDistributor(mailSender, reportConfig), new ReportProfiler(reportConfig), sendReceiptRepository, List.of(owners));
+
+        List<BatchRecord> records = List.of(new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", testDate));
+        List<BatchStatusCount> statusCounts = List.of(new BatchStatusCount(testDate, 1L, 0L));
+
+        // When
+        String htmlContent = batchReportService.generateEmailOptimizedHtml(testDate, records, statusCounts);
+
+        // Then
+        assertThat(htmlContent).contains("Load Summary", "Owners for 2024-12-15");
+        assertThat(htmlContent).doesNotContain("Key Scenario Details");
+        // Backdated scenarios are the only section that reads other dates from the repository
+        verify(batchQueryRepository, never()).findAllByBatchDateBetween(any(), any());
+    }
+
+    @Test
+    void shouldLoadSegmentForSectionThatAsksInDatabaseAggregation() {
+        // Given
+        LocalDate testDate = LocalDate.of(2024, 12, 15);
+        reportConfig.getStore().setAggregation(ReportConfig.Aggregation.DATABASE);
+        when(batchQueryRepository.existsByBatchDate(testDate)).thenReturn(true);
+        ReportSection rows = new ReportSection() {
+            @Override
+            public String getName() {
+                return "rows";
+            }
+
+            @Override
+            public String render(ReportConfig.Channel channel, ReportContext context) {
+                return "<tr><td>Rows read: " + context.getSegment().size() + "</td></tr>";
+            }
+        };
+        ColumnarBatchStore batchStore = new ColumnarBatchStore(batchQueryRepository, reportConfig);
+        batchReportService = new BatchReportService(mailSender, config, batchQueryRepository,
+                batchStore, new CompletenessEngine(batchStore), new StatusChartRenderer(), reportConfig, new ReportArtifactCache(config, reportConfig),
+                new ReportDistributor(mailSender, reportConfig), new ReportProfiler(reportConfig), sendReceiptRepository, List.of(rows));
+
+        // When
+        String htmlContent = batchReportService.generateBatchReportPreview(testDate);
+
+        // Then
+        assertThat(htmlContent).containsPattern("Rows read: [1-9]");
+        verify(batchQueryRepository).countMissingScenarios(testDate);
+    }
+
+    @Test
+    void shouldRenderEveryFormatFromOneComputedReport() {
+        // Given
+        LocalDate testDate = LocalDate.of(2024, 12, 15);
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        when(config.getFromAddress()).thenReturn("reports@company.com");
+        when(config.getFromName()).thenReturn("Batch Reports");
+        when(config.getRecipients()).thenReturn(List.of("ops@company.com"));
+        BatchReport report = batchReportService.buildReport(testDate);
+        clearInvocations(batchQueryRepository);
+
+        // When
+        String web = batchReportService.renderWebHtml(report);
+        String email = batchReportService.renderEmailHtml(report);
+        byte[] eml = batchReportService.renderEml(report);
+
+        // Then
+        String loaded = String.format("%,d", report.getTotals().getTotalLoaded());
+        assertThat(web).contains("Completeness Heatmap", loaded);
+        assertThat(email).contains(loaded);
+        assertThat(new String(eml, java.nio.charset.StandardCharsets.UTF_8)).contains("Content-ID: <statusChart>");
+        verifyNoInteractions(batchQueryRepository);
+    }
+
+    @Test
+    void shouldAttachWorkbookWithEveryScenario() throws Exception {
+        // Given
+        LocalDate testDate = LocalDate.of(2024, 12, 15);
+        reportConfig.getSend().setAttachWorkbook(true);
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        when(config.getFromAddress()).thenReturn("reports@company.com");
+        when(config.getFromName()).thenReturn("Batch Reports");
+        when(config.getRecipients()).thenReturn(List.of("ops@company.com"));
+        BatchReport report = batchReportService.buildReport(testDate);
+
+        // When
+        PreparedReport prepared = batchReportService.prepareEmail(report);
+        byte[] eml = batchReportService.renderEml(report);
+
+        // Then
+        assertThat(prepared.getWorkbook()).isNotNull();
+        String sheet = null;
+        try (java.util.zip.ZipInputStream zip = new java.util.zip.ZipInputStream(new java.io.ByteArrayInputStream(prepared.getWorkbook()))) {
+            for (java.util.zip.ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (entry.getName().equals("xl/worksheets/sheet2.xml")) {
+                    sheet = new String(zip.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
+                }
+            }
+        }
+        // Header plus every scenario, not just the rows the email shows
+        assertThat(sheet.split("<row>", -1)).hasSize(report.getScenarioDetails().size() + 2);
+        assertThat(new String(eml, java.nio.charset.StandardCharsets.UTF_8))
+                .contains("filename=batch-report-2024-12-15.xlsx");
+    }
+}
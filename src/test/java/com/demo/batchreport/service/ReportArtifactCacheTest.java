@@ -0,0 +1,67 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.Config;
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecordsChangedEvent;
+import com.demo.batchreport.domain.ReportCacheStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDate;
+
+import static com.demo.batchreport.service.ReportArtifactCache.ArtifactType.CHART_PNG;
+import static com.demo.batchreport.service.ReportArtifactCache.ArtifactType.WEB_PREVIEW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportArtifactCacheTest {
+
+    private static final LocalDate REPORT_DATE = LocalDate.of(2024, 12, 15);
+
+    private ReportArtifactCache cache;
+
+    @BeforeEach
+    void setUp() {
+        ReportConfig reportConfig = new ReportConfig();
+        reportConfig.getCache().setMaxSize(DataSize.ofKilobytes(10));
+        cache = new ReportArtifactCache(new Config(), reportConfig);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedBySize() {
+        // Given: three 4KB artifacts against a 10KB budget, the first touched again before the third arrives
+        cache.put(REPORT_DATE, WEB_PREVIEW, 1L, new byte[4_000]);
+        cache.put(REPORT_DATE, CHART_PNG, 1L, new byte[4_000]);
+        cache.<byte[]>get(REPORT_DATE, WEB_PREVIEW, 1L);
+
+        // When
+        cache.put(REPORT_DATE.minusDays(1), WEB_PREVIEW, 1L, new byte[4_000]);
+
+        // Then
+        assertThat(cache.<byte[]>get(REPORT_DATE, WEB_PREVIEW, 1L)).isNotNull();
+        assertThat(cache.<byte[]>get(REPORT_DATE, CHART_PNG, 1L)).isNull();
+        ReportCacheStats stats = cache.stats();
+        assertThat(stats.getEvictions()).isEqualTo(1);
+        assertThat(stats.getWeightBytes()).isLessThanOrEqualTo(10_240);
+        assertThat(stats.getHitRatio()).isEqualTo(2.0 / 3);
+    }
+
+    @Test
+    void shouldInvalidateOnlyReportsWhoseWindowContainsTheChangedDate() {
+        // Given
+        cache.put(REPORT_DATE, WEB_PREVIEW, 1L, "<html>15th</html>");
+        cache.put(REPORT_DATE.minusDays(1), WEB_PREVIEW, 1L, "<html>14th</html>");
+        cache.put(REPORT_DATE.plusDays(119), WEB_PREVIEW, 1L, "<html>+119</html>");
+        cache.put(REPORT_DATE.plusDays(120), WEB_PREVIEW, 1L, "<html>+120</html>");
+
+        // When
+        cache.onRecordsChanged(BatchRecordsChangedEvent.of(REPORT_DATE));
+
+        // Then
+        assertThat(cache.<String>get(REPORT_DATE, WEB_PREVIEW, 1L)).isNull();
+        assertThat(cache.<String>get(REPORT_DATE.plusDays(119), WEB_PREVIEW, 1L)).isNull();
+        assertThat(cache.<String>get(REPORT_DATE.minusDays(1), WEB_PREVIEW, 1L)).isEqualTo("<html>14th</html>");
+        assertThat(cache.<String>get(REPORT_DATE.plusDays(120), WEB_PREVIEW, 1L)).isEqualTo("<html>+120</html>");
+        assertThat(cache.stats().getInvalidations()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,133 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static com.demo.batchreport.service.ReportArtifactCache.ArtifactType.CHART_PNG;
+import static com.demo.batchreport.service.ReportArtifactCache.ArtifactType.EML;
+import static com.demo.batchreport.service.ReportArtifactCache.ArtifactType.WEB_PREVIEW;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReportArtifactStoreTest {
+
+    private static final LocalDate REPORT_DATE = LocalDate.of(2024, 12, 15);
+    private static final String RENDER = "render-1";
+
+    @TempDir
+    Path directory;
+
+    private ReportConfig.Cache.Disk settings;
+
+    @BeforeEach
+    void setUp() {
+        settings = new ReportConfig.Cache.Disk();
+        settings.setEnabled(true);
+        settings.setDirectory(directory.toString());
+        settings.setMaxSize(DataSize.ofKilobytes(10));
+    }
+
+    @Test
+    void shouldServeStoredArtifactsAfterRestart() throws Exception {
+        // Given
+        byte[] html = "<html>15th</html>".getBytes(StandardCharsets.UTF_8);
+        try (ReportArtifactStore first = new ReportArtifactStore(settings, RENDER)) {
+            first.put(REPORT_DATE, WEB_PREVIEW, 7L, html, true);
+        }
+
+        // When
+        ReportArtifactStore restarted = new ReportArtifactStore(settings, RENDER);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        try (ReportArtifactStore.StoredArtifact artifact = restarted.open(REPORT_DATE, WEB_PREVIEW, 7L).orElseThrow()) {
+            artifact.transferTo(Channels.newChannel(streamed));
+        }
+
+        // Then
+        assertThat(restarted.get(REPORT_DATE, WEB_PREVIEW, 7L).getBytes()).isEqualTo(html);
+        assertThat(streamed.toByteArray()).isEqualTo(html);
+        assertThat(restarted.get(REPORT_DATE, WEB_PREVIEW, 8L)).isNull();
+    }
+
+    @Test
+    void shouldDropArtifactsRenderedByAnotherVersionOrConfig() {
+        // Given
+        try (ReportArtifactStore first = new ReportArtifactStore(settings, RENDER)) {
+            first.put(REPORT_DATE, WEB_PREVIEW, 7L, "<html>15th</html>".getBytes(StandardCharsets.UTF_8), true);
+        }
+
+        // When: restarted after a deploy or a change to the render settings
+        ReportArtifactStore restarted = new ReportArtifactStore(settings, "render-2");
+
+        // Then
+        assertThat(restarted.get(REPORT_DATE, WEB_PREVIEW, 7L)).isNull();
+        assertThat(restarted.open(REPORT_DATE, WEB_PREVIEW, 7L)).isEmpty();
+        assertThat(restarted.blobCount()).isZero();
+        assertThat(directory.resolve("blobs").toFile().list()).isEmpty();
+    }
+
+    @Test
+    void shouldStoreIdenticalArtifactsOnce() {
+        // Given
+        ReportArtifactStore store = new ReportArtifactStore(settings, RENDER);
+        byte[] chart = new byte[3_000];
+
+        // When
+        store.put(REPORT_DATE, CHART_PNG, 1L, chart, false);
+        store.put(REPORT_DATE.minusDays(1), CHART_PNG, 1L, chart.clone(), false);
+
+        // Then
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.blobCount()).isEqualTo(1);
+        assertThat(store.storedBytes()).isEqualTo(3_000);
+
+        store.removeIf(REPORT_DATE::equals);
+        assertThat(store.get(REPORT_DATE.minusDays(1), CHART_PNG, 1L)).isNotNull();
+        store.removeIf(date -> true);
+        assertThat(store.blobCount()).isZero();
+        assertThat(directory.resolve("blobs").toFile().list()).isEmpty();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedBeyondMaxSize() {
+        // Given: three distinct 4KB artifacts against a 10KB budget, the first read again before the third arrives
+        ReportArtifactStore store = new ReportArtifactStore(settings, RENDER);
+        store.put(REPORT_DATE, EML, 1L, filled(1), false);
+        store.put(REPORT_DATE, CHART_PNG, 1L, filled(2), false);
+        store.get(REPORT_DATE, EML, 1L);
+
+        // When
+        store.put(REPORT_DATE.minusDays(1), EML, 1L, filled(3), false);
+
+        // Then
+        assertThat(store.get(REPORT_DATE, EML, 1L)).isNotNull();
+        assertThat(store.get(REPORT_DATE, CHART_PNG, 1L)).isNull();
+        assertThat(store.storedBytes()).isLessThanOrEqualTo(10_240);
+    }
+
+    @Test
+    void shouldRefuseDirectoryHeldByAnotherStore() {
+        // Given
+        try (ReportArtifactStore owner = new ReportArtifactStore(settings, RENDER)) {
+            owner.put(REPORT_DATE, CHART_PNG, 1L, filled(1), false);
+
+            // When / Then
+            assertThatThrownBy(() -> new ReportArtifactStore(settings, RENDER)).isInstanceOf(IllegalStateException.class);
+            assertThat(owner.get(REPORT_DATE, CHART_PNG, 1L)).isNotNull();
+        }
+    }
+
+    private static byte[] filled(int value) {
+        byte[] bytes = new byte[4_000];
+        java.util.Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+}
@@ -0,0 +1,80 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.IsoLocalTimeConverter;
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.repository.ExpectedScenarioCatalogue;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Uncompressed and compressed MB/s exporting a million backdated rows from H2 at deflate levels 1 and 6.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@Import({ReportCsvExporter.class, ExpectedScenarioCatalogue.class, ReportConfig.class, IsoLocalTimeConverter.class})
+class ReportCsvExporterBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 16);
+
+    @Autowired
+    private ReportCsvExporter exporter;
+
+    @Autowired
+    private ReportConfig reportConfig;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void measureMegabytesPerSecond() throws Exception {
+        // Given - a million rows over the six backdated days
+        jdbcTemplate.update("INSERT INTO batch_record (id, asset_class, product, scenario, entity, batch_date) "
+                + "SELECT x, CASEWHEN(MOD(x, 2) = 0, 'Equity', 'Fixed Income'), CONCAT('Product ', MOD(x, 97)), "
+                + "CONCAT('Scenario ', MOD(x, 1000)), CONCAT('Entity ', MOD(x, 13)), DATEADD('DAY', -2 - MOD(x, 6), CAST(? AS DATE)) "
+                + "FROM SYSTEM_RANGE(1, CAST(? AS BIGINT))", BATCH_DATE, ROWS);
+        // Warm-up run, not measured
+        exporter.write(ReportCsvExporter.Dataset.BACKDATED, BATCH_DATE, new ByteArrayOutputStream());
+
+        for (int level : new int[]{1, 6}) {
+            reportConfig.getExport().setCompressionLevel(level);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            // When
+            long start = System.nanoTime();
+            long rows = exporter.write(ReportCsvExporter.Dataset.BACKDATED, BATCH_DATE, out);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            // Then
+            long raw = uncompressedSize(out.toByteArray());
+            System.out.printf("level %d: %,d rows in %.2f s = %.1f MB/s of CSV, %.1f MB/s on the wire (%,d -> %,d bytes, %.1fx)%n",
+                    level, rows, seconds, raw / seconds / 1e6, out.size() / seconds / 1e6, raw, out.size(),
+                    (double) raw / out.size());
+            assertThat(rows).isEqualTo(ROWS);
+        }
+    }
+
+    private static long uncompressedSize(byte[] gzip) throws Exception {
+        long size = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                size += read;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,88 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ExpectedScenariosConfig;
+import com.demo.batchreport.config.IsoLocalTimeConverter;
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import com.demo.batchreport.repository.ExpectedScenarioCatalogue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({ReportCsvExporter.class, ExpectedScenarioCatalogue.class, ReportConfig.class, IsoLocalTimeConverter.class})
+class ReportCsvExporterTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 16);
+
+    @Autowired
+    private ReportCsvExporter exporter;
+
+    @Autowired
+    private BatchQueryRepository batchQueryRepository;
+
+    @BeforeEach
+    void setUp() {
+        batchQueryRepository.saveAll(List.of(
+                new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", BATCH_DATE),
+                new BatchRecord(null, "Equity", "US Large Cap", "Stress, \"v2\"", "Entity A", BATCH_DATE),
+                new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", BATCH_DATE.minusDays(3)),
+                new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", BATCH_DATE.minusDays(1))));
+    }
+
+    @Test
+    void shouldStreamScenariosAsQuotedGzipCsvInKeyOrder() throws IOException {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long rows = exporter.write(ReportCsvExporter.Dataset.SCENARIOS, BATCH_DATE, out);
+
+        // Then
+        List<String> lines = gunzip(out).lines().toList();
+        assertThat(rows).isEqualTo(ExpectedScenariosConfig.getTotalExpectedScenarios() + 1);
+        assertThat(lines).hasSize((int) rows + 1);
+        assertThat(lines.get(0)).isEqualTo("asset_class,product,entity,scenario,status");
+        assertThat(lines).contains("Equity,US Large Cap,Entity A,Base,LOADED",
+                "Equity,US Large Cap,Entity A,\"Stress, \"\"v2\"\"\",UNEXPECTED");
+        // Rows come in database key order; a quoted field sorts on its value, not its quote
+        assertThat(lines.subList(1, lines.size())).filteredOn(line -> !line.contains("\"")).isSorted();
+    }
+
+    @Test
+    void shouldFillEveryDayOfTheStatusCountWindow() throws IOException {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int expected = ExpectedScenariosConfig.getTotalExpectedScenarios();
+
+        // When
+        long rows = exporter.write(ReportCsvExporter.Dataset.STATUS_COUNTS, BATCH_DATE, out);
+
+        // Then
+        List<String> lines = gunzip(out).lines().toList();
+        assertThat(rows).isEqualTo(120);
+        assertThat(lines.get(1)).isEqualTo(BATCH_DATE.minusDays(119) + ",0," + expected);
+        assertThat(lines).contains(BATCH_DATE.minusDays(3) + ",1," + (expected - 1),
+                BATCH_DATE.minusDays(2) + ",0," + expected);
+        assertThat(lines.get(120)).isEqualTo(BATCH_DATE + ",2," + (expected - 1));
+    }
+
+    private static String gunzip(ByteArrayOutputStream out) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.repository.ReportDispatchRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReportDispatchLeaseTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 16);
+
+    @Autowired
+    private ReportDispatchRepository reportDispatchRepository;
+
+    @AfterEach
+    void tearDown() {
+        // Not rolled back: the lease queries commit on their own
+        reportDispatchRepository.deleteAll();
+    }
+
+    @Test
+    void shouldLetOnlyOneInstanceSend() {
+        // Given
+        ReportDispatchLease first = new ReportDispatchLease(reportDispatchRepository, new ReportConfig());
+        ReportDispatchLease second = new ReportDispatchLease(reportDispatchRepository, new ReportConfig());
+
+        // When / Then
+        assertThat(first.acquire(BATCH_DATE)).isTrue();
+        assertThat(second.acquire(BATCH_DATE)).isFalse();
+        assertThat(first.acquire(BATCH_DATE)).isTrue();
+
+        first.markSent(BATCH_DATE);
+        assertThat(first.acquire(BATCH_DATE)).isFalse();
+        assertThat(second.acquire(BATCH_DATE)).isFalse();
+        assertThat(second.isSent(BATCH_DATE)).isTrue();
+    }
+
+    @Test
+    void shouldLetAnotherInstanceRetryAfterARelease() {
+        // Given - the first sender failed and gave the date up
+        ReportDispatchLease first = new ReportDispatchLease(reportDispatchRepository, new ReportConfig());
+        ReportDispatchLease second = new ReportDispatchLease(reportDispatchRepository, new ReportConfig());
+        assertThat(first.acquire(BATCH_DATE)).isTrue();
+        first.release(BATCH_DATE);
+
+        // When / Then
+        assertThat(second.acquire(BATCH_DATE)).isTrue();
+        assertThat(first.markSent(BATCH_DATE)).isFalse();
+        assertThat(second.markSent(BATCH_DATE)).isTrue();
+    }
+
+    @Test
+    void shouldKeepTheLeaseWhileASendOutlivesItsTtl() throws Exception {
+        // Given
+        ReportConfig shortLease = new ReportConfig();
+        shortLease.getSchedule().setLeaseTtl(Duration.ofMillis(300));
+        ReportDispatchLease sender = new ReportDispatchLease(reportDispatchRepository, shortLease);
+        ReportDispatchLease other = new ReportDispatchLease(reportDispatchRepository, shortLease);
+        assertThat(sender.acquire(BATCH_DATE)).isTrue();
+
+        // When
+        try (ReportDispatchLease.Renewal renewal = sender.keepAlive(BATCH_DATE)) {
+            Thread.sleep(900);
+
+            // Then
+            assertThat(other.acquire(BATCH_DATE)).isFalse();
+        } finally {
+            sender.shutdown();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.DistributionResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import javax.mail.internet.MimeMessage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportDistributorTest {
+
+    private FakeSmtpServer smtp;
+    private JavaMailSenderImpl mailSender;
+    private ReportConfig reportConfig;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new FakeSmtpServer();
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtp.getPort());
+        reportConfig = new ReportConfig();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        smtp.close();
+    }
+
+    @Test
+    void shouldDeliverOneRenderedMessageToTenThousandRecipientsOverPooledConnections() throws Exception {
+        // Given
+        List<String> recipients = IntStream.range(0, 10_000)
+                .mapToObj(i -> "recipient" + i + "@company.com")
+                .collect(Collectors.toList());
+        ReportDistributor distributor = new ReportDistributor(mailSender, reportConfig);
+
+        // When
+        DistributionResult result = distributor.distribute(message(), recipients);
+
+        // Then
+        assertThat(result.getEnvelopes()).isEqualTo(100);
+        assertThat(result.getFailedRecipients()).isZero();
+        assertThat(result.getMessagesPerSecond()).isPositive();
+        assertThat(smtp.messages.get()).isEqualTo(100);
+        assertThat(smtp.recipients).hasSize(10_000).containsAll(recipients);
+        // Four connections, each opened once and reused for its share of the envelopes
+        assertThat(smtp.connections.get()).isEqualTo(4);
+        assertThat(smtp.bodies).hasSize(1);
+    }
+
+    @Test
+    void shouldHoldEachRelayToItsRateLimit() throws Exception {
+        // Given
+        ReportConfig.Relay relay = reportConfig.getSend().getDistribution().getRelays().get(0);
+        relay.setMaxMessagesPerSecond(50);
+        reportConfig.getSend().getDistribution().setEnvelopeSize(10);
+        List<String> recipients = IntStream.range(0, 200)
+                .mapToObj(i -> "recipient" + i + "@company.com")
+                .collect(Collectors.toList());
+        ReportDistributor distributor = new ReportDistributor(mailSender, reportConfig);
+
+        // When
+        DistributionResult result = distributor.distribute(message(), recipients);
+
+        // Then - 20 envelopes spaced 20ms apart across all four connections
+        assertThat(result.getEnvelopes()).isEqualTo(20);
+        assertThat(result.getElapsed().toMillis()).isGreaterThanOrEqualTo(380);
+        assertThat(result.getMessagesPerSecond()).isLessThanOrEqualTo(53);
+    }
+
+    @Test
+    void shouldCountRecipientsAsFailedWhenNoRelayIsReachable() throws Exception {
+        // Given
+        smtp.close();
+        List<String> recipients = List.of("a@company.com", "b@company.com", "c@company.com");
+        ReportDistributor distributor = new ReportDistributor(mailSender, reportConfig);
+
+        // When
+        DistributionResult result = distributor.distribute(message(), recipients);
+
+        // Then
+        assertThat(result.getEnvelopes()).isZero();
+        assertThat(result.getFailedRecipients()).isEqualTo(3);
+    }
+
+    private MimeMessage message() throws Exception {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom("reports@company.com");
+        helper.setSubject("Batch Load Report - 2024-12-15");
+        helper.setText("<html><body><h1>Batch Load Report</h1></body></html>", true);
+        message.setHeader("To", "undisclosed-recipients:;");
+        return message;
+    }
+
+    /**
+     * Minimal SMTP stand-in: accepts every command and records envelopes and message bodies
+     */
+    private static class FakeSmtpServer implements AutoCloseable {
+        private final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger messages = new AtomicInteger();
+        private final Set<String> recipients = ConcurrentHashMap.newKeySet();
+        private final Set<String> bodies = ConcurrentHashMap.newKeySet();
+
+        FakeSmtpServer() throws IOException {
+            Thread acceptor = new Thread(this::accept, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    Thread session = new Thread(() -> converse(socket), "fake-smtp-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void converse(Socket socket) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+                reply(out, "220 localhost ready");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                    switch (command) {
+                        case "RCPT":
+                            recipients.add(line.substring(line.indexOf('<') + 1, line.indexOf('>')));
+                            reply(out, "250 OK");
+                            break;
+                        case "DATA":
+                            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                            bodies.add(readData(in));
+                            messages.incrementAndGet();
+                            reply(out, "250 OK");
+                            break;
+                        case "QUIT":
+                            reply(out, "221 Bye");
+                            return;
+                        default:
+                            reply(out, "250 OK");
+                            break;
+                    }
+                }
+            } catch (IOException e) {
+                // Client went away
+            }
+        }
+
+        private static String readData(BufferedReader in) throws IOException {
+            StringBuilder data = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null && !line.equals(".")) {
+                // Message-ID and Date are the same in every envelope, so the whole body should be too
+                data.append(line).append('\n');
+            }
+            return data.toString();
+        }
+
+        private static void reply(PrintWriter out, String reply) {
+            out.print(reply + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportProfilerTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 15);
+
+    @TempDir
+    Path directory;
+
+    private ReportConfig reportConfig;
+    private ReportProfiler profiler;
+
+    @BeforeEach
+    void setUp() {
+        reportConfig = new ReportConfig();
+        reportConfig.getProfiling().setEnabled(true);
+        reportConfig.getProfiling().setSettings("default");
+        reportConfig.getProfiling().setDirectory(directory.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        profiler.stop();
+    }
+
+    @Test
+    void shouldDumpRecordingWithStageEventsForSlowRun() throws Exception {
+        // Given
+        reportConfig.getProfiling().setSlowThreshold(Duration.ofMillis(20));
+        profiler = new ReportProfiler(reportConfig);
+
+        // When
+        try (ReportProfiler.Run run = profiler.start("send", BATCH_DATE);
+             ReportStageEvent stage = ReportStageEvent.begin("render-email", BATCH_DATE)) {
+            Thread.sleep(30);
+            stage.end(1_200, 48_000);
+        }
+        try (ReportProfiler.Run run = profiler.start("web-preview", BATCH_DATE)) {
+            // Under the threshold: no dump
+        }
+        // Dumps are written in the background; stopping waits for them
+        profiler.stop();
+
+        // Then
+        List<Path> dumps = dumps();
+        assertThat(dumps).hasSize(1);
+        assertThat(dumps.get(0).getFileName().toString()).startsWith("report-send-2024-12-15-");
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dumps.get(0));
+        RecordedEvent stage = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.demo.batchreport.ReportStage"))
+                .findFirst().orElseThrow();
+        assertThat(stage.getString("stage")).isEqualTo("render-email");
+        assertThat(stage.getString("batchDate")).isEqualTo("2024-12-15");
+        assertThat(stage.getLong("records")).isEqualTo(1_200);
+        assertThat(stage.getLong("bytes")).isEqualTo(48_000);
+        assertThat(stage.getDuration()).isGreaterThanOrEqualTo(Duration.ofMillis(30));
+    }
+
+    @Test
+    void shouldKeepOnlyTheNewestDumps() throws Exception {
+        // Given
+        reportConfig.getProfiling().setSlowThreshold(Duration.ZERO);
+        reportConfig.getProfiling().setMaxFiles(2);
+        profiler = new ReportProfiler(reportConfig);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            try (ReportProfiler.Run run = profiler.start("eml", BATCH_DATE.plusDays(i))) {
+                Thread.sleep(5);
+            }
+        }
+        profiler.stop();
+
+        // Then
+        assertThat(dumps()).extracting(path -> path.getFileName().toString())
+                .hasSize(2)
+                .noneMatch(name -> name.startsWith("report-eml-2024-12-15-"));
+    }
+
+    private List<Path> dumps() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
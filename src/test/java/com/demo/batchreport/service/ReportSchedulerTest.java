@@ -0,0 +1,118 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import com.demo.batchreport.store.ColumnarBatchStore;
+import com.demo.batchreport.store.CompletenessEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReportSchedulerTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 16);
+    private static final ZonedDateTime CUTOFF = ZonedDateTime.of(2024, 12, 17, 7, 0, 0, 0, ZoneOffset.UTC);
+
+    @Mock
+    private BatchQueryRepository batchQueryRepository;
+
+    @Mock
+    private BatchReportService batchReportService;
+
+    @Mock
+    private ReportDispatchLease dispatchLease;
+
+    private CompletenessEngine engine;
+    private ReportScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        ReportConfig reportConfig = new ReportConfig();
+        reportConfig.getSchedule().setZone(ZoneOffset.UTC);
+        reportConfig.getSchedule().setCutoff(LocalTime.of(7, 0));
+
+        ColumnarBatchStore batchStore = new ColumnarBatchStore(batchQueryRepository, reportConfig);
+        engine = new CompletenessEngine(batchStore);
+        scheduler = new ReportScheduler(batchReportService, batchStore, engine, dispatchLease, reportConfig);
+    }
+
+    @Test
+    void shouldPrecomputeOnceCompleteAndSendTheCachedRenderAtCutoff() throws Exception {
+        // Given
+        List<BatchRecord> allExpected = engine.getCatalogue().stream()
+                .map(s -> new BatchRecord(null, s.getAssetClass(), s.getProduct(), s.getScenario(), s.getEntity(), BATCH_DATE))
+                .collect(Collectors.toList());
+        when(batchQueryRepository.findAllByBatchDate(BATCH_DATE)).thenReturn(allExpected);
+        PreparedReport report = new PreparedReport(BATCH_DATE, "subject", "<html/>", null, 42L, Instant.now());
+        when(batchReportService.dataFingerprint(BATCH_DATE)).thenReturn(42L);
+        when(batchReportService.prepareBatchReport(BATCH_DATE)).thenReturn(report);
+        when(dispatchLease.acquire(BATCH_DATE)).thenReturn(true);
+
+        // When: complete well before the checkpoint, then polled again, then the cutoff passes
+        scheduler.runAt(CUTOFF.minusHours(3));
+        scheduler.runAt(CUTOFF.minusHours(2));
+        scheduler.runAt(CUTOFF);
+        scheduler.runAt(CUTOFF.plusMinutes(1));
+
+        // Then
+        verify(batchReportService, times(1)).prepareBatchReport(BATCH_DATE);
+        verify(batchReportService, times(1)).sendPreparedReport(report);
+        verify(dispatchLease).markSent(BATCH_DATE);
+    }
+
+    @Test
+    void shouldNotSendWhenAnotherInstanceHoldsTheLease() throws Exception {
+        // Given
+        when(dispatchLease.acquire(BATCH_DATE)).thenReturn(false);
+        when(dispatchLease.isSent(BATCH_DATE)).thenReturn(false);
+
+        // When
+        scheduler.runAt(CUTOFF);
+
+        // Then
+        verify(batchReportService, never()).prepareBatchReport(any());
+        verify(batchReportService, never()).sendPreparedReport(any());
+        assertThat(scheduler.getPrepared(BATCH_DATE)).isNull();
+    }
+
+    @Test
+    void shouldCatchUpDatesMissedSinceTheLastSend() throws Exception {
+        // Given: the last report sent was three days before yesterday's
+        when(dispatchLease.lastSent()).thenReturn(Optional.of(BATCH_DATE.minusDays(3)));
+        when(dispatchLease.acquire(any())).thenReturn(true);
+        when(batchReportService.prepareBatchReport(any())).thenAnswer(invocation ->
+                new PreparedReport(invocation.getArgument(0), "subject", "<html/>", null, 0L, Instant.now()));
+
+        // When
+        scheduler.runAt(CUTOFF);
+
+        // Then
+        InOrder order = inOrder(dispatchLease);
+        order.verify(dispatchLease).markSent(BATCH_DATE.minusDays(2));
+        order.verify(dispatchLease).markSent(BATCH_DATE.minusDays(1));
+        order.verify(dispatchLease).markSent(BATCH_DATE);
+        verify(dispatchLease, never()).acquire(BATCH_DATE.minusDays(3));
+    }
+}
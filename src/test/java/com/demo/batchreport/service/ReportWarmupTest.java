@@ -0,0 +1,77 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReportWarmupTest {
+
+    @Mock
+    private BatchReportService batchReportService;
+
+    @Mock
+    private BatchQueryRepository batchQueryRepository;
+
+    @Mock
+    private StatusChartRenderer chartRenderer;
+
+    private ReportConfig reportConfig;
+    private ReportWarmup warmup;
+
+    @BeforeEach
+    void setUp() {
+        reportConfig = new ReportConfig();
+        reportConfig.getWarmup().setIterations(2);
+        warmup = new ReportWarmup(batchReportService, batchQueryRepository, chartRenderer, reportConfig);
+    }
+
+    @Test
+    void shouldRunEveryStepAndThenReportComplete() throws Exception {
+        // Given
+        when(batchQueryRepository.findAllByBatchDate(ReportWarmup.EMPTY_DATE))
+                .thenThrow(new IllegalStateException("database not reachable"));
+
+        // When
+        Map<String, Duration> timings = warmup.start().get(10, TimeUnit.SECONDS);
+
+        // Then - a failed step is logged and does not hold readiness back
+        assertThat(warmup.isComplete()).isTrue();
+        assertThat(timings).containsOnlyKeys("chart", "queries", "render");
+        assertThat(warmup.getTimings()).containsOnlyKeys("chart", "queries", "render");
+        verify(chartRenderer).renderPng(anyList());
+        verify(batchReportService, times(2)).generateEmailOptimizedHtml(any(), anyList(), anyList());
+        verify(batchReportService, times(2)).generateBatchReportHtml(any(), anyList(), anyList());
+    }
+
+    @Test
+    void shouldBeCompleteAtOnceWhenDisabled() {
+        // Given
+        reportConfig.getWarmup().setEnabled(false);
+
+        // When
+        warmup.start();
+
+        // Then
+        assertThat(warmup.isComplete()).isTrue();
+        assertThat(warmup.getTimings()).isEmpty();
+        verifyNoInteractions(batchReportService, batchQueryRepository, chartRenderer);
+    }
+}
@@ -0,0 +1,69 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ExpectedScenariosConfig;
+import com.demo.batchreport.config.IsoLocalTimeConverter;
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import com.demo.batchreport.repository.ExpectedScenarioCatalogue;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({ReportWorkbookExporter.class, ExpectedScenarioCatalogue.class, ReportConfig.class, IsoLocalTimeConverter.class})
+class ReportWorkbookExporterTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 16);
+
+    @Autowired
+    private ReportWorkbookExporter exporter;
+
+    @Autowired
+    private BatchQueryRepository batchQueryRepository;
+
+    @Test
+    void shouldStreamBothSheetsFromTheDatabase() throws Exception {
+        // Given
+        batchQueryRepository.saveAll(List.of(
+                new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", BATCH_DATE),
+                new BatchRecord(null, "Equity", "US Large Cap", "Unlisted", "Entity A", BATCH_DATE)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long rows = exporter.write(BATCH_DATE, out);
+
+        // Then
+        Document scenarios = sheet(out.toByteArray(), "xl/worksheets/sheet2.xml");
+        assertThat(rows).isGreaterThan(ExpectedScenariosConfig.getTotalExpectedScenarios());
+        // Header plus one row per expected scenario and the unexpected one
+        assertThat(scenarios.getElementsByTagName("row").getLength())
+                .isEqualTo(ExpectedScenariosConfig.getTotalExpectedScenarios() + 2);
+        assertThat(scenarios.getDocumentElement().getTextContent()).contains("Unlisted", "UNEXPECTED", "LOADED", "MISSING");
+        assertThat(sheet(out.toByteArray(), "xl/workbook.xml").getElementsByTagName("sheet").getLength()).isEqualTo(2);
+    }
+
+    private static Document sheet(byte[] xlsx, String name) throws Exception {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(xlsx))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (entry.getName().equals(name)) {
+                    return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                            .parse(new ByteArrayInputStream(zip.readAllBytes()));
+                }
+            }
+        }
+        throw new AssertionError(name + " not in workbook");
+    }
+}
@@ -0,0 +1,127 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.Config;
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.ScenarioDetail;
+import com.demo.batchreport.domain.ScenarioDetailPage;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import com.demo.batchreport.repository.ReportSendReceiptRepository;
+import com.demo.batchreport.store.ColumnarBatchStore;
+import com.demo.batchreport.store.CompletenessEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class ScenarioDetailPagerTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 15);
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private Config config;
+
+    @Mock
+    private BatchQueryRepository batchQueryRepository;
+
+    @Mock
+    private ReportSendReceiptRepository sendReceiptRepository;
+
+    private BatchReportService batchReportService;
+    private ScenarioDetailPager pager;
+
+    @BeforeEach
+    void setUp() {
+        ReportConfig reportConfig = new ReportConfig();
+        ColumnarBatchStore batchStore = new ColumnarBatchStore(batchQueryRepository, reportConfig);
+        batchReportService = new BatchReportService(mailSender, config, batchQueryRepository,
+                batchStore, new CompletenessEngine(batchStore), new StatusChartRenderer(), reportConfig, new ReportArtifactCache(config, reportConfig),
+                new ReportDistributor(mailSender, reportConfig), new ReportProfiler(reportConfig), sendReceiptRepository, List.of());
+        pager = new ScenarioDetailPager(batchReportService);
+    }
+
+    @Test
+    void shouldWalkAllDetailsInSortOrder() {
+        // Given
+        List<ScenarioDetail> all = batchReportService.generateScenarioDetails(batchReportService.loadSegment(BATCH_DATE));
+
+        // When
+        List<ScenarioDetail> walked = walk(List.of(), 7);
+
+        // Then
+        assertThat(walked).containsExactlyElementsOf(all);
+    }
+
+    @Test
+    void shouldFilterByStatusAcrossPages() {
+        // Given
+        List<ScenarioDetail> missing = batchReportService.generateScenarioDetails(batchReportService.loadSegment(BATCH_DATE))
+                .stream()
+                .filter(detail -> detail.getStatus() == ScenarioDetail.ScenarioStatus.MISSING)
+                .collect(Collectors.toList());
+
+        // When
+        List<ScenarioDetail> walked = walk(List.of(ScenarioDetail.ScenarioStatus.MISSING), 2);
+
+        // Then
+        assertThat(missing).isNotEmpty();
+        assertThat(walked).containsExactlyElementsOf(missing);
+    }
+
+    @Test
+    void shouldReturnNoCursorOnLastPage() {
+        // When
+        ScenarioDetailPage page = pager.page(BATCH_DATE, List.of(), null, ScenarioDetailPager.MAX_LIMIT);
+
+        // Then
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> pager.page(BATCH_DATE, List.of(), "bm90LWEta2V5", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldRoundTripNullDimensionsInCursor() {
+        // Given
+        ScenarioDetail detail = new ScenarioDetail();
+        detail.setAssetClass("Equity");
+        detail.setProduct("null");
+        detail.setScenario("Base");
+
+        // When
+        ScenarioDetail key = ScenarioDetailPager.decodeCursor(ScenarioDetailPager.encodeCursor(detail));
+
+        // Then
+        assertThat(key.getProduct()).isEqualTo("null");
+        assertThat(key.getEntity()).isNull();
+        assertThat(BatchReportService.DETAIL_ORDER.compare(key, detail)).isZero();
+    }
+
+    private List<ScenarioDetail> walk(List<ScenarioDetail.ScenarioStatus> statuses, int limit) {
+        List<ScenarioDetail> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            ScenarioDetailPage page = pager.page(BATCH_DATE, statuses, cursor, limit);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(limit);
+            walked.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return walked;
+    }
+}
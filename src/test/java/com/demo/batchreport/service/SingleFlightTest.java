@@ -0,0 +1,69 @@
+package com.demo.batchreport.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+
+    @Test
+    void shouldShareOneExecutionBetweenConcurrentCallers() throws Exception {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        // When: the first caller blocks inside the work while three more arrive
+        Future<String> first = pool.submit(() -> flights.execute("2024-12-15/web", () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "report";
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        List<Future<String>> followers = List.of(
+                pool.submit(() -> flights.execute("2024-12-15/web", () -> "recomputed")),
+                pool.submit(() -> flights.execute("2024-12-15/web", () -> "recomputed")),
+                pool.submit(() -> flights.execute("2024-12-15/web", () -> "recomputed")));
+        Thread.sleep(100);
+        release.countDown();
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("report");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("report");
+        }
+        assertThat(executions).hasValue(1);
+        assertThat(flights.inFlightCount()).isZero();
+        pool.shutdown();
+    }
+
+    @Test
+    void shouldNotCacheFailuresOnceTheFlightEnds() {
+        // When / Then
+        assertThatThrownBy(() -> flights.execute("key", () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(flights.execute("key", () -> "ok")).isEqualTo("ok");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchStatusCount;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Render time and payload size of each chart mode. Run with {@code mvn test -Pbenchmark}.
+ * PNG size is reported as the base64 text that actually travels in the MIME message.
+ */
+@Tag("benchmark")
+class StatusChartRendererBenchmarkTest {
+
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 100;
+
+    private final StatusChartRenderer renderer = new StatusChartRenderer();
+
+    @Test
+    void compareChartModes() throws Exception {
+        // Given
+        List<BatchStatusCount> statusCounts = sampleStatusCounts();
+
+        // When
+        Result png = measure(() -> Base64.getMimeEncoder().encodeToString(renderer.renderPng(statusCounts)));
+        Result html = measure(() -> renderer.renderHtml(statusCounts));
+        Result svg = measure(() -> renderer.renderSvg(statusCounts));
+
+        // Then
+        System.out.printf("%-5s %12s %12s%n", "mode", "us/render", "bytes");
+        System.out.printf("%-5s %12.1f %12d%n", "png", png.micros, png.bytes);
+        System.out.printf("%-5s %12.1f %12d%n", "html", html.micros, html.bytes);
+        System.out.printf("%-5s %12.1f %12d%n", "svg", svg.micros, svg.bytes);
+
+        assertThat(html.micros).isLessThan(png.micros);
+        assertThat(svg.micros).isLessThan(png.micros);
+    }
+
+    @Test
+    void comparePngEncoders() throws Exception {
+        // Given
+        List<BatchStatusCount> statusCounts = sampleStatusCounts();
+        ReportConfig argbConfig = new ReportConfig();
+        argbConfig.getChart().getPng().setIndexed(false);
+        StatusChartRenderer argbRenderer = new StatusChartRenderer(argbConfig);
+
+        // When
+        Result argb = measure(() -> Base64.getMimeEncoder().encodeToString(argbRenderer.renderPng(statusCounts)));
+        System.out.printf("%-12s %12s %12s%n", "encoder", "us/render", "base64 bytes");
+        System.out.printf("%-12s %12.1f %12d%n", "argb", argb.micros, argb.bytes);
+        Result indexed = null;
+        for (int level : new int[]{1, 6, 9}) {
+            ReportConfig config = new ReportConfig();
+            config.getChart().getPng().setCompressionLevel(level);
+            StatusChartRenderer indexedRenderer = new StatusChartRenderer(config);
+            indexed = measure(() -> Base64.getMimeEncoder().encodeToString(indexedRenderer.renderPng(statusCounts)));
+            System.out.printf("%-12s %12.1f %12d%n", "indexed-" + level, indexed.micros, indexed.bytes);
+        }
+
+        // Then
+        assertThat(indexed.bytes).isLessThan(argb.bytes);
+    }
+
+    private static Result measure(Callable<String> render) throws Exception {
+        String output = null;
+        for (int i = 0; i < WARMUP; i++) {
+            output = render.call();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            output = render.call();
+        }
+        double micros = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+        return new Result(micros, output.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static List<BatchStatusCount> sampleStatusCounts() {
+        Random random = new Random(42);
+        LocalDate endDate = LocalDate.of(2024, 12, 15);
+        List<BatchStatusCount> statusCounts = new ArrayList<>();
+        for (int i = 119; i >= 0; i--) {
+            long missing = random.nextDouble() < 0.15 ? random.nextInt(10) + 1 : 0;
+            statusCounts.add(new BatchStatusCount(endDate.minusDays(i), 20 - missing, missing));
+        }
+        return statusCounts;
+    }
+
+    private static class Result {
+        final double micros;
+        final int bytes;
+
+        Result(double micros, int bytes) {
+            this.micros = micros;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.demo.batchreport.service;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchStatusCount;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatusChartRendererTest {
+
+    private final StatusChartRenderer renderer = new StatusChartRenderer();
+
+    @Test
+    void shouldDrawOneStackedBarPerDayInEveryMode() throws Exception {
+        // Given
+        LocalDate endDate = LocalDate.of(2024, 12, 15);
+        List<BatchStatusCount> statusCounts = new ArrayList<>();
+        for (int i = 119; i >= 0; i--) {
+            statusCounts.add(new BatchStatusCount(endDate.minusDays(i), 40L, i % 10 == 0 ? 5L : 0L));
+        }
+
+        // When
+        String svg = renderer.renderSvg(statusCounts);
+        String html = renderer.renderHtml(statusCounts);
+        byte[] png = renderer.renderPng(statusCounts);
+
+        // Then
+        assertThat(svg).startsWith("<svg").contains(StatusChartRenderer.TITLE);
+        assertThat(count(svg, "<g><title>")).isEqualTo(120);
+        assertThat(count(svg, "fill=\"#f44336\"/>")).isEqualTo(12 + 1); // bars plus legend swatch
+
+        assertThat(count(html, "<td valign=\"bottom\"")).isEqualTo(120);
+        assertThat(count(html, "bgcolor=\"#f44336\"")).isEqualTo(12);
+        assertThat(html).doesNotContain("<img");
+
+        assertThat(png).startsWith(0x89, 'P', 'N', 'G');
+    }
+
+    @Test
+    void shouldEncodeIndexedPngThatMatchesTheArgbChart() throws Exception {
+        // Given
+        LocalDate endDate = LocalDate.of(2024, 12, 15);
+        List<BatchStatusCount> statusCounts = new ArrayList<>();
+        for (int i = 119; i >= 0; i--) {
+            statusCounts.add(new BatchStatusCount(endDate.minusDays(i), 40L, i % 7 == 0 ? 9L : 0L));
+        }
+        ReportConfig argbConfig = new ReportConfig();
+        argbConfig.getChart().getPng().setIndexed(false);
+
+        // When
+        byte[] indexed = renderer.renderPng(statusCounts);
+        byte[] argb = new StatusChartRenderer(argbConfig).renderPng(statusCounts);
+
+        // Then
+        BufferedImage indexedImage = ImageIO.read(new ByteArrayInputStream(indexed));
+        BufferedImage argbImage = ImageIO.read(new ByteArrayInputStream(argb));
+        assertThat(indexedImage.getColorModel()).isInstanceOf(IndexColorModel.class);
+        assertThat(indexedImage.getColorModel().hasAlpha()).isFalse();
+        assertThat(indexedImage.getWidth()).isEqualTo(StatusChartRenderer.WIDTH);
+        assertThat(indexedImage.getHeight()).isEqualTo(StatusChartRenderer.HEIGHT);
+        assertThat(indexed.length).isLessThan(argb.length);
+
+        int matching = 0;
+        for (int y = 0; y < StatusChartRenderer.HEIGHT; y++) {
+            for (int x = 0; x < StatusChartRenderer.WIDTH; x++) {
+                if ((indexedImage.getRGB(x, y) & 0xffffff) == (argbImage.getRGB(x, y) & 0xffffff)) {
+                    matching++;
+                }
+            }
+        }
+        assertThat(matching).isGreaterThan(StatusChartRenderer.WIDTH * StatusChartRenderer.HEIGHT * 99 / 100);
+    }
+
+    private static int count(String text, String token) {
+        int count = 0;
+        for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + token.length())) {
+            count++;
+        }
+        return count;
+    }
+}
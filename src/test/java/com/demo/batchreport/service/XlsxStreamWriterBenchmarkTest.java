@@ -0,0 +1,71 @@
+package com.demo.batchreport.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rows per second and heap held while streaming 1.2 million scenario rows into a workbook.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class XlsxStreamWriterBenchmarkTest {
+
+    private static final int ROWS = 1_200_000;
+    private static final String[] ASSET_CLASSES = {"Equity", "Fixed Income", "Commodities", "FX"};
+    private static final String[] SCENARIOS = {"Base", "Stress", "Adverse", "Severely Adverse"};
+
+    @Test
+    void measureRowsPerSecond() throws Exception {
+        for (int level : new int[]{1, 6}) {
+            // Given
+            CountingOutputStream out = new CountingOutputStream();
+            long[] heap = new long[2];
+
+            // When
+            long start = System.nanoTime();
+            try (XlsxStreamWriter workbook = new XlsxStreamWriter(out, level)) {
+                workbook.startSheet("Scenarios", List.of("Asset Class", "Product", "Entity", "Scenario", "Expected", "Loaded", "Status"));
+                for (int i = 0; i < ROWS; i++) {
+                    workbook.row(ASSET_CLASSES[i % 4], "Product " + (i % 97), "Entity " + (i % 13), SCENARIOS[i % 4],
+                            true, i % 10 != 0, i % 10 != 0 ? "LOADED" : "MISSING");
+                    if (i == ROWS / 10 || i == ROWS - 1) {
+                        heap[i == ROWS / 10 ? 0 : 1] = usedHeap();
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            // Then
+            System.out.printf("level %d: %,d rows in %.2f s = %,.0f rows/s, %,d bytes, heap %,d KB at 10%% / %,d KB at 100%%%n",
+                    level, ROWS, seconds, ROWS / seconds, out.count, heap[0] / 1024, heap[1] / 1024);
+            assertThat(out.count).isPositive();
+            // Rows are not held: heap at the end is close to heap a tenth of the way in
+            assertThat(heap[1]).isLessThan(heap[0] + 32L * 1024 * 1024);
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
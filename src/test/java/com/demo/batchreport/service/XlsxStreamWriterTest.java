@@ -0,0 +1,78 @@
+package com.demo.batchreport.service;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XlsxStreamWriterTest {
+
+    @Test
+    void shouldWriteTypedCellsAndEscapeText() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        try (XlsxStreamWriter workbook = new XlsxStreamWriter(out, 6)) {
+            workbook.startSheet("Summary", List.of("Asset Class", "Loaded", "Expected"));
+            workbook.row("Rates & <FX>", 12L, true);
+            workbook.row("Equity", null, false);
+        }
+
+        // Then
+        Map<String, Document> parts = parts(out.toByteArray());
+        assertThat(parts).containsKeys("[Content_Types].xml", "_rels/.rels", "xl/workbook.xml",
+                "xl/_rels/workbook.xml.rels", "xl/styles.xml", "xl/worksheets/sheet1.xml");
+
+        Document sheet = parts.get("xl/worksheets/sheet1.xml");
+        assertThat(sheet.getElementsByTagName("row").getLength()).isEqualTo(3);
+        assertThat(sheet.getElementsByTagName("t").item(3).getTextContent()).isEqualTo("Rates & <FX>");
+        assertThat(sheet.getElementsByTagName("v").item(0).getTextContent()).isEqualTo("12");
+        assertThat(sheet.getElementsByTagName("c").item(5).getAttributes().getNamedItem("t").getNodeValue()).isEqualTo("b");
+    }
+
+    @Test
+    void shouldContinueInNewSheetAtRowLimit() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When - three rows per sheet, one of them the header
+        try (XlsxStreamWriter workbook = new XlsxStreamWriter(out, 1, 3)) {
+            workbook.startSheet("Scenarios", List.of("Scenario"));
+            for (int i = 0; i < 5; i++) {
+                workbook.row("Scenario " + i);
+            }
+            assertThat(workbook.getDataRows()).isEqualTo(5);
+        }
+
+        // Then
+        Map<String, Document> parts = parts(out.toByteArray());
+        Document book = parts.get("xl/workbook.xml");
+        assertThat(book.getElementsByTagName("sheet").getLength()).isEqualTo(3);
+        assertThat(book.getElementsByTagName("sheet").item(2).getAttributes().getNamedItem("name").getNodeValue())
+                .isEqualTo("Scenarios (3)");
+        Document last = parts.get("xl/worksheets/sheet3.xml");
+        assertThat(last.getElementsByTagName("row").getLength()).isEqualTo(2);
+        assertThat(last.getElementsByTagName("t").item(0).getTextContent()).isEqualTo("Scenario");
+    }
+
+    private static Map<String, Document> parts(byte[] xlsx) throws Exception {
+        Map<String, Document> parts = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(xlsx))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                parts.put(entry.getName(), DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                        .parse(new ByteArrayInputStream(zip.readAllBytes())));
+            }
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,139 @@
+package com.demo.batchreport.store;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.domain.BatchRecordsChangedEvent;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ColumnarBatchStoreTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 15);
+
+    @Mock
+    private BatchQueryRepository batchQueryRepository;
+
+    private ColumnarBatchStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ColumnarBatchStore(batchQueryRepository, new ReportConfig());
+    }
+
+    @Test
+    void shouldCountRowsPerGroupAndScenario() {
+        // Given
+        when(batchQueryRepository.findAllByBatchDate(BATCH_DATE)).thenReturn(Arrays.asList(
+                new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", BATCH_DATE),
+                new BatchRecord(null, "Equity", "US Large Cap", "Stress", "Entity A", BATCH_DATE),
+                new BatchRecord(null, "Equity", "US Large Cap", "Stress", "Entity A", BATCH_DATE),
+                new BatchRecord(null, "Fixed Income", "Corporate Bonds", "Base", "Entity B", BATCH_DATE)
+        ));
+
+        // When
+        DateSegment segment = store.segment(BATCH_DATE);
+        ColumnDictionaries dictionaries = segment.getDictionaries();
+        Map<String, Long> groups = new HashMap<>();
+        segment.countByGroup().forEach((key, count) -> groups.put(dictionaries.groupKeyOf(key), count));
+        Map<String, Long> scenarios = new HashMap<>();
+        segment.countByScenario().forEach((key, count) -> scenarios.put(dictionaries.fullKeyOf(key), count));
+
+        // Then
+        assertThat(segment.size()).isEqualTo(4);
+        assertThat(groups).containsOnly(
+                Map.entry("Equity|US Large Cap|Entity A", 3L),
+                Map.entry("Fixed Income|Corporate Bonds|Entity B", 1L));
+        assertThat(scenarios).hasSize(3).containsEntry("Equity|US Large Cap|Entity A|Stress", 2L);
+    }
+
+    @Test
+    void shouldServeCachedSegmentUntilDateIsWritten() {
+        // Given
+        when(batchQueryRepository.findAllByBatchDate(BATCH_DATE)).thenReturn(List.of(
+                new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", BATCH_DATE)));
+
+        // When
+        DateSegment first = store.segment(BATCH_DATE);
+        DateSegment second = store.segment(BATCH_DATE);
+        store.onRecordsChanged(BatchRecordsChangedEvent.of(BATCH_DATE));
+        store.segment(BATCH_DATE);
+
+        // Then
+        assertThat(second).isSameAs(first);
+        verify(batchQueryRepository, times(2)).findAllByBatchDate(BATCH_DATE);
+    }
+
+    @Test
+    void shouldLoadMissingRangeWithOneQueryIncludingEmptyDates() {
+        // Given
+        LocalDate start = BATCH_DATE.minusDays(2);
+        when(batchQueryRepository.findAllByBatchDateBetween(start, BATCH_DATE)).thenReturn(List.of(
+                new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", start)));
+
+        // When
+        NavigableMap<LocalDate, DateSegment> segments = store.segments(start, BATCH_DATE);
+        store.segments(start, BATCH_DATE);
+
+        // Then
+        assertThat(segments).hasSize(3);
+        assertThat(segments.get(start).size()).isEqualTo(1);
+        assertThat(segments.get(BATCH_DATE).isEmpty()).isTrue();
+        verify(batchQueryRepository, times(1)).findAllByBatchDateBetween(start, BATCH_DATE);
+    }
+
+    @Test
+    void shouldProduceSameFingerprintRegardlessOfRowOrder() {
+        // Given
+        BatchRecord base = new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", BATCH_DATE);
+        BatchRecord stress = new BatchRecord(null, "Equity", "US Large Cap", "Stress", "Entity A", BATCH_DATE);
+
+        // When
+        DateSegment forwards = store.transientSegment(BATCH_DATE, List.of(base, stress));
+        DateSegment backwards = new ColumnarBatchStore(batchQueryRepository, new ReportConfig())
+                .transientSegment(BATCH_DATE, List.of(stress, base));
+        DateSegment fewer = store.transientSegment(BATCH_DATE, List.of(base));
+
+        // Then
+        assertThat(backwards.getFingerprint()).isEqualTo(forwards.getFingerprint());
+        assertThat(fewer.getFingerprint()).isNotEqualTo(forwards.getFingerprint());
+    }
+
+    @Test
+    void shouldKeepTransientValuesOutOfSharedDictionaries() {
+        // Given
+        when(batchQueryRepository.findAllByBatchDate(BATCH_DATE)).thenReturn(List.of(
+                new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", BATCH_DATE)));
+        store.segment(BATCH_DATE);
+        int sharedScenarios = store.getDictionaries().scenarios().size();
+
+        // When
+        DateSegment simulated = store.transientSegment(BATCH_DATE, List.of(
+                new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", BATCH_DATE),
+                new BatchRecord(null, "Equity", "US Large Cap", "Simulated 1", "Entity A", BATCH_DATE)));
+        Map<String, Long> scenarios = new HashMap<>();
+        simulated.countByScenario().forEach((key, count) -> scenarios.put(simulated.getDictionaries().fullKeyOf(key), count));
+
+        // Then
+        assertThat(store.getDictionaries().scenarios().size()).isEqualTo(sharedScenarios);
+        assertThat(scenarios).containsOnlyKeys("Equity|US Large Cap|Entity A|Base", "Equity|US Large Cap|Entity A|Simulated 1");
+        assertThat(simulated.countByScenario().get(
+                store.getDictionaries().encode("Equity", "US Large Cap", "Entity A", "Base"))).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,85 @@
+package com.demo.batchreport.store;
+
+import com.demo.batchreport.config.ExpectedScenariosConfig;
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.domain.CompletenessHeatmap;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class CompletenessEngineTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 15);
+
+    @Mock
+    private BatchQueryRepository batchQueryRepository;
+
+    private ColumnarBatchStore store;
+    private CompletenessEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        store = new ColumnarBatchStore(batchQueryRepository, new ReportConfig());
+        engine = new CompletenessEngine(store);
+    }
+
+    @Test
+    void shouldReportExpectedMinusLoadedAsMissing() {
+        // Given
+        List<ExpectedScenariosConfig.ExpectedScenario> catalogue = engine.getCatalogue();
+        DateSegment segment = store.transientSegment(BATCH_DATE, List.of(
+                toRecord(catalogue.get(0), BATCH_DATE),
+                toRecord(catalogue.get(2), BATCH_DATE),
+                new BatchRecord(null, "Equity", "US Large Cap", "Unlisted", "Entity A", BATCH_DATE)
+        ));
+
+        // When
+        BitSet missing = engine.missing(segment);
+
+        // Then
+        assertThat(missing.cardinality()).isEqualTo(catalogue.size() - 2);
+        assertThat(missing.get(0)).isFalse();
+        assertThat(missing.get(1)).isTrue();
+        assertThat(missing.get(2)).isFalse();
+    }
+
+    @Test
+    void shouldTransposeDailyBitmapsIntoScenarioHistories() {
+        // Given
+        ExpectedScenariosConfig.ExpectedScenario first = engine.getCatalogue().get(0);
+        NavigableMap<LocalDate, DateSegment> segments = new TreeMap<>();
+        segments.put(BATCH_DATE.minusDays(2), store.transientSegment(BATCH_DATE.minusDays(2), List.of(toRecord(first, BATCH_DATE.minusDays(2)))));
+        segments.put(BATCH_DATE.minusDays(1), store.transientSegment(BATCH_DATE.minusDays(1), List.of()));
+        segments.put(BATCH_DATE, store.transientSegment(BATCH_DATE, List.of(toRecord(first, BATCH_DATE))));
+
+        // When
+        CompletenessHeatmap heatmap = engine.heatmap(segments);
+
+        // Then
+        assertThat(heatmap.getDates()).hasSize(3);
+        assertThat(heatmap.isLoaded(0, 0)).isTrue();
+        assertThat(heatmap.isLoaded(0, 1)).isFalse();
+        assertThat(heatmap.isLoaded(0, 2)).isTrue();
+        assertThat(heatmap.getLoadedDayCount(0)).isEqualTo(2);
+        assertThat(heatmap.getLoadedDayCount(1)).isZero();
+        assertThat(heatmap.getLoadedScenarioCount(1)).isZero();
+    }
+
+    private BatchRecord toRecord(ExpectedScenariosConfig.ExpectedScenario scenario, LocalDate batchDate) {
+        return new BatchRecord(null, scenario.getAssetClass(), scenario.getProduct(), scenario.getScenario(),
+                scenario.getEntity(), batchDate);
+    }
+}
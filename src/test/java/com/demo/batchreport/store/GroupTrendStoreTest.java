@@ -0,0 +1,113 @@
+package com.demo.batchreport.store;
+
+import com.demo.batchreport.config.ReportConfig;
+import com.demo.batchreport.domain.BatchRecord;
+import com.demo.batchreport.domain.BatchRecordsChangedEvent;
+import com.demo.batchreport.repository.BatchQueryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GroupTrendStoreTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 15);
+    private static final String EQUITY = "Equity|US Large Cap|Entity A";
+    private static final String BONDS = "Fixed Income|Corporate Bonds|Entity B";
+
+    @Mock
+    private BatchQueryRepository batchQueryRepository;
+
+    private final List<BatchRecord> records = new ArrayList<>();
+    private ColumnarBatchStore store;
+
+    @BeforeEach
+    void setUp() {
+        ReportConfig reportConfig = new ReportConfig();
+        reportConfig.getStore().setTrendDays(3);
+        store = new ColumnarBatchStore(batchQueryRepository, reportConfig);
+
+        when(batchQueryRepository.findAllByBatchDateBetween(any(), any())).thenAnswer(invocation -> {
+            LocalDate from = invocation.getArgument(0);
+            LocalDate to = invocation.getArgument(1);
+            return records.stream()
+                    .filter(record -> !record.getBatchDate().isBefore(from) && !record.getBatchDate().isAfter(to))
+                    .collect(Collectors.toList());
+        });
+    }
+
+    @Test
+    void shouldShiftWindowForwardOneDayAtATime() {
+        // Given
+        records.add(equity(BATCH_DATE.minusDays(2)));
+        records.add(equity(BATCH_DATE.minusDays(2)));
+        records.add(equity(BATCH_DATE));
+        records.add(bonds(BATCH_DATE.plusDays(1)));
+
+        // When
+        Map<String, long[]> first = store.getGroupTrends().series(BATCH_DATE);
+        Map<String, long[]> next = store.getGroupTrends().series(BATCH_DATE.plusDays(1));
+
+        // Then
+        assertThat(first).containsOnlyKeys(EQUITY);
+        assertThat(first.get(EQUITY)).containsExactly(2, 0, 1);
+        assertThat(next.get(EQUITY)).containsExactly(0, 1, 0);
+        assertThat(next.get(BONDS)).containsExactly(0, 0, 1);
+        // Moving on a day loads only the new date
+        verify(batchQueryRepository).findAllByBatchDateBetween(BATCH_DATE.plusDays(1), BATCH_DATE.plusDays(1));
+    }
+
+    @Test
+    void shouldRecountDayWhenItIsWritten() {
+        // Given
+        records.add(equity(BATCH_DATE));
+        store.getGroupTrends().series(BATCH_DATE);
+
+        // When
+        records.add(equity(BATCH_DATE.minusDays(1)));
+        store.onRecordsChanged(BatchRecordsChangedEvent.of(BATCH_DATE.minusDays(1)));
+        Map<String, long[]> series = store.getGroupTrends().series(BATCH_DATE);
+
+        // Then
+        assertThat(series.get(EQUITY)).containsExactly(0, 1, 1);
+    }
+
+    @Test
+    void shouldKeepRingsWhenLookingBack() {
+        // Given
+        records.add(equity(BATCH_DATE.minusDays(3)));
+        records.add(equity(BATCH_DATE));
+        store.getGroupTrends().series(BATCH_DATE);
+
+        // When
+        Map<String, long[]> earlier = store.getGroupTrends().series(BATCH_DATE.minusDays(1));
+        Map<String, long[]> latest = store.getGroupTrends().series(BATCH_DATE);
+
+        // Then
+        assertThat(earlier.get(EQUITY)).containsExactly(1, 0, 0);
+        assertThat(latest.get(EQUITY)).containsExactly(0, 0, 1);
+        // The newest window was still in the rings and loaded once
+        verify(batchQueryRepository).findAllByBatchDateBetween(BATCH_DATE.minusDays(2), BATCH_DATE);
+    }
+
+    private static BatchRecord equity(LocalDate batchDate) {
+        return new BatchRecord(null, "Equity", "US Large Cap", "Base", "Entity A", batchDate);
+    }
+
+    private static BatchRecord bonds(LocalDate batchDate) {
+        return new BatchRecord(null, "Fixed Income", "Corporate Bonds", "Base", "Entity B", batchDate);
+    }
+}
@@ -0,0 +1,51 @@
+package com.demo.batchreport.store;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Aggregation time on a million-row day at 1 to N workers. Run with {@code mvn test -Pbenchmark}.
+ * Speedup is relative to the single-worker (sequential) run; it is bounded by the cores the JVM can see.
+ */
+@Tag("benchmark")
+class SegmentAggregatorBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    @Test
+    void reportSpeedupAcrossWorkers() {
+        // Given
+        DateSegment segment = SegmentAggregatorTest.largeSegment(ROWS);
+        int maxWorkers = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        // When / Then
+        System.out.printf("%-8s %12s %9s   (%d processors available)%n", "workers", "ms/segment", "speedup",
+                Runtime.getRuntime().availableProcessors());
+        double baseline = 0;
+        for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+            SegmentAggregator aggregator = new SegmentAggregator(0, workers);
+            double millis = measure(aggregator, segment);
+            if (workers == 1) {
+                baseline = millis;
+            }
+            System.out.printf("%-8d %12.2f %8.2fx%n", workers, millis, baseline / millis);
+        }
+    }
+
+    private static double measure(SegmentAggregator aggregator, DateSegment segment) {
+        for (int i = 0; i < WARMUP; i++) {
+            assertThat(aggregator.countByGroup(segment).size()).isPositive();
+            aggregator.countByScenario(segment);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            aggregator.countByGroup(segment);
+            aggregator.countByScenario(segment);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+    }
+}
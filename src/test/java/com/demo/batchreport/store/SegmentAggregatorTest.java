@@ -0,0 +1,64 @@
+package com.demo.batchreport.store;
+
+import com.demo.batchreport.domain.BatchRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentAggregatorTest {
+
+    private static final LocalDate BATCH_DATE = LocalDate.of(2024, 12, 15);
+
+    @Test
+    void shouldMatchSequentialCountsWhenSplitAcrossWorkers() {
+        // Given
+        DateSegment segment = largeSegment(100_000);
+        SegmentAggregator sequential = new SegmentAggregator(Integer.MAX_VALUE, 1);
+        SegmentAggregator parallel = new SegmentAggregator(0, 4);
+
+        // When
+        LongCountMap expectedGroups = sequential.countByGroup(segment);
+        LongCountMap groups = parallel.countByGroup(segment);
+        LongCountMap expectedScenarios = sequential.countByScenario(segment);
+        LongCountMap scenarios = parallel.countByScenario(segment);
+
+        // Then
+        assertThat(groups.size()).isEqualTo(expectedGroups.size());
+        expectedGroups.forEach((key, count) -> assertThat(groups.get(key)).isEqualTo(count));
+        assertThat(scenarios.size()).isEqualTo(expectedScenarios.size());
+        expectedScenarios.forEach((key, count) -> assertThat(scenarios.get(key)).isEqualTo(count));
+    }
+
+    @Test
+    void shouldCountKeyThatEqualsTheEmptySlotMarker() {
+        // Given
+        long topAssetClass = ColumnDictionaries.pack(0x8000, 0, 0, 0);
+        LongCountMap first = new LongCountMap();
+        first.increment(topAssetClass);
+        first.increment(1L);
+        LongCountMap second = new LongCountMap();
+        second.add(topAssetClass, 2);
+
+        // When
+        second.mergeFrom(first);
+
+        // Then
+        assertThat(topAssetClass).isEqualTo(Long.MIN_VALUE);
+        assertThat(second.size()).isEqualTo(2);
+        assertThat(second.get(topAssetClass)).isEqualTo(3L);
+        assertThat(second.get(1L)).isEqualTo(1L);
+    }
+
+    static DateSegment largeSegment(int rows) {
+        List<BatchRecord> records = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            records.add(new BatchRecord(null, "Asset " + i % 5, "Product " + i % 40, "Scenario " + i % 300,
+                    "Entity " + i % 12, BATCH_DATE));
+        }
+        return DateSegment.of(BATCH_DATE, records, new ColumnDictionaries());
+    }
+}